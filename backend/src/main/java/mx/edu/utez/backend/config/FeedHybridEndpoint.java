@@ -0,0 +1,38 @@
+package mx.edu.utez.backend.config;
+
+import mx.edu.utez.backend.service.HybridFeedService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Permite consultar y ajustar en caliente el umbral de seguidores a partir del
+ * cual un autor deja de hacer fan-out (GET/POST /actuator/feedhybrid).
+ */
+@Component
+@Endpoint(id = "feedhybrid")
+public class FeedHybridEndpoint {
+
+    @Autowired
+    private HybridFeedService hybridFeedService;
+
+    @ReadOperation
+    public Map<String, Object> status() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("threshold", hybridFeedService.getThreshold());
+        status.put("celebrities", hybridFeedService.getCelebrityCount());
+        status.put("rings", hybridFeedService.getRingCount());
+        return status;
+    }
+
+    @WriteOperation
+    public Map<String, Object> updateThreshold(int threshold) {
+        hybridFeedService.setThreshold(threshold);
+        return status();
+    }
+}
@@ -0,0 +1,34 @@
+package mx.edu.utez.backend.config;
+
+import mx.edu.utez.backend.service.CounterReconciler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Estadísticas de deriva de la última pasada de reconciliación de contadores y
+ * disparo manual de una pasada (GET/POST /actuator/reconciler).
+ */
+@Component
+@Endpoint(id = "reconciler")
+public class ReconcilerEndpoint {
+
+    @Autowired
+    private CounterReconciler counterReconciler;
+
+    @ReadOperation
+    public Map<String, Object> status() {
+        return counterReconciler.status();
+    }
+
+    @WriteOperation
+    public Map<String, Object> trigger() {
+        Map<String, Object> status = counterReconciler.status();
+        status.put("triggered", counterReconciler.triggerPass());
+        return status;
+    }
+}
@@ -1,16 +1,26 @@
 package mx.edu.utez.backend.controller;
 
+import jakarta.validation.Valid;
 import mx.edu.utez.backend.dto.ChirpDTO;
 import mx.edu.utez.backend.dto.request.CreateChirpRequest;
+import mx.edu.utez.backend.dto.request.EngagementBatchRequest;
+import mx.edu.utez.backend.dto.response.EngagementBatchResponse;
+import mx.edu.utez.backend.dto.response.FeedPageResponse;
+import mx.edu.utez.backend.exception.BadRequestException;
 import mx.edu.utez.backend.model.User;
 import mx.edu.utez.backend.service.ChirpService;
+import mx.edu.utez.backend.service.EngagementBatchService;
+import mx.edu.utez.backend.service.FeedEventBroadcaster;
+import mx.edu.utez.backend.util.FeedCursor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.HashMap;
 import java.util.List;
@@ -21,17 +31,55 @@ import java.util.Map;
 @CrossOrigin(origins = "*")
 public class ChirpController {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     @Autowired
     private ChirpService chirpService;
 
+    @Autowired
+    private FeedEventBroadcaster feedEventBroadcaster;
+
+    @Autowired
+    private EngagementBatchService engagementBatchService;
+
     @GetMapping("/feed")
     public ResponseEntity<List<ChirpDTO>> getFeed(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
-            @AuthenticationPrincipal User user) {
-        Pageable pageable = PageRequest.of(page, size);
-        List<ChirpDTO> feed = chirpService.getFeed(user, pageable);
-        return ResponseEntity.ok(feed);
+            @RequestParam(required = false) String before,
+            @RequestParam(defaultValue = ChirpService.LATEST_FEED_MODE) String mode,
+            @AuthenticationPrincipal User user,
+            WebRequest webRequest) {
+        if (!ChirpService.LATEST_FEED_MODE.equals(mode) && !ChirpService.TOP_FEED_MODE.equals(mode)) {
+            throw new BadRequestException("Modo de feed inválido");
+        }
+
+        // Si el cliente ya tiene esta versión del feed se responde 304 sin consultar la base de datos
+        if (webRequest.checkNotModified(chirpService.getFeedETag(user, mode, page, size, before))) {
+            return null;
+        }
+
+        // Con "before" se pagina por cursor (keyset) en lugar de offset; el modo top siempre usa offset
+        FeedPageResponse feed;
+        if (ChirpService.TOP_FEED_MODE.equals(mode)) {
+            feed = chirpService.getTopFeed(user, page, size);
+        } else if (before != null) {
+            feed = chirpService.getFeedBefore(user, FeedCursor.parse(before), size);
+        } else {
+            feed = chirpService.getFeed(user, PageRequest.of(page, size));
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (feed.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, feed.getNextCursor());
+        }
+        return response.body(feed.getItems());
+    }
+
+    // Stream SSE con avisos de nuevos elementos en el feed (chirps y reposts de seguidos)
+    @GetMapping(value = "/feed/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamFeed(@AuthenticationPrincipal User user) {
+        return feedEventBroadcaster.subscribe(user.getId());
     }
 
     @GetMapping("/{chirpId}/replies")
@@ -75,6 +123,14 @@ public class ChirpController {
         return ResponseEntity.ok(response);
     }
 
+    // Interacciones acumuladas sin conexión: una petición por dispositivo al reconectar
+    @PostMapping("/engagements/batch")
+    public ResponseEntity<EngagementBatchResponse> applyEngagements(
+            @Valid @RequestBody EngagementBatchRequest request,
+            @AuthenticationPrincipal User user) {
+        return ResponseEntity.ok(engagementBatchService.apply(request.getOperations(), user));
+    }
+
     @PostMapping("/like/{chirpId}")
     public ResponseEntity<Map<String, Object>> likeChirp(
             @PathVariable Long chirpId,
@@ -10,6 +10,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.HashMap;
 import java.util.List;
@@ -29,14 +30,22 @@ public class NotificationController {
     public ResponseEntity<List<NotificationDTO>> getNotifications(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
-            @AuthenticationPrincipal User user) {
+            @AuthenticationPrincipal User user,
+            WebRequest webRequest) {
+        if (webRequest.checkNotModified(notificationService.getNotificationsETag(user, page + "-" + size))) {
+            return null;
+        }
         Pageable pageable = PageRequest.of(page, size);
         List<NotificationDTO> notifications = notificationService.getNotifications(user, pageable);
         return ResponseEntity.ok(notifications);
     }
 
     @GetMapping("/unread-count")
-    public ResponseEntity<Map<String, Long>> getUnreadCount(@AuthenticationPrincipal User user) {
+    public ResponseEntity<Map<String, Long>> getUnreadCount(@AuthenticationPrincipal User user,
+            WebRequest webRequest) {
+        if (webRequest.checkNotModified(notificationService.getNotificationsETag(user, "unread"))) {
+            return null;
+        }
         long count = notificationService.getUnreadCount(user);
         Map<String, Long> response = new HashMap<>();
         response.put("count", count);
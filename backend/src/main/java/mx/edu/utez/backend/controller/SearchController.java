@@ -2,9 +2,13 @@ package mx.edu.utez.backend.controller;
 
 import mx.edu.utez.backend.dto.ChirpDTO;
 import mx.edu.utez.backend.dto.UserDTO;
+import mx.edu.utez.backend.dto.response.FeedPageResponse;
 import mx.edu.utez.backend.dto.response.SearchResponse;
+import mx.edu.utez.backend.dto.response.TrendsResponse;
 import mx.edu.utez.backend.model.User;
 import mx.edu.utez.backend.service.SearchService;
+import mx.edu.utez.backend.service.TrendsEngine;
+import mx.edu.utez.backend.util.FeedCursor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -21,6 +25,9 @@ public class SearchController {
     @Autowired
     private SearchService searchService;
     
+    @Autowired
+    private TrendsEngine trendsEngine;
+    
     @GetMapping
     public ResponseEntity<SearchResponse> searchAll(
             @RequestParam String q,
@@ -32,8 +39,9 @@ public class SearchController {
     @GetMapping("/users")
     public ResponseEntity<List<UserDTO>> searchUsers(
             @RequestParam String q,
+            @RequestParam(defaultValue = "10") int limit,
             @AuthenticationPrincipal User user) {
-        List<UserDTO> users = searchService.searchUsers(q, user);
+        List<UserDTO> users = searchService.searchUsers(q, limit, user);
         return ResponseEntity.ok(users);
     }
     
@@ -47,4 +55,33 @@ public class SearchController {
         List<ChirpDTO> chirps = searchService.searchChirps(q, user, pageable);
         return ResponseEntity.ok(chirps);
     }
+    
+    @GetMapping("/trends")
+    public ResponseEntity<TrendsResponse> getTrends(
+            @RequestParam(defaultValue = "1h") String window,
+            @RequestParam(required = false) String country,
+            @RequestParam(required = false) String city,
+            @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(trendsEngine.getTrends(window, country, city, limit));
+    }
+    
+    @GetMapping("/hashtags/{tag}")
+    public ResponseEntity<FeedPageResponse> getHashtagChirps(
+            @PathVariable String tag,
+            @RequestParam(required = false) String before,
+            @RequestParam(defaultValue = "20") int size,
+            @AuthenticationPrincipal User user) {
+        FeedCursor cursor = before != null ? FeedCursor.parse(before) : null;
+        return ResponseEntity.ok(searchService.getHashtagChirps(tag, cursor, size, user));
+    }
+    
+    @GetMapping("/mentions/{userId}")
+    public ResponseEntity<FeedPageResponse> getMentionChirps(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String before,
+            @RequestParam(defaultValue = "20") int size,
+            @AuthenticationPrincipal User user) {
+        FeedCursor cursor = before != null ? FeedCursor.parse(before) : null;
+        return ResponseEntity.ok(searchService.getMentionChirps(userId, cursor, size, user));
+    }
 }
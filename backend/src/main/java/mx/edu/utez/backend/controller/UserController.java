@@ -1,15 +1,22 @@
 package mx.edu.utez.backend.controller;
 
+import jakarta.validation.Valid;
 import mx.edu.utez.backend.dto.ChirpDTO;
 import mx.edu.utez.backend.dto.UserDTO;
+import mx.edu.utez.backend.dto.request.BatchFollowRequest;
+import mx.edu.utez.backend.dto.response.AccountDeletionResponse;
+import mx.edu.utez.backend.dto.response.BatchFollowResponse;
 import mx.edu.utez.backend.model.User;
+import mx.edu.utez.backend.service.AccountDeletionService;
 import mx.edu.utez.backend.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.HashMap;
 import java.util.List;
@@ -22,6 +29,9 @@ public class UserController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private AccountDeletionService accountDeletionService;
+
     @GetMapping("/profile")
     public ResponseEntity<UserDTO> getProfile(@AuthenticationPrincipal User user) {
         UserDTO userDTO = userService.getProfile(user);
@@ -31,7 +41,11 @@ public class UserController {
     @GetMapping("/{userId}")
     public ResponseEntity<UserDTO> getUserById(
             @PathVariable Long userId,
-            @AuthenticationPrincipal User currentUser) {
+            @AuthenticationPrincipal User currentUser,
+            WebRequest webRequest) {
+        if (webRequest.checkNotModified(userService.getUserETag(userId, currentUser))) {
+            return null;
+        }
         UserDTO userDTO = userService.getUserById(userId, currentUser);
         return ResponseEntity.ok(userDTO);
     }
@@ -55,6 +69,20 @@ public class UserController {
         return ResponseEntity.ok(updatedUser);
     }
 
+    @PostMapping("/follow/batch")
+    public ResponseEntity<BatchFollowResponse> followUsers(
+            @Valid @RequestBody BatchFollowRequest request,
+            @AuthenticationPrincipal User currentUser) {
+        return ResponseEntity.ok(userService.followUsers(request.getUserIds(), currentUser));
+    }
+
+    @PostMapping("/unfollow/batch")
+    public ResponseEntity<BatchFollowResponse> unfollowUsers(
+            @Valid @RequestBody BatchFollowRequest request,
+            @AuthenticationPrincipal User currentUser) {
+        return ResponseEntity.ok(userService.unfollowUsers(request.getUserIds(), currentUser));
+    }
+
     @DeleteMapping("/unfollow/{userId}")
     public ResponseEntity<UserDTO> unfollowUser(
             @PathVariable Long userId,
@@ -63,6 +91,17 @@ public class UserController {
         return ResponseEntity.ok(updatedUser);
     }
 
+    // Desactiva la cuenta al instante y la borra en segundo plano; el progreso se consulta con el jobId
+    @DeleteMapping("/profile")
+    public ResponseEntity<AccountDeletionResponse> deleteAccount(@AuthenticationPrincipal User currentUser) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(accountDeletionService.requestDeletion(currentUser));
+    }
+
+    @GetMapping("/deletion/{jobId}")
+    public ResponseEntity<AccountDeletionResponse> getDeletionProgress(@PathVariable String jobId) {
+        return ResponseEntity.ok(accountDeletionService.getJob(jobId));
+    }
+
     @PutMapping(value = "/profile", consumes = { "multipart/form-data" })
     public ResponseEntity<UserDTO> updateProfile(
             @jakarta.validation.Valid @ModelAttribute mx.edu.utez.backend.dto.request.UpdateProfileRequest request,
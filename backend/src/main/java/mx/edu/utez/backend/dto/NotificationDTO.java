@@ -6,6 +6,7 @@ import lombok.NoArgsConstructor;
 import mx.edu.utez.backend.model.NotificationType;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Data
 @NoArgsConstructor
@@ -14,8 +15,11 @@ public class NotificationDTO {
     private Long id;
     private NotificationType type;
     private AuthorDTO actor;
+    private int actorCount; // 1 si no está agrupada
+    private List<AuthorDTO> recentActors; // los más recientes, el más nuevo primero
     private ChirpDTO chirp;
     private String content;
     private LocalDateTime createdAt;
+    private LocalDateTime lastActivityAt;
     private boolean isRead;
 }
@@ -0,0 +1,20 @@
+package mx.edu.utez.backend.dto.request;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchFollowRequest {
+
+    @NotEmpty(message = "Debes indicar al menos un usuario")
+    @Size(max = 100, message = "No puedes seguir a más de 100 usuarios a la vez")
+    private List<@NotNull Long> userIds;
+}
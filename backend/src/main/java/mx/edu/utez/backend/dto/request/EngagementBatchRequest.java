@@ -0,0 +1,22 @@
+package mx.edu.utez.backend.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EngagementBatchRequest {
+
+    // En el orden en que el cliente las registró sin conexión
+    @NotEmpty(message = "Debes enviar al menos una operación")
+    @Size(max = 500, message = "No puedes enviar más de 500 operaciones a la vez")
+    private List<@Valid @NotNull EngagementOperationRequest> operations;
+}
@@ -0,0 +1,20 @@
+package mx.edu.utez.backend.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EngagementOperationRequest {
+
+    // LIKE, UNLIKE, REPOST o UNREPOST
+    @NotBlank(message = "El tipo de operación es requerido")
+    private String type;
+
+    @NotNull(message = "El id del chirp es requerido")
+    private Long chirpId;
+}
@@ -0,0 +1,21 @@
+package mx.edu.utez.backend.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Progreso del borrado de una cuenta; progress es el porcentaje de fases terminadas
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountDeletionResponse {
+    private String jobId;
+    private String phase;
+    private int progress;
+    private long processedRows;
+    private boolean completed;
+    private LocalDateTime createdAt;
+    private LocalDateTime completedAt;
+}
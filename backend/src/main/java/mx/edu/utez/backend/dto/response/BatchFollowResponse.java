@@ -0,0 +1,17 @@
+package mx.edu.utez.backend.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Resultado de seguir/dejar de seguir en lote; los omitidos no existen, son uno mismo o ya estaban en ese estado
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchFollowResponse {
+    private List<Long> updatedIds;
+    private List<Long> skippedIds;
+    private int followingCount;
+}
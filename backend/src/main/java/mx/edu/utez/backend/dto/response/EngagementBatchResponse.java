@@ -0,0 +1,14 @@
+package mx.edu.utez.backend.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EngagementBatchResponse {
+    private List<EngagementResultResponse> results;
+}
@@ -0,0 +1,15 @@
+package mx.edu.utez.backend.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Resultado de una operación del lote, en la misma posición en que se envió
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EngagementResultResponse {
+    private String type;
+    private Long chirpId;
+    private String status; // APPLIED, UNCHANGED, SUPERSEDED, NOT_FOUND o INVALID
+}
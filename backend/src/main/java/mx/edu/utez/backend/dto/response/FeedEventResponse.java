@@ -0,0 +1,18 @@
+package mx.edu.utez.backend.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Evento compacto del stream del feed; el cliente pide el chirp completo con el feed normal
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FeedEventResponse {
+    private Long chirpId;
+    private Long authorId;
+    private Long repostedById; // null si no es repost
+    private LocalDateTime createdAt;
+}
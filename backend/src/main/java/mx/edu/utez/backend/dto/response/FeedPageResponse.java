@@ -0,0 +1,16 @@
+package mx.edu.utez.backend.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import mx.edu.utez.backend.dto.ChirpDTO;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FeedPageResponse {
+    private List<ChirpDTO> items;
+    private String nextCursor; // null cuando no hay más elementos
+}
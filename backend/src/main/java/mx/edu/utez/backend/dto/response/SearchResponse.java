@@ -14,4 +14,5 @@ import java.util.List;
 public class SearchResponse {
     private List<UserDTO> users;
     private List<ChirpDTO> chirps;
+    private boolean partial; // Alguna de las dos búsquedas no terminó a tiempo
 }
@@ -0,0 +1,13 @@
+package mx.edu.utez.backend.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrendResponse {
+    private String hashtag; // normalizado, sin '#'
+    private long count; // estimado; puede exceder un poco el valor real
+}
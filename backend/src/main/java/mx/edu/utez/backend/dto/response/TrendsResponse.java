@@ -0,0 +1,17 @@
+package mx.edu.utez.backend.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrendsResponse {
+    private String window; // "1h" o "24h"
+    private String country; // null para tendencias globales
+    private String city;
+    private List<TrendResponse> trends;
+}
@@ -0,0 +1,54 @@
+package mx.edu.utez.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Borrado de una cuenta en curso. La fase y el cursor se guardan en la misma
+ * transacción que cada lote borrado, así el trabajo se reanuda exactamente
+ * donde quedó tras un reinicio o un error.
+ */
+@Entity
+@Table(name = "account_deletion_jobs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountDeletionJob {
+
+    // UUID: se usa para consultar el progreso cuando la cuenta ya no puede autenticarse
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Column(name = "user_id", nullable = false, unique = true)
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private AccountDeletionPhase phase = AccountDeletionPhase.CHIRPS;
+
+    // Última clave procesada dentro de la fase actual (paginación por keyset)
+    @Column(name = "cursor_id", nullable = false)
+    private long cursorId = 0;
+
+    @Column(name = "processed_rows", nullable = false)
+    private long processedRows = 0;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+}
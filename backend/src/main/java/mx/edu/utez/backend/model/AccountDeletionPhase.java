@@ -0,0 +1,20 @@
+package mx.edu.utez.backend.model;
+
+/**
+ * Fases del borrado de una cuenta, en el orden en que se ejecutan. Los chirps
+ * se marcan primero para que desaparezcan de feeds, búsqueda y respuestas en
+ * cuanto se pide el borrado, sin esperar a las fases masivas.
+ */
+public enum AccountDeletionPhase {
+    CHIRPS,
+    LIKES,
+    REPOSTS,
+    FOLLOWING,
+    FOLLOWERS,
+    NOTIFICATIONS,
+    TIMELINE,
+    MENTIONS,
+    AWAIT_PURGE,
+    USER,
+    DONE
+}
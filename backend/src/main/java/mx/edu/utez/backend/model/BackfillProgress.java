@@ -0,0 +1,32 @@
+package mx.edu.utez.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Avance de un relleno en segundo plano sobre datos existentes. El cursor se
+ * guarda tras cada tramo, así un reinicio retoma el recorrido donde quedó y
+ * uno terminado no se repite.
+ */
+@Entity
+@Table(name = "backfill_progress")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BackfillProgress {
+
+    @Id
+    @Column(length = 50)
+    private String name;
+
+    // Se recorre por id descendente: las filas con id menor al cursor faltan
+    @Column(name = "cursor_id", nullable = false)
+    private long cursorId;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+}
@@ -11,6 +11,7 @@ import lombok.Setter;
 import lombok.ToString;
 
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.SQLRestriction;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
@@ -25,7 +26,12 @@ import java.util.List;
 @AllArgsConstructor
 @ToString(exclude = { "author", "replyTo", "replies", "likes", "reposts", "notifications" })
 @Entity
-@Table(name = "chirps")
+@Table(name = "chirps", indexes = {
+        @Index(name = "idx_chirps_author_created", columnList = "author_id, created_at, id"),
+        @Index(name = "idx_chirps_deleted", columnList = "deleted, id")
+})
+// Los chirps borrados quedan ocultos para toda consulta JPA hasta que ChirpPurger los elimina
+@SQLRestriction("deleted = false")
 public class Chirp {
 
     @Id
@@ -54,13 +60,15 @@ public class Chirp {
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
-    @Column(name = "likes_count")
+    // Los contadores solo se modifican con UPDATE incrementales (EngagementCounterService);
+    // updatable = false evita que guardar la entidad pise esos incrementos con un valor viejo
+    @Column(name = "likes_count", updatable = false)
     private int likesCount = 0;
 
-    @Column(name = "replies_count")
+    @Column(name = "replies_count", updatable = false)
     private int repliesCount = 0;
 
-    @Column(name = "reposts_count")
+    @Column(name = "reposts_count", updatable = false)
     private int repostsCount = 0;
 
     @OneToMany(mappedBy = "chirp", cascade = CascadeType.ALL, orphanRemoval = true)
@@ -87,6 +95,13 @@ public class Chirp {
     @Column(name = "country", length = 100)
     private String country;
 
+    // Borrado lógico: se oculta al instante y ChirpPurger elimina la fila y sus dependencias por tramos
+    @Column(nullable = false, columnDefinition = "boolean default false")
+    private boolean deleted = false;
+
+    @Column(name = "deleted_at")
+    private LocalDateTime deletedAt;
+
     @ElementCollection
     @CollectionTable(name = "chirp_images", joinColumns = @JoinColumn(name = "chirp_id"))
     @Column(name = "image_url")
@@ -0,0 +1,29 @@
+package mx.edu.utez.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Hashtag normalizado de un chirp (minúsculas, sin acentos ni '#'). La
+ * línea de tiempo de un hashtag es un range scan sobre (tag, created_at).
+ */
+@Entity
+@Table(name = "chirp_hashtags", indexes = {
+        @Index(name = "idx_chirp_hashtags_tag_created", columnList = "tag, created_at, chirp_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChirpHashtag {
+
+    @EmbeddedId
+    private ChirpHashtagId id;
+
+    // Copia de chirps.created_at para ordenar sin tocar la tabla de chirps
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
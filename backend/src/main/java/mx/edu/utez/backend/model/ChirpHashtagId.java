@@ -0,0 +1,36 @@
+package mx.edu.utez.backend.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChirpHashtagId implements Serializable {
+
+    private Long chirpId;
+
+    @Column(length = 100)
+    private String tag;
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ChirpHashtagId that = (ChirpHashtagId) o;
+        return Objects.equals(chirpId, that.chirpId) &&
+               Objects.equals(tag, that.tag);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(chirpId, tag);
+    }
+}
@@ -0,0 +1,28 @@
+package mx.edu.utez.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Mención de un usuario (@username) en un chirp. Las menciones de un usuario
+ * se leen con un range scan sobre (user_id, created_at).
+ */
+@Entity
+@Table(name = "chirp_mentions", indexes = {
+        @Index(name = "idx_chirp_mentions_user_created", columnList = "user_id, created_at, chirp_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChirpMention {
+
+    @EmbeddedId
+    private ChirpMentionId id;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
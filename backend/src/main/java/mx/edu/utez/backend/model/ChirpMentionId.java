@@ -0,0 +1,33 @@
+package mx.edu.utez.backend.model;
+
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChirpMentionId implements Serializable {
+
+    private Long chirpId;
+    private Long userId;
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ChirpMentionId that = (ChirpMentionId) o;
+        return Objects.equals(chirpId, that.chirpId) &&
+               Objects.equals(userId, that.userId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(chirpId, userId);
+    }
+}
@@ -44,4 +44,15 @@ public class Notification {
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
+
+    // Agrupación de likes/reposts/follows: total de actores y los más recientes
+    // (IDs separados por coma, el más nuevo primero); actor es siempre el último
+    @Column(name = "actor_count", nullable = false, columnDefinition = "integer default 1")
+    private int actorCount = 1;
+
+    @Column(name = "recent_actor_ids", length = 100)
+    private String recentActorIds;
+
+    @Column(name = "last_activity_at")
+    private LocalDateTime lastActivityAt;
 }
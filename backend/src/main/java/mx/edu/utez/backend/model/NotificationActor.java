@@ -0,0 +1,30 @@
+package mx.edu.utez.backend.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+/**
+ * Actor distinto de una notificación agrupada. actor_count es el número de
+ * filas de la notificación, así repetir like/unlike/like no infla el total.
+ */
+@Entity
+@Table(name = "notification_actors")
+@Data
+@NoArgsConstructor
+@ToString(exclude = "notification")
+public class NotificationActor {
+
+    @EmbeddedId
+    private NotificationActorId id;
+
+    // Solo define la llave foránea: al borrar la notificación se borran sus actores
+    @MapsId("notificationId")
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "notification_id")
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Notification notification;
+}
@@ -0,0 +1,34 @@
+package mx.edu.utez.backend.model;
+
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationActorId implements Serializable {
+
+    private Long notificationId;
+
+    private Long actorId;
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        NotificationActorId that = (NotificationActorId) o;
+        return Objects.equals(notificationId, that.notificationId) &&
+               Objects.equals(actorId, that.actorId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(notificationId, actorId);
+    }
+}
@@ -9,7 +9,9 @@ import org.hibernate.annotations.CreationTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "reposts")
+@Table(name = "reposts", indexes = {
+        @Index(name = "idx_reposts_user_created", columnList = "user_id, created_at, chirp_id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
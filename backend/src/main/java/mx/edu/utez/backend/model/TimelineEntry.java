@@ -0,0 +1,52 @@
+package mx.edu.utez.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entrada del timeline materializado de un usuario (fan-out on write).
+ * Se guardan solo IDs para que la lectura del feed sea un range scan
+ * sobre (owner_id, sort_ts). Una misma entrada (dueño, chirp, quien repostea)
+ * existe una sola vez; las inserciones usan INSERT IGNORE.
+ */
+@Entity
+@Table(name = "home_timeline", indexes = {
+        @Index(name = "idx_timeline_owner_sort", columnList = "owner_id, sort_ts, id"),
+        @Index(name = "idx_timeline_chirp", columnList = "chirp_id")
+}, uniqueConstraints = {
+        @UniqueConstraint(name = "uk_timeline_owner_chirp_reposter", columnNames = { "owner_id", "chirp_id", "reposter_key" })
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TimelineEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "owner_id", nullable = false)
+    private Long ownerId;
+
+    @Column(name = "chirp_id", nullable = false)
+    private Long chirpId;
+
+    @Column(name = "author_id", nullable = false)
+    private Long authorId;
+
+    // null si la entrada es el chirp original y no un repost
+    @Column(name = "reposter_id")
+    private Long reposterId;
+
+    @Column(name = "sort_ts", nullable = false)
+    private LocalDateTime sortTs;
+
+    // reposter_id con 0 en lugar de NULL: en un índice único los NULL no se consideran iguales
+    @Column(name = "reposter_key", insertable = false, updatable = false,
+            columnDefinition = "BIGINT GENERATED ALWAYS AS (COALESCE(reposter_id, 0))")
+    private Long reposterKey;
+}
@@ -67,10 +67,12 @@ public class User {
     @Size(max = 100, message = "El país no puede exceder 100 caracteres")
     private String country;
 
-    @Column(name = "followers_count")
+    // Solo se modifican con UPDATE relativos (UserRepository.adjust*Count); updatable = false
+    // evita que guardar el usuario (p. ej. al editar el perfil) los pise con un valor viejo
+    @Column(name = "followers_count", updatable = false)
     private int followersCount = 0;
 
-    @Column(name = "following_count")
+    @Column(name = "following_count", updatable = false)
     private int followingCount = 0;
 
     @CreationTimestamp
@@ -104,6 +106,16 @@ public class User {
     @Column(name = "fcm_token", length = 512)
     private String fcmToken;
 
+    // Cuenta en proceso de borrado (AccountDeletionService): ya no puede autenticarse ni ser vista
+    @Column(name = "deletion_requested_at")
+    @JsonIgnore
+    private LocalDateTime deletionRequestedAt;
+
+    // Timeline materializado ya construido (TimelineService); solo se escribe por JDBC
+    @Column(name = "timeline_seeded_at", insertable = false, updatable = false)
+    @JsonIgnore
+    private LocalDateTime timelineSeededAt;
+
     public String getFcmToken() {
         return fcmToken;
     }
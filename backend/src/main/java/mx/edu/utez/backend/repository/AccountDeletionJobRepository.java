@@ -0,0 +1,17 @@
+package mx.edu.utez.backend.repository;
+
+import mx.edu.utez.backend.model.AccountDeletionJob;
+import mx.edu.utez.backend.model.AccountDeletionPhase;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface AccountDeletionJobRepository extends JpaRepository<AccountDeletionJob, String> {
+
+    Optional<AccountDeletionJob> findByUserId(Long userId);
+
+    List<AccountDeletionJob> findByPhaseNotOrderByCreatedAtAsc(AccountDeletionPhase phase);
+}
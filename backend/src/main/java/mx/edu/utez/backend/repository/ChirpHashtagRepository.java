@@ -0,0 +1,27 @@
+package mx.edu.utez.backend.repository;
+
+import mx.edu.utez.backend.model.ChirpHashtag;
+import mx.edu.utez.backend.model.ChirpHashtagId;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ChirpHashtagRepository extends JpaRepository<ChirpHashtag, ChirpHashtagId> {
+
+    // Primera página de un hashtag (el join con Chirp descarta los chirps borrados)
+    @Query("SELECT h FROM ChirpHashtag h JOIN Chirp c ON c.id = h.id.chirpId WHERE h.id.tag = :tag "
+            + "ORDER BY h.createdAt DESC, h.id.chirpId DESC")
+    List<ChirpHashtag> findLatest(@Param("tag") String tag, Pageable pageable);
+
+    @Query("SELECT h FROM ChirpHashtag h JOIN Chirp c ON c.id = h.id.chirpId WHERE h.id.tag = :tag "
+            + "AND (h.createdAt < :beforeTs OR (h.createdAt = :beforeTs AND h.id.chirpId < :beforeId)) "
+            + "ORDER BY h.createdAt DESC, h.id.chirpId DESC")
+    List<ChirpHashtag> findBefore(@Param("tag") String tag, @Param("beforeTs") LocalDateTime beforeTs,
+            @Param("beforeId") Long beforeId, Pageable pageable);
+}
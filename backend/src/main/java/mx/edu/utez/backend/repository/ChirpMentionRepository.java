@@ -0,0 +1,27 @@
+package mx.edu.utez.backend.repository;
+
+import mx.edu.utez.backend.model.ChirpMention;
+import mx.edu.utez.backend.model.ChirpMentionId;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ChirpMentionRepository extends JpaRepository<ChirpMention, ChirpMentionId> {
+
+    // Primera página de menciones de un usuario (el join con Chirp descarta los chirps borrados)
+    @Query("SELECT m FROM ChirpMention m JOIN Chirp c ON c.id = m.id.chirpId WHERE m.id.userId = :userId "
+            + "ORDER BY m.createdAt DESC, m.id.chirpId DESC")
+    List<ChirpMention> findLatest(@Param("userId") Long userId, Pageable pageable);
+
+    @Query("SELECT m FROM ChirpMention m JOIN Chirp c ON c.id = m.id.chirpId WHERE m.id.userId = :userId "
+            + "AND (m.createdAt < :beforeTs OR (m.createdAt = :beforeTs AND m.id.chirpId < :beforeId)) "
+            + "ORDER BY m.createdAt DESC, m.id.chirpId DESC")
+    List<ChirpMention> findBefore(@Param("userId") Long userId, @Param("beforeTs") LocalDateTime beforeTs,
+            @Param("beforeId") Long beforeId, Pageable pageable);
+}
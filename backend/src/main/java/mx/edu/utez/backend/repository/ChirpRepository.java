@@ -4,94 +4,92 @@ import mx.edu.utez.backend.model.Chirp;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ChirpRepository extends JpaRepository<Chirp, Long> {
 
-    @Query("SELECT c FROM Chirp c WHERE LOWER(c.content) LIKE LOWER(CONCAT('%', :query, '%'))")
-    List<Chirp> searchChirps(@Param("query") String query);
-
     @Query("SELECT c FROM Chirp c WHERE c.author.id = :authorId ORDER BY c.createdAt DESC")
     Page<Chirp> findByAuthorIdOrderByCreatedAtDesc(@Param("authorId") Long authorId, Pageable pageable);
 
+    // Lista y no Page: el límite va a la consulta sin pagar un COUNT sobre el LIKE
     @Query("SELECT c FROM Chirp c WHERE LOWER(c.content) LIKE LOWER(CONCAT('%', :query, '%'))")
-    Page<Chirp> searchChirpsPage(@Param("query") String query, Pageable pageable);
+    List<Chirp> searchChirps(@Param("query") String query, Pageable pageable);
 
     @Query("SELECT c FROM Chirp c WHERE c.author.id IN :authorIds ORDER BY c.createdAt DESC")
     Page<Chirp> findFeedByAuthorIds(@Param("authorIds") List<Long> authorIds, Pageable pageable);
 
+    // Datos de feed (chirp + autor) para chirps que no vienen de home_timeline
     @Query(value = """
-            SELECT * FROM (
-                SELECT
-                    c.id as id,
-                    c.content as content,
-                    c.created_at as createdAt,
-                    c.likes_count as likesCount,
-                    c.replies_count as repliesCount,
-                    c.reposts_count as repostsCount,
-                    c.reply_to_id as replyToId,
-                    c.latitude as latitude,
-                    c.longitude as longitude,
-                    c.city as city,
-                    c.country as country,
-                    u.id as authorId,
-                    u.username as authorUsername,
-                    u.display_name as authorDisplayName,
-                    u.profile_image_url as authorProfileImageUrl,
-                    NULL as reposterId,
-                    NULL as reposterUsername,
-                    NULL as reposterDisplayName,
-                    c.created_at as sortDate
-                FROM chirps c
-                JOIN users u ON c.author_id = u.id
-                WHERE c.author_id IN :authorIds AND c.reply_to_id IS NULL
+            SELECT
+                c.id as id,
+                c.content as content,
+                c.created_at as createdAt,
+                c.likes_count as likesCount,
+                c.replies_count as repliesCount,
+                c.reposts_count as repostsCount,
+                c.reply_to_id as replyToId,
+                c.latitude as latitude,
+                c.longitude as longitude,
+                c.city as city,
+                c.country as country,
+                u.id as authorId,
+                u.username as authorUsername,
+                u.display_name as authorDisplayName,
+                u.profile_image_url as authorProfileImageUrl,
+                NULL as reposterId,
+                NULL as reposterUsername,
+                NULL as reposterDisplayName,
+                c.created_at as sortDate,
+                NULL as entryId
+            FROM chirps c
+            JOIN users u ON c.author_id = u.id
+            WHERE c.id IN :chirpIds AND c.deleted = false
+            """, nativeQuery = true)
+    List<FeedItemProjection> findFeedItemsByChirpIds(@Param("chirpIds") Collection<Long> chirpIds);
 
-                UNION ALL
+    @Query("SELECT c.author.id FROM Chirp c WHERE c.id = :chirpId")
+    Optional<Long> findAuthorIdById(@Param("chirpId") Long chirpId);
+
+    // Tramo de la reconciliación: cada fila es [id, likes, reposts, respuestas] con id > afterId
+    @Query(value = """
+            SELECT id, likes_count, reposts_count, replies_count FROM chirps
+            WHERE id > :afterId AND deleted = false ORDER BY id LIMIT :limit
+            """, nativeQuery = true)
+    List<Object[]> findCounterChunk(@Param("afterId") Long afterId, @Param("limit") int limit);
 
-                SELECT
-                    c.id as id,
-                    c.content as content,
-                    c.created_at as createdAt,
-                    c.likes_count as likesCount,
-                    c.replies_count as repliesCount,
-                    c.reposts_count as repostsCount,
-                    c.reply_to_id as replyToId,
-                    c.latitude as latitude,
-                    c.longitude as longitude,
-                    c.city as city,
-                    c.country as country,
-                    u.id as authorId,
-                    u.username as authorUsername,
-                    u.display_name as authorDisplayName,
-                    u.profile_image_url as authorProfileImageUrl,
-                    r_user.id as reposterId,
-                    r_user.username as reposterUsername,
-                    r_user.display_name as reposterDisplayName,
-                    r.created_at as sortDate
-                FROM reposts r
-                JOIN chirps c ON r.chirp_id = c.id
-                JOIN users u ON c.author_id = u.id
-                JOIN users r_user ON r.user_id = r_user.id
-                WHERE r.user_id IN :authorIds
-            ) AS feed
-            ORDER BY sortDate DESC
-            """, countQuery = """
-            SELECT COUNT(*) FROM (
-                SELECT c.id FROM chirps c WHERE c.author_id IN :authorIds AND c.reply_to_id IS NULL
-                UNION ALL
-                SELECT r.id FROM reposts r WHERE r.user_id IN :authorIds
-            ) AS count_feed
+    // Cada fila es [chirpId, respuestas] para los chirps con id en (fromId, toId]
+    @Query(value = """
+            SELECT reply_to_id, COUNT(*) FROM chirps
+            WHERE reply_to_id > :fromId AND reply_to_id <= :toId AND deleted = false GROUP BY reply_to_id
             """, nativeQuery = true)
-    Page<FeedItemProjection> findFeedMixed(@Param("authorIds") List<Long> authorIds, Pageable pageable);
+    List<Object[]> countRepliesInRange(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    // Marca el chirp como borrado; devuelve 0 si ya lo estaba
+    @Modifying
+    @Query(value = "UPDATE chirps SET deleted = true, deleted_at = :deletedAt WHERE id = :chirpId AND deleted = false",
+            nativeQuery = true)
+    int softDelete(@Param("chirpId") Long chirpId, @Param("deletedAt") LocalDateTime deletedAt);
+
+    // Cada fila es [chirpId, authorId]; los chirps borrados no aparecen
+    @Query("SELECT c.id, c.author.id FROM Chirp c WHERE c.id IN :chirpIds")
+    List<Object[]> findAuthorIdsByIds(@Param("chirpIds") Collection<Long> chirpIds);
 
     @Query("SELECT c FROM Chirp c WHERE c.replyTo.id = :chirpId ORDER BY c.createdAt ASC")
     List<Chirp> findRepliesByChirpId(@Param("chirpId") Long chirpId);
 
     @Query("SELECT i FROM Chirp c JOIN c.imageUrls i WHERE c.id = :chirpId")
     List<String> findImageUrlsByChirpId(@Param("chirpId") Long chirpId);
+
+    // Cada fila es [chirpId, imageUrl]
+    @Query("SELECT c.id, i FROM Chirp c JOIN c.imageUrls i WHERE c.id IN :chirpIds")
+    List<Object[]> findImageUrlsByChirpIds(@Param("chirpIds") Collection<Long> chirpIds);
 }
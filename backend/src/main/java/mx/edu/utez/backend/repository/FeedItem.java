@@ -0,0 +1,61 @@
+package mx.edu.utez.backend.repository;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Implementación en memoria de {@link FeedItemProjection} para elementos que
+ * no salen directamente de home_timeline (por ejemplo, los que se mezclan en
+ * lectura desde el buffer de cuentas con muchos seguidores).
+ */
+@Data
+@NoArgsConstructor
+public class FeedItem implements FeedItemProjection {
+    private Long id;
+    private String content;
+    private LocalDateTime createdAt;
+    private Integer likesCount;
+    private Integer repliesCount;
+    private Integer repostsCount;
+    private Double latitude;
+    private Double longitude;
+    private String city;
+    private String country;
+    private Long authorId;
+    private String authorUsername;
+    private String authorDisplayName;
+    private String authorProfileImageUrl;
+    private Long reposterId;
+    private String reposterUsername;
+    private String reposterDisplayName;
+    private Long replyToId;
+    private LocalDateTime sortDate;
+    private Long entryId;
+
+    public static FeedItem copyOf(FeedItemProjection source) {
+        FeedItem item = new FeedItem();
+        item.setId(source.getId());
+        item.setContent(source.getContent());
+        item.setCreatedAt(source.getCreatedAt());
+        item.setLikesCount(source.getLikesCount());
+        item.setRepliesCount(source.getRepliesCount());
+        item.setRepostsCount(source.getRepostsCount());
+        item.setLatitude(source.getLatitude());
+        item.setLongitude(source.getLongitude());
+        item.setCity(source.getCity());
+        item.setCountry(source.getCountry());
+        item.setAuthorId(source.getAuthorId());
+        item.setAuthorUsername(source.getAuthorUsername());
+        item.setAuthorDisplayName(source.getAuthorDisplayName());
+        item.setAuthorProfileImageUrl(source.getAuthorProfileImageUrl());
+        item.setReposterId(source.getReposterId());
+        item.setReposterUsername(source.getReposterUsername());
+        item.setReposterDisplayName(source.getReposterDisplayName());
+        item.setReplyToId(source.getReplyToId());
+        item.setSortDate(source.getSortDate());
+        item.setEntryId(source.getEntryId());
+        return item;
+    }
+}
@@ -46,4 +46,7 @@ public interface FeedItemProjection {
 
     // Metadata for sorting
     LocalDateTime getSortDate();
+
+    // Timeline entry id, used as tie-breaker in feed cursors
+    Long getEntryId();
 }
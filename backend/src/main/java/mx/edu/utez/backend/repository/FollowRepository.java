@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,6 +19,26 @@ public interface FollowRepository extends JpaRepository<Follow, FollowId> {
     
     @Query("SELECT f.following.id FROM Follow f WHERE f.follower.id = :userId")
     List<Long> findFollowingIdsByUserId(@Param("userId") Long userId);
+
+    @Query("SELECT f.follower.id FROM Follow f WHERE f.following.id = :userId")
+    List<Long> findFollowerIdsByUserId(@Param("userId") Long userId);
     
+    // Cada fila es [userId, seguidores] para los usuarios con id en (fromId, toId]
+    @Query(value = """
+            SELECT following_id, COUNT(*) FROM follows
+            WHERE following_id > :fromId AND following_id <= :toId GROUP BY following_id
+            """, nativeQuery = true)
+    List<Object[]> countFollowersInRange(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    // Cada fila es [userId, seguidos] para los usuarios con id en (fromId, toId]
+    @Query(value = """
+            SELECT follower_id, COUNT(*) FROM follows
+            WHERE follower_id > :fromId AND follower_id <= :toId GROUP BY follower_id
+            """, nativeQuery = true)
+    List<Object[]> countFollowingInRange(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    @Query("SELECT f.following.id FROM Follow f WHERE f.follower.id = :followerId AND f.following.id IN :userIds")
+    List<Long> findFollowingIdsAmong(@Param("followerId") Long followerId, @Param("userIds") Collection<Long> userIds);
+
     boolean existsByFollowerIdAndFollowingId(Long followerId, Long followingId);
 }
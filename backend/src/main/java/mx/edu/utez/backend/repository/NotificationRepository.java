@@ -11,9 +11,17 @@ import org.springframework.stereotype.Repository;
 
 public interface NotificationRepository extends JpaRepository<Notification, Long> {
     
-    Page<Notification> findByUserIdOrderByCreatedAtDesc(Long userId, Pageable pageable);
+    // Las notificaciones agrupadas suben con cada actividad nueva; las de chirps borrados se ocultan
+    // (la subconsulta sobre Chirp ya excluye los borrados por su @SQLRestriction)
+    @Query("SELECT n FROM Notification n WHERE n.user.id = :userId "
+            + "AND (n.chirp.id IS NULL OR EXISTS (SELECT 1 FROM Chirp c WHERE c.id = n.chirp.id)) "
+            + "ORDER BY COALESCE(n.lastActivityAt, n.createdAt) DESC, n.id DESC")
+    Page<Notification> findGroupedByUserId(@Param("userId") Long userId, Pageable pageable);
     
-    long countByUserIdAndIsReadFalse(Long userId);
+    // Mismo filtro que la lista: el contador no incluye notificaciones que no se muestran
+    @Query("SELECT COUNT(n) FROM Notification n WHERE n.user.id = :userId AND n.isRead = false "
+            + "AND (n.chirp.id IS NULL OR EXISTS (SELECT 1 FROM Chirp c WHERE c.id = n.chirp.id))")
+    long countByUserIdAndIsReadFalse(@Param("userId") Long userId);
     
     @Modifying
     @Query("UPDATE Notification n SET n.isRead = true WHERE n.user.id = :userId")
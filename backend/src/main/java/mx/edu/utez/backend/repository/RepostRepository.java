@@ -3,10 +3,14 @@ package mx.edu.utez.backend.repository;
 import mx.edu.utez.backend.model.Repost;
 import mx.edu.utez.backend.model.RepostId;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -16,6 +20,38 @@ public interface RepostRepository extends JpaRepository<Repost, RepostId> {
     Optional<Repost> findByUserIdAndChirpId(@Param("userId") Long userId, @Param("chirpId") Long chirpId);
 
     boolean existsByUserIdAndChirpId(Long userId, Long chirpId);
+
+    @Query("SELECT r.chirp.id FROM Repost r WHERE r.user.id = :userId AND r.chirp.id IN :chirpIds")
+    List<Long> findRepostedChirpIds(@Param("userId") Long userId, @Param("chirpIds") Collection<Long> chirpIds);
     
     long countByChirpId(Long chirpId);
+
+    // Cada fila es [chirpId, total] para los chirps con id en (fromId, toId]
+    @Query(value = """
+            SELECT chirp_id, COUNT(*) FROM reposts
+            WHERE chirp_id > :fromId AND chirp_id <= :toId GROUP BY chirp_id
+            """, nativeQuery = true)
+    List<Object[]> countInRange(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    // Inserta el repost solo si el chirp existe y no estaba ya (PK user_id, chirp_id); devuelve las filas afectadas
+    @Modifying
+    @Query(value = """
+            INSERT IGNORE INTO reposts (user_id, chirp_id, created_at)
+            SELECT :userId, c.id, :createdAt FROM chirps c WHERE c.id = :chirpId AND c.deleted = false
+            """, nativeQuery = true)
+    int insertIfAbsent(@Param("userId") Long userId, @Param("chirpId") Long chirpId,
+            @Param("createdAt") LocalDateTime createdAt);
+
+    // Bloquea las filas existentes del usuario para que el lote de interacciones sepa exactamente cuáles borra
+    @Query(value = "SELECT chirp_id FROM reposts WHERE user_id = :userId AND chirp_id IN :chirpIds FOR UPDATE",
+            nativeQuery = true)
+    List<Long> lockChirpIds(@Param("userId") Long userId, @Param("chirpIds") Collection<Long> chirpIds);
+
+    @Modifying
+    @Query(value = "DELETE FROM reposts WHERE user_id = :userId AND chirp_id IN :chirpIds", nativeQuery = true)
+    int deleteByUserIdAndChirpIds(@Param("userId") Long userId, @Param("chirpIds") Collection<Long> chirpIds);
+
+    @Modifying
+    @Query(value = "DELETE FROM reposts WHERE user_id = :userId AND chirp_id = :chirpId", nativeQuery = true)
+    int deleteByUserIdAndChirpId(@Param("userId") Long userId, @Param("chirpId") Long chirpId);
 }
@@ -0,0 +1,226 @@
+package mx.edu.utez.backend.repository;
+
+import mx.edu.utez.backend.model.TimelineEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface TimelineRepository extends JpaRepository<TimelineEntry, Long> {
+
+    @Query(value = """
+            SELECT
+                c.id as id,
+                c.content as content,
+                c.created_at as createdAt,
+                c.likes_count as likesCount,
+                c.replies_count as repliesCount,
+                c.reposts_count as repostsCount,
+                c.reply_to_id as replyToId,
+                c.latitude as latitude,
+                c.longitude as longitude,
+                c.city as city,
+                c.country as country,
+                u.id as authorId,
+                u.username as authorUsername,
+                u.display_name as authorDisplayName,
+                u.profile_image_url as authorProfileImageUrl,
+                r_user.id as reposterId,
+                r_user.username as reposterUsername,
+                r_user.display_name as reposterDisplayName,
+                t.sort_ts as sortDate,
+                t.id as entryId
+            FROM home_timeline t
+            JOIN chirps c ON t.chirp_id = c.id
+            JOIN users u ON t.author_id = u.id
+            LEFT JOIN users r_user ON t.reposter_id = r_user.id
+            WHERE t.owner_id = :ownerId AND c.deleted = false
+            ORDER BY t.sort_ts DESC, t.id DESC
+            """, nativeQuery = true)
+    List<FeedItemProjection> findFeedPage(@Param("ownerId") Long ownerId, Pageable pageable);
+
+    // Paginación por keyset: el costo es el mismo sin importar qué tan profundo se navegue
+    @Query(value = """
+            SELECT
+                c.id as id,
+                c.content as content,
+                c.created_at as createdAt,
+                c.likes_count as likesCount,
+                c.replies_count as repliesCount,
+                c.reposts_count as repostsCount,
+                c.reply_to_id as replyToId,
+                c.latitude as latitude,
+                c.longitude as longitude,
+                c.city as city,
+                c.country as country,
+                u.id as authorId,
+                u.username as authorUsername,
+                u.display_name as authorDisplayName,
+                u.profile_image_url as authorProfileImageUrl,
+                r_user.id as reposterId,
+                r_user.username as reposterUsername,
+                r_user.display_name as reposterDisplayName,
+                t.sort_ts as sortDate,
+                t.id as entryId
+            FROM home_timeline t
+            JOIN chirps c ON t.chirp_id = c.id
+            JOIN users u ON t.author_id = u.id
+            LEFT JOIN users r_user ON t.reposter_id = r_user.id
+            WHERE t.owner_id = :ownerId AND c.deleted = false
+              AND (t.sort_ts < :beforeTs OR (t.sort_ts = :beforeTs AND t.id < :beforeId))
+            ORDER BY t.sort_ts DESC, t.id DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<FeedItemProjection> findFeedPageBefore(@Param("ownerId") Long ownerId,
+            @Param("beforeTs") LocalDateTime beforeTs, @Param("beforeId") Long beforeId,
+            @Param("limit") int limit);
+
+    // Fan-out de un chirp original: el autor y todos sus seguidores
+    @Modifying
+    @Query(value = """
+            INSERT IGNORE INTO home_timeline (owner_id, chirp_id, author_id, reposter_id, sort_ts)
+            SELECT f.follower_id, :chirpId, :authorId, NULL, :sortTs
+            FROM follows f WHERE f.following_id = :authorId
+            UNION ALL
+            SELECT :authorId, :chirpId, :authorId, NULL, :sortTs
+            """, nativeQuery = true)
+    int fanOutChirp(@Param("chirpId") Long chirpId, @Param("authorId") Long authorId,
+            @Param("sortTs") LocalDateTime sortTs);
+
+    // Fan-out de varios reposts del mismo usuario en un solo INSERT: él y todos sus seguidores
+    @Modifying
+    @Query(value = """
+            INSERT IGNORE INTO home_timeline (owner_id, chirp_id, author_id, reposter_id, sort_ts)
+            SELECT f.follower_id, c.id, c.author_id, :reposterId, :sortTs
+            FROM follows f CROSS JOIN chirps c
+            WHERE f.following_id = :reposterId AND c.id IN :chirpIds
+            UNION ALL
+            SELECT :reposterId, c.id, c.author_id, :reposterId, :sortTs
+            FROM chirps c WHERE c.id IN :chirpIds
+            """, nativeQuery = true)
+    int fanOutReposts(@Param("chirpIds") Collection<Long> chirpIds, @Param("reposterId") Long reposterId,
+            @Param("sortTs") LocalDateTime sortTs);
+
+    // Chirps y reposts recientes de un usuario: [chirp_id, author_id, reposter_id, sort_ts]
+    @Query(value = """
+            SELECT feed.chirp_id, feed.author_id, feed.reposter_id, feed.sort_ts FROM (
+                (SELECT c.id as chirp_id, c.author_id as author_id, NULL as reposter_id, c.created_at as sort_ts
+                FROM chirps c
+                WHERE c.author_id = :userId AND c.reply_to_id IS NULL AND c.deleted = false
+                ORDER BY c.created_at DESC LIMIT :limit)
+                UNION ALL
+                (SELECT r.chirp_id, c.author_id, r.user_id, r.created_at
+                FROM reposts r
+                JOIN chirps c ON r.chirp_id = c.id
+                WHERE r.user_id = :userId AND c.deleted = false
+                ORDER BY r.created_at DESC LIMIT :limit)
+            ) AS feed
+            ORDER BY feed.sort_ts DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<Object[]> findRecentEntriesByUser(@Param("userId") Long userId, @Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "DELETE FROM home_timeline WHERE chirp_id = :chirpId AND reposter_id = :reposterId", nativeQuery = true)
+    int deleteRepost(@Param("chirpId") Long chirpId, @Param("reposterId") Long reposterId);
+
+    @Modifying
+    @Query(value = "DELETE FROM home_timeline WHERE chirp_id IN :chirpIds AND reposter_id = :reposterId",
+            nativeQuery = true)
+    int deleteReposts(@Param("chirpIds") Collection<Long> chirpIds, @Param("reposterId") Long reposterId);
+
+    // Al seguir a alguien se copian sus chirps y reposts más recientes al timeline
+    @Modifying
+    @Query(value = """
+            INSERT IGNORE INTO home_timeline (owner_id, chirp_id, author_id, reposter_id, sort_ts)
+            SELECT :ownerId, feed.chirp_id, feed.author_id, feed.reposter_id, feed.sort_ts FROM (
+                (SELECT c.id as chirp_id, c.author_id as author_id, NULL as reposter_id, c.created_at as sort_ts
+                FROM chirps c
+                WHERE c.author_id = :followedId AND c.reply_to_id IS NULL AND c.deleted = false
+                ORDER BY c.created_at DESC LIMIT :limit)
+                UNION ALL
+                (SELECT r.chirp_id, c.author_id, r.user_id, r.created_at
+                FROM reposts r
+                JOIN chirps c ON r.chirp_id = c.id
+                WHERE r.user_id = :followedId AND c.deleted = false
+                ORDER BY r.created_at DESC LIMIT :limit)
+            ) AS feed
+            """, nativeQuery = true)
+    int backfillFromUser(@Param("ownerId") Long ownerId, @Param("followedId") Long followedId,
+            @Param("limit") int limit);
+
+    // Al dejar de seguir se quitan sus chirps y reposts (no los reposts propios de sus chirps)
+    @Modifying
+    @Query(value = """
+            DELETE FROM home_timeline
+            WHERE owner_id = :ownerId
+              AND ((author_id = :followedId AND reposter_id IS NULL) OR reposter_id = :followedId)
+            """, nativeQuery = true)
+    int removeUserFromTimeline(@Param("ownerId") Long ownerId, @Param("followedId") Long followedId);
+
+    // Dejar de seguir en lote: una sola pasada por el timeline del dueño
+    @Modifying
+    @Query(value = """
+            DELETE FROM home_timeline
+            WHERE owner_id = :ownerId
+              AND ((author_id IN :followedIds AND reposter_id IS NULL) OR reposter_id IN :followedIds)
+            """, nativeQuery = true)
+    int removeUsersFromTimeline(@Param("ownerId") Long ownerId, @Param("followedIds") Collection<Long> followedIds);
+
+    // Rebanada de chirps originales de un autor anteriores a (beforeTs, beforeId)
+    @Query(value = """
+            SELECT c.id, c.author_id, NULL, c.created_at
+            FROM chirps c
+            WHERE c.author_id = :authorId AND c.reply_to_id IS NULL AND c.deleted = false
+              AND (c.created_at < :beforeTs OR (c.created_at = :beforeTs AND c.id < :beforeId))
+            ORDER BY c.created_at DESC, c.id DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<Object[]> findAuthorSlice(@Param("authorId") Long authorId, @Param("beforeTs") LocalDateTime beforeTs,
+            @Param("beforeId") Long beforeId, @Param("limit") int limit);
+
+    // Primera rebanada de chirps originales de varios autores en una sola consulta
+    @Query(value = """
+            SELECT s.id, s.author_id, NULL, s.created_at FROM (
+                SELECT c.id, c.author_id, c.created_at,
+                    ROW_NUMBER() OVER (PARTITION BY c.author_id ORDER BY c.created_at DESC, c.id DESC) AS rn
+                FROM chirps c
+                WHERE c.author_id IN :authorIds AND c.reply_to_id IS NULL AND c.deleted = false
+            ) s
+            WHERE s.rn <= :limit
+            """, nativeQuery = true)
+    List<Object[]> findFirstAuthorSlices(@Param("authorIds") Collection<Long> authorIds, @Param("limit") int limit);
+
+    // Primera rebanada de reposts de varios usuarios en una sola consulta
+    @Query(value = """
+            SELECT s.chirp_id, s.author_id, s.user_id, s.created_at FROM (
+                SELECT r.chirp_id, c.author_id, r.user_id, r.created_at,
+                    ROW_NUMBER() OVER (PARTITION BY r.user_id ORDER BY r.created_at DESC, r.chirp_id DESC) AS rn
+                FROM reposts r
+                JOIN chirps c ON r.chirp_id = c.id
+                WHERE r.user_id IN :userIds AND c.deleted = false
+            ) s
+            WHERE s.rn <= :limit
+            """, nativeQuery = true)
+    List<Object[]> findFirstReposterSlices(@Param("userIds") Collection<Long> userIds, @Param("limit") int limit);
+
+    // Rebanada de reposts de un usuario anteriores a (beforeTs, beforeChirpId)
+    @Query(value = """
+            SELECT r.chirp_id, c.author_id, r.user_id, r.created_at
+            FROM reposts r
+            JOIN chirps c ON r.chirp_id = c.id
+            WHERE r.user_id = :userId AND c.deleted = false
+              AND (r.created_at < :beforeTs OR (r.created_at = :beforeTs AND r.chirp_id < :beforeChirpId))
+            ORDER BY r.created_at DESC, r.chirp_id DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<Object[]> findReposterSlice(@Param("userId") Long userId, @Param("beforeTs") LocalDateTime beforeTs,
+            @Param("beforeChirpId") Long beforeChirpId, @Param("limit") int limit);
+}
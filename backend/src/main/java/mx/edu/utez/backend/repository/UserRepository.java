@@ -1,11 +1,16 @@
 package mx.edu.utez.backend.repository;
 
 import mx.edu.utez.backend.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,5 +26,58 @@ public interface UserRepository extends JpaRepository<User, Long> {
     boolean existsByUsername(String username);
     
     @Query("SELECT u FROM User u WHERE LOWER(u.username) LIKE LOWER(CONCAT('%', :query, '%')) OR LOWER(u.displayName) LIKE LOWER(CONCAT('%', :query, '%'))")
-    List<User> searchUsers(@Param("query") String query);
+    List<User> searchUsers(@Param("query") String query, Pageable pageable);
+
+    @Query("SELECT u.id FROM User u WHERE u.followersCount >= :threshold")
+    List<Long> findIdsWithFollowersAtLeast(@Param("threshold") int threshold);
+
+    @Query("SELECT u.id FROM User u WHERE u.id IN :userIds AND u.deletionRequestedAt IS NULL")
+    List<Long> findExistingIds(@Param("userIds") Collection<Long> userIds);
+
+    // Menciones: la collation de users.username no distingue mayúsculas, así "@Juan" encuentra a "juan"
+    @Query("SELECT u.id FROM User u WHERE u.username IN :usernames AND u.deletionRequestedAt IS NULL")
+    List<Long> findIdsByUsernames(@Param("usernames") Collection<String> usernames);
+
+    // Para resolver menciones de varios chirps a la vez: cada fila es {id, username}
+    @Query("SELECT u.id, u.username FROM User u WHERE u.username IN :usernames AND u.deletionRequestedAt IS NULL")
+    List<Object[]> findIdsAndUsernamesByUsernames(@Param("usernames") Collection<String> usernames);
+
+    @Query("SELECT u.followersCount FROM User u WHERE u.id = :userId")
+    Optional<Integer> findFollowersCount(@Param("userId") Long userId);
+
+    @Query("SELECT u.followingCount FROM User u WHERE u.id = :userId")
+    Optional<Integer> findFollowingCount(@Param("userId") Long userId);
+
+    // Ajuste agrupado de seguidores para todos los usuarios de un lote de follows
+    @Modifying
+    @Query(value = "UPDATE users SET followers_count = GREATEST(0, followers_count + :delta) WHERE id IN :userIds",
+            nativeQuery = true)
+    int adjustFollowersCount(@Param("userIds") Collection<Long> userIds, @Param("delta") int delta);
+
+    @Modifying
+    @Query(value = "UPDATE users SET following_count = GREATEST(0, following_count + :delta) WHERE id = :userId",
+            nativeQuery = true)
+    int adjustFollowingCount(@Param("userId") Long userId, @Param("delta") int delta);
+
+    @Modifying
+    @Query("UPDATE User u SET u.deletionRequestedAt = :requestedAt, u.fcmToken = NULL "
+            + "WHERE u.id = :userId AND u.deletionRequestedAt IS NULL")
+    int markDeletionRequested(@Param("userId") Long userId, @Param("requestedAt") LocalDateTime requestedAt);
+
+    // Tramo de la reconciliación: cada fila es [id, seguidores, seguidos] con id > afterId
+    @Query(value = """
+            SELECT id, followers_count, following_count FROM users
+            WHERE id > :afterId ORDER BY id LIMIT :limit
+            """, nativeQuery = true)
+    List<Object[]> findCounterChunk(@Param("afterId") Long afterId, @Param("limit") int limit);
+
+    // Cada fila es [userId, fcmToken]; solo usuarios con token registrado
+    @Query("SELECT u.id, u.fcmToken FROM User u WHERE u.id IN :userIds AND u.fcmToken IS NOT NULL")
+    List<Object[]> findFcmTokens(@Param("userIds") Collection<Long> userIds);
+
+    // Borra el token solo si sigue siendo el mismo que falló
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.fcmToken = NULL WHERE u.id = :userId AND u.fcmToken = :token")
+    int clearFcmToken(@Param("userId") Long userId, @Param("token") String token);
 }
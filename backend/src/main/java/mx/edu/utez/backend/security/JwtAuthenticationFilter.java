@@ -55,7 +55,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
             User user = userRepository.findById(userId).orElse(null);
 
-            if (user != null && jwtUtil.validateToken(jwt, userIdStr)) {
+            // Las cuentas en proceso de borrado dejan de autenticarse
+            if (user != null && user.getDeletionRequestedAt() == null && jwtUtil.validateToken(jwt, userIdStr)) {
                 UsernamePasswordAuthenticationToken auth =
                         new UsernamePasswordAuthenticationToken(user, null, new ArrayList<>());
                 auth.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
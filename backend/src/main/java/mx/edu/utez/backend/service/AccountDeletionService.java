@@ -0,0 +1,464 @@
+package mx.edu.utez.backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import mx.edu.utez.backend.dto.response.AccountDeletionResponse;
+import mx.edu.utez.backend.exception.ResourceNotFoundException;
+import mx.edu.utez.backend.model.AccountDeletionJob;
+import mx.edu.utez.backend.model.AccountDeletionPhase;
+import mx.edu.utez.backend.model.User;
+import mx.edu.utez.backend.repository.AccountDeletionJobRepository;
+import mx.edu.utez.backend.repository.UserRepository;
+import mx.edu.utez.backend.util.TransactionHooks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Borrado de cuentas como máquina de estados reanudable. Cada fase recorre una
+ * tabla por keyset en lotes acotados; el borrado del lote, el ajuste agregado
+ * de los contadores afectados (un UPDATE ... WHERE id IN por lote) y el avance
+ * del cursor se confirman en la misma transacción. Los chirps del usuario se
+ * marcan como borrados en la primera fase y los elimina ChirpPurger; la fila
+ * del usuario se borra al final, cuando ya nada la referencia.
+ */
+@Service
+public class AccountDeletionService {
+
+    private static final Logger log = LoggerFactory.getLogger(AccountDeletionService.class);
+
+    private static final AccountDeletionPhase[] PHASES = AccountDeletionPhase.values();
+
+    // Resultados especiales de una fase: -1 terminó, WAIT debe esperar, RESTART vuelve a la primera fase
+    private static final long WAIT = -2;
+    private static final long RESTART = -3;
+
+    @Autowired
+    private AccountDeletionJobRepository jobRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private FollowGraphCache followGraphCache;
+
+    @Autowired
+    private HybridFeedService hybridFeedService;
+
+    @Autowired
+    private VersionStampService versionStampService;
+
+    @Autowired
+    private UserTypeaheadIndex userTypeaheadIndex;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${account-deletion.enabled:true}")
+    private boolean enabled;
+
+    @Value("${account-deletion.interval-ms:2000}")
+    private long intervalMs;
+
+    @Value("${account-deletion.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${account-deletion.batch-pause-ms:20}")
+    private long batchPauseMs;
+
+    @Value("${account-deletion.max-run-ms:10000}")
+    private long maxRunMs;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "account-deletion");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private TransactionTemplate transactionTemplate;
+    private volatile boolean stopping;
+
+    private Counter deletedRows;
+    private Counter completedJobs;
+    private Counter failedBatches;
+
+    @PostConstruct
+    public void initialize() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        deletedRows = meterRegistry.counter("account.deletion.rows");
+        completedJobs = meterRegistry.counter("account.deletion.completed");
+        failedBatches = meterRegistry.counter("account.deletion.failures");
+        if (enabled) {
+            executor.scheduleWithFixedDelay(this::runJobs, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stopping = true;
+        executor.shutdownNow();
+    }
+
+    /**
+     * Desactiva la cuenta de inmediato y encola su borrado. Si ya había uno en
+     * curso devuelve ese mismo trabajo.
+     */
+    @Transactional
+    public AccountDeletionResponse requestDeletion(User currentUser) {
+        AccountDeletionJob job = jobRepository.findByUserId(currentUser.getId()).orElse(null);
+        if (job == null) {
+            userRepository.markDeletionRequested(currentUser.getId(), LocalDateTime.now());
+            job = new AccountDeletionJob();
+            job.setId(UUID.randomUUID().toString());
+            job.setUserId(currentUser.getId());
+            job.setUpdatedAt(LocalDateTime.now());
+            job = jobRepository.saveAndFlush(job);
+            versionStampService.bumpProfile(currentUser.getId());
+            userTypeaheadIndex.remove(currentUser.getId());
+        }
+        return toResponse(job);
+    }
+
+    @Transactional(readOnly = true)
+    public AccountDeletionResponse getJob(String jobId) {
+        return jobRepository.findById(jobId)
+                .map(this::toResponse)
+                .orElseThrow(() -> new ResourceNotFoundException("Solicitud de borrado no encontrada"));
+    }
+
+    private void runJobs() {
+        long deadline = System.currentTimeMillis() + maxRunMs;
+        try {
+            for (AccountDeletionJob job : jobRepository.findByPhaseNotOrderByCreatedAtAsc(AccountDeletionPhase.DONE)) {
+                if (stopping || System.currentTimeMillis() > deadline) {
+                    return;
+                }
+                run(job.getId(), deadline);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.warn("Error al procesar borrados de cuentas", e);
+        }
+    }
+
+    private void run(String jobId, long deadline) throws InterruptedException {
+        while (!stopping && System.currentTimeMillis() <= deadline) {
+            Boolean progressed;
+            try {
+                progressed = transactionTemplate.execute(status -> step(jobId));
+            } catch (RuntimeException e) {
+                // El lote se revirtió junto con su checkpoint; se reintenta en la siguiente vuelta
+                failedBatches.increment();
+                recordError(jobId, e);
+                return;
+            }
+            if (!Boolean.TRUE.equals(progressed)) {
+                return;
+            }
+            if (batchPauseMs > 0) {
+                Thread.sleep(batchPauseMs);
+            }
+        }
+    }
+
+    // Ejecuta un lote de la fase actual; devuelve false si el trabajo terminó o debe esperar
+    private boolean step(String jobId) {
+        AccountDeletionJob job = jobRepository.findById(jobId).orElse(null);
+        if (job == null || job.getPhase() == AccountDeletionPhase.DONE) {
+            return false;
+        }
+        long next = switch (job.getPhase()) {
+            case CHIRPS -> softDeleteChirps(job);
+            case LIKES -> deleteLikes(job);
+            case REPOSTS -> deleteReposts(job);
+            case FOLLOWING -> deleteFollowing(job);
+            case FOLLOWERS -> deleteFollowers(job);
+            case NOTIFICATIONS -> deleteNotifications(job);
+            case TIMELINE -> deleteTimeline(job);
+            case MENTIONS -> deleteMentions(job);
+            case AWAIT_PURGE -> awaitPurge(job);
+            case USER -> deleteUser(job);
+            case DONE -> -1;
+        };
+        if (next == WAIT) {
+            return false;
+        }
+        if (next == RESTART) {
+            job.setPhase(PHASES[0]);
+            job.setCursorId(0);
+        } else if (next < 0) {
+            advance(job);
+        } else {
+            job.setCursorId(next);
+        }
+        job.setLastError(null);
+        job.setUpdatedAt(LocalDateTime.now());
+        jobRepository.save(job);
+        return job.getPhase() != AccountDeletionPhase.DONE;
+    }
+
+    private void advance(AccountDeletionJob job) {
+        AccountDeletionPhase next = PHASES[job.getPhase().ordinal() + 1];
+        job.setPhase(next);
+        job.setCursorId(0);
+        if (next == AccountDeletionPhase.DONE) {
+            job.setCompletedAt(LocalDateTime.now());
+            completedJobs.increment();
+            versionStampService.bumpAllTimelines();
+            log.info("Cuenta {} eliminada ({} filas)", job.getUserId(), job.getProcessedRows());
+        }
+    }
+
+    private long deleteLikes(AccountDeletionJob job) {
+        Long userId = job.getUserId();
+        long cursor = job.getCursorId();
+        List<Long> chirpIds = jdbcTemplate.queryForList(
+                "SELECT chirp_id FROM likes WHERE user_id = ? AND chirp_id > ? ORDER BY chirp_id LIMIT ?",
+                Long.class, userId, cursor, batchSize);
+        if (chirpIds.isEmpty()) {
+            return -1;
+        }
+        long last = chirpIds.get(chirpIds.size() - 1);
+        int deleted = jdbcTemplate.update(
+                "DELETE FROM likes WHERE user_id = ? AND chirp_id > ? AND chirp_id <= ?", userId, cursor, last);
+        namedJdbcTemplate.update(
+                "UPDATE chirps SET likes_count = GREATEST(0, likes_count - 1) WHERE id IN (:ids)", ids(chirpIds));
+        recordProgress(job, deleted);
+        return last;
+    }
+
+    private long deleteReposts(AccountDeletionJob job) {
+        Long userId = job.getUserId();
+        long cursor = job.getCursorId();
+        List<Long> chirpIds = jdbcTemplate.queryForList(
+                "SELECT chirp_id FROM reposts WHERE user_id = ? AND chirp_id > ? ORDER BY chirp_id LIMIT ?",
+                Long.class, userId, cursor, batchSize);
+        if (chirpIds.isEmpty()) {
+            return -1;
+        }
+        long last = chirpIds.get(chirpIds.size() - 1);
+        int deleted = jdbcTemplate.update(
+                "DELETE FROM reposts WHERE user_id = ? AND chirp_id > ? AND chirp_id <= ?", userId, cursor, last);
+        MapSqlParameterSource params = ids(chirpIds).addValue("userId", userId);
+        namedJdbcTemplate.update(
+                "UPDATE chirps SET reposts_count = GREATEST(0, reposts_count - 1) WHERE id IN (:ids)", params);
+        // Sus reposts en los timelines de sus seguidores
+        deleted += namedJdbcTemplate.update(
+                "DELETE FROM home_timeline WHERE chirp_id IN (:ids) AND reposter_id = :userId", params);
+        TransactionHooks.afterCommit(() -> chirpIds.forEach(id -> hybridFeedService.removeRepost(id, userId)));
+        recordProgress(job, deleted);
+        return last;
+    }
+
+    private long deleteFollowing(AccountDeletionJob job) {
+        Long userId = job.getUserId();
+        long cursor = job.getCursorId();
+        List<Long> followedIds = jdbcTemplate.queryForList(
+                "SELECT following_id FROM follows WHERE follower_id = ? AND following_id > ? "
+                        + "ORDER BY following_id LIMIT ?",
+                Long.class, userId, cursor, batchSize);
+        if (followedIds.isEmpty()) {
+            return -1;
+        }
+        long last = followedIds.get(followedIds.size() - 1);
+        int deleted = jdbcTemplate.update(
+                "DELETE FROM follows WHERE follower_id = ? AND following_id > ? AND following_id <= ?",
+                userId, cursor, last);
+        namedJdbcTemplate.update(
+                "UPDATE users SET followers_count = GREATEST(0, followers_count - 1) WHERE id IN (:ids)",
+                ids(followedIds));
+        for (Long followedId : followedIds) {
+            followGraphCache.onUnfollow(userId, followedId);
+            versionStampService.bumpProfile(followedId);
+        }
+        recordProgress(job, deleted);
+        return last;
+    }
+
+    private long deleteFollowers(AccountDeletionJob job) {
+        Long userId = job.getUserId();
+        long cursor = job.getCursorId();
+        List<Long> followerIds = jdbcTemplate.queryForList(
+                "SELECT follower_id FROM follows WHERE following_id = ? AND follower_id > ? "
+                        + "ORDER BY follower_id LIMIT ?",
+                Long.class, userId, cursor, batchSize);
+        if (followerIds.isEmpty()) {
+            return -1;
+        }
+        long last = followerIds.get(followerIds.size() - 1);
+        int deleted = jdbcTemplate.update(
+                "DELETE FROM follows WHERE following_id = ? AND follower_id > ? AND follower_id <= ?",
+                userId, cursor, last);
+        namedJdbcTemplate.update(
+                "UPDATE users SET following_count = GREATEST(0, following_count - 1) WHERE id IN (:ids)",
+                ids(followerIds));
+        for (Long followerId : followerIds) {
+            followGraphCache.onUnfollow(followerId, userId);
+            versionStampService.bumpProfile(followerId);
+        }
+        recordProgress(job, deleted);
+        return last;
+    }
+
+    // Notificaciones recibidas y las que generó para otros usuarios
+    private long deleteNotifications(AccountDeletionJob job) {
+        Long userId = job.getUserId();
+        long cursor = job.getCursorId();
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT id, user_id FROM notifications WHERE (user_id = ? OR actor_id = ?) AND id > ? "
+                        + "ORDER BY id LIMIT ?",
+                userId, userId, cursor, batchSize);
+        if (rows.isEmpty()) {
+            return -1;
+        }
+        List<Long> notificationIds = new ArrayList<>(rows.size());
+        Set<Long> recipients = new HashSet<>();
+        for (Map<String, Object> row : rows) {
+            notificationIds.add(((Number) row.get("id")).longValue());
+            recipients.add(((Number) row.get("user_id")).longValue());
+        }
+        int deleted = namedJdbcTemplate.update("DELETE FROM notifications WHERE id IN (:ids)", ids(notificationIds));
+        recipients.forEach(versionStampService::bumpNotifications);
+        recordProgress(job, deleted);
+        return notificationIds.get(notificationIds.size() - 1);
+    }
+
+    private long deleteTimeline(AccountDeletionJob job) {
+        Long userId = job.getUserId();
+        long cursor = job.getCursorId();
+        List<Long> entryIds = jdbcTemplate.queryForList(
+                "SELECT id FROM home_timeline WHERE owner_id = ? AND id > ? ORDER BY id LIMIT ?",
+                Long.class, userId, cursor, batchSize);
+        if (entryIds.isEmpty()) {
+            return -1;
+        }
+        int deleted = namedJdbcTemplate.update("DELETE FROM home_timeline WHERE id IN (:ids)", ids(entryIds));
+        recordProgress(job, deleted);
+        return entryIds.get(entryIds.size() - 1);
+    }
+
+    // Menciones que recibió en chirps de otros; sin cursor porque el índice es (user_id, created_at)
+    private long deleteMentions(AccountDeletionJob job) {
+        int deleted = jdbcTemplate.update("DELETE FROM chirp_mentions WHERE user_id = ? LIMIT ?",
+                job.getUserId(), batchSize);
+        recordProgress(job, deleted);
+        return deleted < batchSize ? -1 : job.getCursorId() + deleted;
+    }
+
+    // Borrado lógico de sus chirps; los contadores de respuestas de los padres se ajustan agrupados
+    private long softDeleteChirps(AccountDeletionJob job) {
+        Long userId = job.getUserId();
+        long cursor = job.getCursorId();
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT id, reply_to_id FROM chirps WHERE author_id = ? AND id > ? AND deleted = false "
+                        + "ORDER BY id LIMIT ?",
+                userId, cursor, batchSize);
+        if (rows.isEmpty()) {
+            return -1;
+        }
+        List<Long> chirpIds = new ArrayList<>(rows.size());
+        Map<Long, Integer> repliesByParent = new HashMap<>();
+        for (Map<String, Object> row : rows) {
+            chirpIds.add(((Number) row.get("id")).longValue());
+            Object parentId = row.get("reply_to_id");
+            if (parentId != null) {
+                repliesByParent.merge(((Number) parentId).longValue(), 1, Integer::sum);
+            }
+        }
+        int marked = namedJdbcTemplate.update(
+                "UPDATE chirps SET deleted = true, deleted_at = :deletedAt WHERE id IN (:ids)",
+                ids(chirpIds).addValue("deletedAt", Timestamp.valueOf(LocalDateTime.now())));
+        if (!repliesByParent.isEmpty()) {
+            List<Object[]> decrements = new ArrayList<>(repliesByParent.size());
+            repliesByParent.forEach((parentId, count) -> decrements.add(new Object[] { count, parentId }));
+            jdbcTemplate.batchUpdate(
+                    "UPDATE chirps SET replies_count = GREATEST(0, replies_count - ?) WHERE id = ?", decrements);
+        }
+        TransactionHooks.afterCommit(() -> chirpIds.forEach(hybridFeedService::removeChirp));
+        recordProgress(job, marked);
+        return chirpIds.get(chirpIds.size() - 1);
+    }
+
+    // ChirpPurger elimina los chirps marcados; la fila del usuario no puede borrarse antes
+    private long awaitPurge(AccountDeletionJob job) {
+        Long live = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM chirps WHERE author_id = ? AND deleted = false", Long.class, job.getUserId());
+        if (live != null && live > 0) {
+            // Trabajos iniciados cuando CHIRPS iba al final: sus chirps aún no se marcaron
+            log.info("Cuenta {} con chirps sin marcar; se repite el borrado por fases", job.getUserId());
+            return RESTART;
+        }
+        Long remaining = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM chirps WHERE author_id = ?", Long.class, job.getUserId());
+        return remaining != null && remaining > 0 ? WAIT : -1;
+    }
+
+    private long deleteUser(AccountDeletionJob job) {
+        try {
+            jdbcTemplate.update("DELETE FROM users WHERE id = ?", job.getUserId());
+        } catch (DataIntegrityViolationException e) {
+            // Entraron filas nuevas mientras se borraba (ej. un like en vuelo): se repasa desde el inicio
+            log.info("Cuenta {} aún referenciada; se repite el borrado por fases", job.getUserId());
+            return RESTART;
+        }
+        job.setProcessedRows(job.getProcessedRows() + 1);
+        return -1;
+    }
+
+    private void recordProgress(AccountDeletionJob job, int rows) {
+        deletedRows.increment(rows);
+        job.setProcessedRows(job.getProcessedRows() + rows);
+    }
+
+    private void recordError(String jobId, RuntimeException error) {
+        log.warn("Lote de borrado de cuenta fallido (trabajo {})", jobId, error);
+        String message = String.valueOf(error.getMessage());
+        jdbcTemplate.update("UPDATE account_deletion_jobs SET last_error = ?, updated_at = ? WHERE id = ?",
+                message.length() > 500 ? message.substring(0, 500) : message,
+                Timestamp.valueOf(LocalDateTime.now()), jobId);
+    }
+
+    private static MapSqlParameterSource ids(List<Long> ids) {
+        return new MapSqlParameterSource("ids", ids);
+    }
+
+    private AccountDeletionResponse toResponse(AccountDeletionJob job) {
+        int progress = job.getPhase().ordinal() * 100 / AccountDeletionPhase.DONE.ordinal();
+        return new AccountDeletionResponse(job.getId(), job.getPhase().name(), progress, job.getProcessedRows(),
+                job.getPhase() == AccountDeletionPhase.DONE, job.getCreatedAt(), job.getCompletedAt());
+    }
+}
@@ -30,6 +30,9 @@ public class AuthService {
     @Autowired
     private DTOMapper dtoMapper;
     
+    @Autowired
+    private UserTypeaheadIndex userTypeaheadIndex;
+    
     @Transactional
     public AuthResponse register(RegisterRequest request) {
         // Validar que el username no exista
@@ -50,6 +53,7 @@ public class AuthService {
         user.setDisplayName(request.getUsername()); // Por defecto, displayName = username
         
         user = userRepository.save(user);
+        userTypeaheadIndex.upsert(user);
         
         // Generar token JWT
         String token = jwtUtil.generateToken(user);
@@ -63,6 +67,7 @@ public class AuthService {
     public AuthResponse login(LoginRequest request) {
         // Buscar usuario por email
         User user = userRepository.findByEmail(request.getEmail())
+                .filter(found -> found.getDeletionRequestedAt() == null)
                 .orElseThrow(() -> new UnauthorizedException("Email o contraseña incorrectos"));
         
         // Verificar password
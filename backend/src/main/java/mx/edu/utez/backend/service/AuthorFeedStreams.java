@@ -0,0 +1,110 @@
+package mx.edu.utez.backend.service;
+
+import mx.edu.utez.backend.repository.TimelineRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Crea secuencias por autor que leen rebanadas cortas sobre los índices
+ * (author_id, created_at) de chirps y (user_id, created_at) de reposts. Para
+ * listas grandes de autores la primera rebanada de todos se trae en lote;
+ * solo los autores que el merge consume a fondo leen rebanadas individuales.
+ */
+@Component
+public class AuthorFeedStreams {
+
+    // Límite superior para la primera rebanada (el máximo de DATETIME en MySQL)
+    private static final LocalDateTime END_OF_TIME = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+    // Autores por consulta al traer las primeras rebanadas
+    private static final int FIRST_SLICE_BATCH = 500;
+
+    @Autowired
+    private TimelineRepository timelineRepository;
+
+    public FeedStream chirpsOf(Long authorId, int sliceSize) {
+        return chirpsOf(authorId, sliceSize, null);
+    }
+
+    public FeedStream repostsOf(Long userId, int sliceSize) {
+        return repostsOf(userId, sliceSize, null);
+    }
+
+    // Chirps y reposts de un usuario anteriores a (beforeTs, beforeChirpId), en ese orden
+    public List<FeedStream> entriesBefore(Long userId, LocalDateTime beforeTs, long beforeChirpId, int sliceSize) {
+        return List.of(
+                FeedStream.slices((last, limit) -> toEntries(timelineRepository.findAuthorSlice(userId,
+                        last != null ? last.getSortTs() : beforeTs,
+                        last != null ? last.getChirpId() : beforeChirpId,
+                        limit)), sliceSize),
+                FeedStream.slices((last, limit) -> toEntries(timelineRepository.findReposterSlice(userId,
+                        last != null ? last.getSortTs() : beforeTs,
+                        last != null ? last.getChirpId() : beforeChirpId,
+                        limit)), sliceSize));
+    }
+
+    /**
+     * Chirps y reposts de cada usuario de la lista. Las primeras rebanadas se
+     * leen con pocas consultas IN (...) en lugar de dos por usuario; las
+     * secuencias sin entradas ya no vuelven a consultar la base de datos.
+     */
+    public List<FeedStream> streamsFor(long[] userIds, int sliceSize) {
+        Map<Long, List<FeedEntry>> firstChirps = new HashMap<>();
+        Map<Long, List<FeedEntry>> firstReposts = new HashMap<>();
+        List<Long> ids = Arrays.stream(userIds).boxed().collect(Collectors.toList());
+        for (int from = 0; from < ids.size(); from += FIRST_SLICE_BATCH) {
+            List<Long> batch = ids.subList(from, Math.min(ids.size(), from + FIRST_SLICE_BATCH));
+            firstChirps.putAll(groupBy(timelineRepository.findFirstAuthorSlices(batch, sliceSize),
+                    FeedEntry::getAuthorId));
+            firstReposts.putAll(groupBy(timelineRepository.findFirstReposterSlices(batch, sliceSize),
+                    FeedEntry::getReposterId));
+        }
+
+        List<FeedStream> streams = new ArrayList<>(userIds.length * 2);
+        for (long userId : userIds) {
+            streams.add(chirpsOf(userId, sliceSize, firstChirps.getOrDefault(userId, List.of())));
+            streams.add(repostsOf(userId, sliceSize, firstReposts.getOrDefault(userId, List.of())));
+        }
+        return streams;
+    }
+
+    // firstSlice: primera rebanada ya leída, o null para consultarla al primer peek
+    private FeedStream chirpsOf(Long authorId, int sliceSize, List<FeedEntry> firstSlice) {
+        return FeedStream.slices((last, limit) -> last == null && firstSlice != null
+                ? firstSlice
+                : toEntries(timelineRepository.findAuthorSlice(authorId,
+                        last != null ? last.getSortTs() : END_OF_TIME,
+                        last != null ? last.getChirpId() : Long.MAX_VALUE,
+                        limit)), sliceSize);
+    }
+
+    private FeedStream repostsOf(Long userId, int sliceSize, List<FeedEntry> firstSlice) {
+        return FeedStream.slices((last, limit) -> last == null && firstSlice != null
+                ? firstSlice
+                : toEntries(timelineRepository.findReposterSlice(userId,
+                        last != null ? last.getSortTs() : END_OF_TIME,
+                        last != null ? last.getChirpId() : Long.MAX_VALUE,
+                        limit)), sliceSize);
+    }
+
+    // Agrupa por usuario en el mismo orden que las rebanadas individuales
+    private static Map<Long, List<FeedEntry>> groupBy(List<Object[]> rows, Function<FeedEntry, Long> key) {
+        Map<Long, List<FeedEntry>> grouped = toEntries(rows).stream()
+                .collect(Collectors.groupingBy(key));
+        grouped.values().forEach(entries -> entries.sort(FeedEntry.NEWEST_FIRST));
+        return grouped;
+    }
+
+    private static List<FeedEntry> toEntries(List<Object[]> rows) {
+        return rows.stream().map(FeedEntry::fromRow).collect(Collectors.toList());
+    }
+}
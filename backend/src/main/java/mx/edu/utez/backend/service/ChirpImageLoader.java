@@ -0,0 +1,35 @@
+package mx.edu.utez.backend.service;
+
+import mx.edu.utez.backend.repository.ChirpRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Carga las imágenes de todos los chirps de una página con una sola consulta
+ * sobre chirp_images.
+ */
+@Component
+public class ChirpImageLoader {
+
+    @Autowired
+    private ChirpRepository chirpRepository;
+
+    public Map<Long, List<String>> load(Collection<Long> chirpIds) {
+        if (chirpIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<Long, List<String>> imageUrls = new HashMap<>();
+        for (Object[] row : chirpRepository.findImageUrlsByChirpIds(new HashSet<>(chirpIds))) {
+            imageUrls.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((String) row[1]);
+        }
+        return imageUrls;
+    }
+}
@@ -0,0 +1,206 @@
+package mx.edu.utez.backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Elimina físicamente los chirps con borrado lógico. Cada dependencia (likes,
+ * reposts, notificaciones, entradas de timeline, imágenes, hashtags y
+ * menciones) se borra con DELETE ... LIMIT en tramos cortos y autocommit, así
+ * un chirp viral no retiene bloqueos ni carga millones de entidades en
+ * memoria. Cada vuelta primero marca como borradas las respuestas de los
+ * chirps borrados y luego purga solo hojas (chirps sin respuestas), así un
+ * hilo se elimina de las respuestas hacia la raíz y los padres nunca ocupan
+ * el lote esperando a sus respuestas.
+ */
+@Service
+public class ChirpPurger {
+
+    private static final Logger log = LoggerFactory.getLogger(ChirpPurger.class);
+
+    // Borrados con respuestas aún vivas: sus respuestas se marcan en cascada
+    private static final String FIND_WITH_LIVE_REPLIES_SQL =
+            "SELECT c.id FROM chirps c WHERE c.deleted = true"
+                    + " AND EXISTS (SELECT 1 FROM chirps r WHERE r.reply_to_id = c.id AND r.deleted = false)"
+                    + " ORDER BY c.id LIMIT ?";
+
+    // Solo hojas: un padre se purga cuando ya se fueron todas sus respuestas
+    private static final String FIND_DELETED_LEAVES_SQL =
+            "SELECT c.id FROM chirps c WHERE c.deleted = true"
+                    + " AND NOT EXISTS (SELECT 1 FROM chirps r WHERE r.reply_to_id = c.id)"
+                    + " ORDER BY c.id LIMIT ?";
+
+    // Tablas dependientes y su columna hacia chirps, en orden de borrado
+    private static final Map<String, String> CHILD_TABLES = new LinkedHashMap<>();
+
+    static {
+        CHILD_TABLES.put("likes", "chirp_id");
+        CHILD_TABLES.put("reposts", "chirp_id");
+        CHILD_TABLES.put("notifications", "chirp_id");
+        CHILD_TABLES.put("home_timeline", "chirp_id");
+        CHILD_TABLES.put("chirp_images", "chirp_id");
+        CHILD_TABLES.put("chirp_hashtags", "chirp_id");
+        CHILD_TABLES.put("chirp_mentions", "chirp_id");
+    }
+
+    private static final String MARK_REPLIES_SQL =
+            "UPDATE chirps SET deleted = true, deleted_at = ? WHERE reply_to_id = ? AND deleted = false LIMIT ?";
+
+    private static final String COUNT_REPLIES_SQL = "SELECT COUNT(*) FROM chirps WHERE reply_to_id = ?";
+
+    private static final String DELETE_CHIRP_SQL = "DELETE FROM chirps WHERE id = ? AND deleted = true";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ChirpSearchIndex chirpSearchIndex;
+
+    @Value("${chirps.purge.enabled:true}")
+    private boolean enabled;
+
+    @Value("${chirps.purge.interval-ms:5000}")
+    private long intervalMs;
+
+    @Value("${chirps.purge.batch-size:50}")
+    private int batchSize;
+
+    @Value("${chirps.purge.chunk-size:1000}")
+    private int chunkSize;
+
+    // Pausa entre tramos para no competir con el tráfico normal
+    @Value("${chirps.purge.chunk-pause-ms:20}")
+    private long chunkPauseMs;
+
+    // Tiempo máximo por vuelta; lo pendiente sigue en la siguiente
+    @Value("${chirps.purge.max-run-ms:10000}")
+    private long maxRunMs;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "chirp-purger");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile boolean stopping;
+
+    private Counter purgedChirps;
+    private Map<String, Counter> purgedRows;
+
+    @PostConstruct
+    public void initialize() {
+        purgedChirps = meterRegistry.counter("chirps.purge.chirps");
+        purgedRows = new LinkedHashMap<>();
+        for (String table : CHILD_TABLES.keySet()) {
+            purgedRows.put(table, meterRegistry.counter("chirps.purge.rows", "table", table));
+        }
+        if (enabled) {
+            executor.scheduleWithFixedDelay(this::purge, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stopping = true;
+        executor.shutdownNow();
+    }
+
+    public void purge() {
+        long deadline = System.currentTimeMillis() + maxRunMs;
+        try {
+            List<Long> parentIds = jdbcTemplate.queryForList(FIND_WITH_LIVE_REPLIES_SQL, Long.class, batchSize);
+            for (Long parentId : parentIds) {
+                if (!markReplies(parentId, deadline)) {
+                    return;
+                }
+            }
+            List<Long> chirpIds = jdbcTemplate.queryForList(FIND_DELETED_LEAVES_SQL, Long.class, batchSize);
+            for (Long chirpId : chirpIds) {
+                if (stopping || System.currentTimeMillis() > deadline) {
+                    return;
+                }
+                purgeChirp(chirpId, deadline);
+            }
+        } catch (DataAccessException e) {
+            log.warn("Purga de chirps borrados interrumpida", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void purgeChirp(Long chirpId, long deadline) throws InterruptedException {
+        for (Map.Entry<String, String> child : CHILD_TABLES.entrySet()) {
+            String sql = "DELETE FROM " + child.getKey() + " WHERE " + child.getValue() + " = ? LIMIT ?";
+            if (!deleteInChunks(sql, chirpId, purgedRows.get(child.getKey()), deadline)) {
+                return;
+            }
+        }
+
+        // Una respuesta llegada después de elegir el lote deja al chirp para otra vuelta
+        Long replies = jdbcTemplate.queryForObject(COUNT_REPLIES_SQL, Long.class, chirpId);
+        if (replies != null && replies > 0) {
+            return;
+        }
+        if (jdbcTemplate.update(DELETE_CHIRP_SQL, chirpId) > 0) {
+            purgedChirps.increment();
+            // Respuestas y chirps de cuentas borradas solo salen del índice aquí
+            chirpSearchIndex.remove(chirpId);
+        }
+    }
+
+    // Las respuestas pasan a borradas y se purgan como hojas en esta vuelta o las siguientes
+    private boolean markReplies(Long chirpId, long deadline) throws InterruptedException {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        while (jdbcTemplate.update(MARK_REPLIES_SQL, now, chirpId, chunkSize) == chunkSize) {
+            if (!pause(deadline)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Devuelve false si se agotó el tiempo de la vuelta antes de terminar la tabla
+    private boolean deleteInChunks(String sql, Long chirpId, Counter rows, long deadline) throws InterruptedException {
+        while (true) {
+            int deleted = jdbcTemplate.update(sql, chirpId, chunkSize);
+            rows.increment(deleted);
+            if (deleted < chunkSize) {
+                return true;
+            }
+            if (!pause(deadline)) {
+                return false;
+            }
+        }
+    }
+
+    private boolean pause(long deadline) throws InterruptedException {
+        if (stopping || System.currentTimeMillis() > deadline) {
+            return false;
+        }
+        if (chunkPauseMs > 0) {
+            Thread.sleep(chunkPauseMs);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,21 @@
+package mx.edu.utez.backend.service;
+
+import java.util.List;
+
+/**
+ * Motor de búsqueda de texto completo sobre el contenido de los chirps. Las
+ * altas y bajas llegan después del commit y se aplican de forma asíncrona;
+ * mientras el índice no está listo (reconstrucción inicial) SearchService usa
+ * la búsqueda con LIKE.
+ */
+public interface ChirpSearchIndex {
+
+    void index(Long chirpId, String content);
+
+    void remove(Long chirpId);
+
+    boolean isReady();
+
+    // Ids de chirps ordenados por relevancia (y por recencia en empate)
+    List<Long> search(String query, int offset, int limit);
+}
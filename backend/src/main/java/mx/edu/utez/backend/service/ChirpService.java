@@ -3,34 +3,37 @@ package mx.edu.utez.backend.service;
 import mx.edu.utez.backend.dto.AuthorDTO;
 import mx.edu.utez.backend.dto.ChirpDTO;
 import mx.edu.utez.backend.dto.request.CreateChirpRequest;
+import mx.edu.utez.backend.dto.response.FeedPageResponse;
 import mx.edu.utez.backend.exception.ConflictException;
 import mx.edu.utez.backend.exception.ForbiddenException;
 import mx.edu.utez.backend.exception.ResourceNotFoundException;
 import mx.edu.utez.backend.model.*;
 import mx.edu.utez.backend.repository.*;
 import mx.edu.utez.backend.util.DTOMapper;
+import mx.edu.utez.backend.util.FeedCursor;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
 public class ChirpService {
 
+    public static final String LATEST_FEED_MODE = "latest";
+    public static final String TOP_FEED_MODE = "top";
+
     @Autowired
     private ChirpRepository chirpRepository;
 
     @Autowired
     private UserRepository userRepository;
 
-    @Autowired
-    private FollowRepository followRepository;
-
     @Autowired
     private LikeRepository likeRepository;
 
@@ -38,79 +41,133 @@ public class ChirpService {
     private RepostRepository repostRepository;
 
     @Autowired
-    private NotificationRepository notificationRepository;
+    private TimelineService timelineService;
+
+    @Autowired
+    private ViewerStateResolver viewerStateResolver;
+
+    @Autowired
+    private ChirpImageLoader chirpImageLoader;
+
+    @Autowired
+    private VersionStampService versionStampService;
+
+    @Autowired
+    private RankedFeedService rankedFeedService;
+
+    @Autowired
+    private EngagementCounterService engagementCounterService;
+
+    @Autowired
+    private ChirpSearchIndex chirpSearchIndex;
+
+    @Autowired
+    private ChirpTagIndexer chirpTagIndexer;
+
+    @Autowired
+    private TrendsEngine trendsEngine;
 
     @Autowired
-    private FirebaseService firebaseService;
+    private NotificationPipeline notificationPipeline;
 
     @Autowired
     private DTOMapper dtoMapper;
 
+    // ETag débil del feed: versión del timeline más los parámetros de la página
+    public String getFeedETag(User currentUser, String mode, int page, int size, String before) {
+        // En modo top el orden también cambia al recalcular el ranking, aunque el timeline no cambie.
+        // La marca es la del ranking que se servirá: si no hay uno vigente se calcula aquí y la
+        // página lo toma de la caché; si caduca entre ambos pasos solo se pierde un 304
+        String ranking = TOP_FEED_MODE.equals(mode) ? rankedFeedService.rankingStamp(currentUser.getId()) + "-" : "";
+        return "W/\"f-" + timelineService.feedVersion(currentUser.getId()) + "-" + mode + "-" + ranking + page + "-"
+                + size + "-" + (before != null ? before : "") + "\"";
+    }
+
+    // No es readOnly: la primera lectura puede construir el timeline materializado
+    @Transactional
+    public FeedPageResponse getFeed(User currentUser, Pageable pageable) {
+        // Obtener chirps del feed (mezclado con reposts) desde el timeline materializado
+        List<FeedItemProjection> feedItems = timelineService.getFeedPage(currentUser.getId(), pageable);
+        return toFeedPage(feedItems, pageable.getPageSize(), currentUser);
+    }
+
+    // Feed ordenado por relevancia; se pagina por offset sobre el ranking cacheado, sin cursor
+    @Transactional
+    public FeedPageResponse getTopFeed(User currentUser, int page, int size) {
+        List<FeedItemProjection> feedItems = rankedFeedService.getTopPage(currentUser.getId(), page, size);
+        FeedPageResponse response = toFeedPage(feedItems, size, currentUser);
+        response.setNextCursor(null);
+        return response;
+    }
+
     @Transactional(readOnly = true)
-    public List<ChirpDTO> getFeed(User currentUser, Pageable pageable) {
-        // Obtener IDs de usuarios que sigue
-        List<Long> followingIds = followRepository.findFollowingIdsByUserId(currentUser.getId());
-
-        // Agregar el propio ID del usuario
-        followingIds.add(currentUser.getId());
-
-        // Obtener chirps del feed (mezclado con reposts)
-        Page<FeedItemProjection> feedItems = chirpRepository.findFeedMixed(followingIds, pageable);
-
-        // Convertir a DTOs
-        return feedItems.stream()
-                .map(item -> {
-                    boolean isLiked = likeRepository.existsByUserIdAndChirpId(currentUser.getId(), item.getId());
-                    boolean isReposted = repostRepository.existsByUserIdAndChirpId(currentUser.getId(), item.getId());
-
-                    ChirpDTO dto = new ChirpDTO();
-                    dto.setId(item.getId());
-                    dto.setContent(item.getContent());
-                    dto.setCreatedAt(item.getCreatedAt());
-                    dto.setLikesCount(item.getLikesCount());
-                    dto.setRepliesCount(item.getRepliesCount());
-                    dto.setRepostsCount(item.getRepostsCount());
-                    dto.setReplyToId(item.getReplyToId());
-                    dto.setLiked(isLiked);
-                    dto.setReposted(isReposted);
-                    dto.setLiked(isLiked);
-                    dto.setReposted(isReposted);
-                    dto.setLatitude(item.getLatitude());
-                    dto.setLongitude(item.getLongitude());
-                    dto.setCity(item.getCity());
-                    dto.setCountry(item.getCountry());
-                    dto.setImageUrls(chirpRepository.findImageUrlsByChirpId(item.getId()));
-
-                    AuthorDTO author = new AuthorDTO();
-                    author.setId(item.getAuthorId());
-                    author.setUsername(item.getAuthorUsername());
-                    author.setDisplayName(item.getAuthorDisplayName());
-                    author.setProfileImageUrl(item.getAuthorProfileImageUrl());
-                    dto.setAuthor(author);
-
-                    if (item.getReposterId() != null) {
-                        AuthorDTO reposter = new AuthorDTO();
-                        reposter.setId(item.getReposterId());
-                        reposter.setUsername(item.getReposterUsername());
-                        reposter.setDisplayName(item.getReposterDisplayName());
-                        dto.setRepostedBy(reposter);
-                    }
+    public FeedPageResponse getFeedBefore(User currentUser, FeedCursor before, int size) {
+        List<FeedItemProjection> feedItems = timelineService.getFeedPageBefore(currentUser.getId(), before, size);
+        return toFeedPage(feedItems, size, currentUser);
+    }
+
+    private FeedPageResponse toFeedPage(List<FeedItemProjection> feedItems, int size, User currentUser) {
+        List<Long> chirpIds = feedItems.stream().map(FeedItemProjection::getId).collect(Collectors.toList());
+        ViewerStateResolver.ViewerState viewerState = viewerStateResolver.resolve(currentUser.getId(), chirpIds);
+        Map<Long, List<String>> imageUrls = chirpImageLoader.load(chirpIds);
 
-                    return dto;
-                })
+        List<ChirpDTO> items = feedItems.stream()
+                .map(item -> toFeedDTO(item, viewerState, imageUrls))
                 .collect(Collectors.toList());
+
+        // Solo hay siguiente página si esta vino completa
+        String nextCursor = null;
+        if (!feedItems.isEmpty() && feedItems.size() >= size) {
+            FeedItemProjection last = feedItems.get(feedItems.size() - 1);
+            nextCursor = new FeedCursor(last.getSortDate(), last.getEntryId()).toString();
+        }
+        return new FeedPageResponse(items, nextCursor);
+    }
+
+    private ChirpDTO toFeedDTO(FeedItemProjection item, ViewerStateResolver.ViewerState viewerState,
+            Map<Long, List<String>> imageUrls) {
+        ChirpDTO dto = new ChirpDTO();
+        dto.setId(item.getId());
+        dto.setContent(item.getContent());
+        dto.setCreatedAt(item.getCreatedAt());
+        dto.setLikesCount(item.getLikesCount());
+        dto.setRepliesCount(item.getRepliesCount());
+        dto.setRepostsCount(item.getRepostsCount());
+        dto.setReplyToId(item.getReplyToId());
+        dto.setLiked(viewerState.isLiked(item.getId()));
+        dto.setReposted(viewerState.isReposted(item.getId()));
+        dto.setLatitude(item.getLatitude());
+        dto.setLongitude(item.getLongitude());
+        dto.setCity(item.getCity());
+        dto.setCountry(item.getCountry());
+        dto.setImageUrls(imageUrls.getOrDefault(item.getId(), new ArrayList<>()));
+        engagementCounterService.applyPending(dto);
+
+        AuthorDTO author = new AuthorDTO();
+        author.setId(item.getAuthorId());
+        author.setUsername(item.getAuthorUsername());
+        author.setDisplayName(item.getAuthorDisplayName());
+        author.setProfileImageUrl(item.getAuthorProfileImageUrl());
+        dto.setAuthor(author);
+
+        if (item.getReposterId() != null) {
+            AuthorDTO reposter = new AuthorDTO();
+            reposter.setId(item.getReposterId());
+            reposter.setUsername(item.getReposterUsername());
+            reposter.setDisplayName(item.getReposterDisplayName());
+            dto.setRepostedBy(reposter);
+        }
+
+        return dto;
     }
 
     @Transactional(readOnly = true)
     public List<ChirpDTO> getReplies(Long chirpId, User currentUser) {
         List<Chirp> replies = chirpRepository.findRepliesByChirpId(chirpId);
-        return replies.stream()
-                .map(chirp -> {
-                    boolean isLiked = likeRepository.existsByUserIdAndChirpId(currentUser.getId(), chirp.getId());
-                    boolean isReposted = repostRepository.existsByUserIdAndChirpId(currentUser.getId(), chirp.getId());
-                    return dtoMapper.toChirpDTO(chirp, isLiked, isReposted);
-                })
-                .collect(Collectors.toList());
+        List<Long> chirpIds = replies.stream().map(Chirp::getId).collect(Collectors.toList());
+        return dtoMapper.toChirpDTOs(replies,
+                viewerStateResolver.resolve(currentUser.getId(), chirpIds),
+                chirpImageLoader.load(chirpIds));
     }
 
     @Transactional
@@ -156,25 +213,8 @@ public class ChirpService {
             chirp.setReplyTo(replyTo);
 
             // Incrementar contador de respuestas del chirp padre
-            replyTo.setRepliesCount(replyTo.getRepliesCount() + 1);
-            chirpRepository.save(replyTo);
-
-            // Crear notificación de respuesta
-            if (!replyTo.getAuthor().getId().equals(currentUser.getId())) {
-                Notification notification = new Notification();
-                notification.setType(NotificationType.REPLY);
-                notification.setActor(currentUser);
-                notification.setUser(replyTo.getAuthor());
-                notification.setChirp(chirp);
-                notification.setContent(request.getContent());
-                notificationRepository.save(notification);
-
-                // Enviar push notification
-                firebaseService.sendPushNotificationToUser(
-                        replyTo.getAuthor(),
-                        "Nueva respuesta",
-                        currentUser.getDisplayName() + " respondió a tu chirp");
-            }
+            engagementCounterService.addReplies(replyTo.getId(), 1);
+
         }
 
         // Save geolocation data if provided
@@ -190,6 +230,19 @@ public class ChirpService {
         }
 
         chirp = chirpRepository.save(chirp);
+        chirpTagIndexer.index(chirp);
+        trendsEngine.record(chirp);
+
+        // Notificación de respuesta (se escribe y envía después del commit)
+        if (chirp.getReplyTo() != null) {
+            notifyAuthor(chirp.getId(), chirp.getReplyTo().getAuthor().getId(), currentUser,
+                    NotificationType.REPLY, request.getContent(),
+                    "Nueva respuesta", currentUser.getDisplayName() + " respondió a tu chirp");
+        }
+
+        // Fan-out al timeline del autor y de sus seguidores
+        timelineService.fanOutChirp(chirp);
+        chirpSearchIndex.index(chirp.getId(), chirp.getContent());
 
         return dtoMapper.toChirpDTO(chirp, false, false);
     }
@@ -204,113 +257,95 @@ public class ChirpService {
             throw new ForbiddenException("No puedes eliminar chirps de otros usuarios");
         }
 
-        chirpRepository.delete(chirp);
+        // Borrado lógico: deja de verse al instante y ChirpPurger elimina likes, reposts,
+        // notificaciones y entradas de timeline por tramos en segundo plano
+        if (chirpRepository.softDelete(chirpId, LocalDateTime.now()) == 0) {
+            throw new ResourceNotFoundException("Chirp no encontrado");
+        }
+        if (chirp.getReplyTo() != null) {
+            engagementCounterService.addReplies(chirp.getReplyTo().getId(), -1);
+        }
+        timelineService.removeChirp(chirpId);
+        chirpSearchIndex.remove(chirpId);
+        // Casi todas sus notificaciones (likes, reposts, respuestas) son del propio autor
+        versionStampService.bumpNotifications(currentUser.getId());
     }
 
     @Transactional
     public void likeChirp(Long chirpId, User currentUser) {
-        Chirp chirp = chirpRepository.findById(chirpId)
-                .orElseThrow(() -> new ResourceNotFoundException("Chirp no encontrado"));
-
-        // Verificar que no le ha dado like ya
-        if (likeRepository.existsByUserIdAndChirpId(currentUser.getId(), chirpId)) {
-            throw new ConflictException("Ya le diste like a este chirp");
+        // Un solo INSERT IGNORE: la PK (user_id, chirp_id) detecta el duplicado sin SELECT previo
+        if (likeRepository.insertIfAbsent(currentUser.getId(), chirpId, LocalDateTime.now()) == 0) {
+            throw missingChirpOr(chirpId, new ConflictException("Ya le diste like a este chirp"));
         }
 
-        // Crear like
-        Like like = new Like();
-        like.setId(new LikeId(currentUser.getId(), chirp.getId()));
-        like.setUser(currentUser);
-        like.setChirp(chirp);
-        likeRepository.save(like);
-
         // Incrementar contador
-        chirp.setLikesCount(chirp.getLikesCount() + 1);
-        chirpRepository.save(chirp);
+        engagementCounterService.addLikes(chirpId, 1);
+        versionStampService.bumpTimeline(currentUser.getId());
 
-        // Crear notificación (solo si no es el propio autor)
-        if (!chirp.getAuthor().getId().equals(currentUser.getId())) {
-            Notification notification = new Notification();
-            notification.setType(NotificationType.LIKE);
-            notification.setActor(currentUser);
-            notification.setUser(chirp.getAuthor());
-            notification.setChirp(chirp);
-            notificationRepository.save(notification);
-
-            // Enviar push notification
-            firebaseService.sendPushNotificationToUser(
-                    chirp.getAuthor(),
-                    "Nuevo like",
-                    currentUser.getDisplayName() + " le dio like a tu chirp");
-        }
+        notifyAuthor(chirpId, currentUser, NotificationType.LIKE, null,
+                "Nuevo like", currentUser.getDisplayName() + " le dio like a tu chirp");
     }
 
     @Transactional
     public void unlikeChirp(Long chirpId, User currentUser) {
-        Chirp chirp = chirpRepository.findById(chirpId)
-                .orElseThrow(() -> new ResourceNotFoundException("Chirp no encontrado"));
-
-        Like like = likeRepository.findByUserIdAndChirpId(currentUser.getId(), chirpId)
-                .orElseThrow(() -> new ResourceNotFoundException("No le habías dado like a este chirp"));
-
-        // Eliminar like
-        likeRepository.delete(like);
+        if (likeRepository.deleteByUserIdAndChirpId(currentUser.getId(), chirpId) == 0) {
+            throw missingChirpOr(chirpId, new ResourceNotFoundException("No le habías dado like a este chirp"));
+        }
 
         // Decrementar contador
-        chirp.setLikesCount(Math.max(0, chirp.getLikesCount() - 1));
-        chirpRepository.save(chirp);
+        engagementCounterService.addLikes(chirpId, -1);
+        versionStampService.bumpTimeline(currentUser.getId());
     }
 
     @Transactional
     public void repostChirp(Long chirpId, User currentUser) {
-        Chirp chirp = chirpRepository.findById(chirpId)
-                .orElseThrow(() -> new ResourceNotFoundException("Chirp no encontrado"));
-
-        // Verificar que no lo ha reposteado ya
-        if (repostRepository.existsByUserIdAndChirpId(currentUser.getId(), chirpId)) {
-            throw new ConflictException("Ya reposteaste este chirp");
+        LocalDateTime createdAt = LocalDateTime.now();
+        if (repostRepository.insertIfAbsent(currentUser.getId(), chirpId, createdAt) == 0) {
+            throw missingChirpOr(chirpId, new ConflictException("Ya reposteaste este chirp"));
         }
+        Long authorId = chirpRepository.findAuthorIdById(chirpId)
+                .orElseThrow(() -> new ResourceNotFoundException("Chirp no encontrado"));
 
-        // Crear repost
-        Repost repost = new Repost();
-        repost.setUser(currentUser);
-        repost.setChirp(chirp);
-        repostRepository.save(repost);
+        // Fan-out al timeline de quien repostea y de sus seguidores
+        timelineService.fanOutRepost(chirpId, authorId, currentUser, createdAt);
 
         // Incrementar contador
-        chirp.setRepostsCount(chirp.getRepostsCount() + 1);
-        chirpRepository.save(chirp);
+        engagementCounterService.addReposts(chirpId, 1);
 
-        // Crear notificación (solo si no es el propio autor)
-        if (!chirp.getAuthor().getId().equals(currentUser.getId())) {
-            Notification notification = new Notification();
-            notification.setType(NotificationType.REPOST);
-            notification.setActor(currentUser);
-            notification.setUser(chirp.getAuthor());
-            notification.setChirp(chirp);
-            notificationRepository.save(notification);
-
-            // Enviar push notification
-            firebaseService.sendPushNotificationToUser(
-                    chirp.getAuthor(),
-                    "Nuevo repost",
-                    currentUser.getDisplayName() + " reposteó tu chirp");
-        }
+        notifyAuthor(chirpId, authorId, currentUser, NotificationType.REPOST, null,
+                "Nuevo repost", currentUser.getDisplayName() + " reposteó tu chirp");
     }
 
     @Transactional
     public void unrepostChirp(Long chirpId, User currentUser) {
-        Chirp chirp = chirpRepository.findById(chirpId)
-                .orElseThrow(() -> new ResourceNotFoundException("Chirp no encontrado"));
+        if (repostRepository.deleteByUserIdAndChirpId(currentUser.getId(), chirpId) == 0) {
+            throw missingChirpOr(chirpId, new ResourceNotFoundException("No habías reposteado este chirp"));
+        }
+        timelineService.removeRepost(chirpId, currentUser.getId());
 
-        Repost repost = repostRepository.findByUserIdAndChirpId(currentUser.getId(), chirpId)
-                .orElseThrow(() -> new ResourceNotFoundException("No habías reposteado este chirp"));
+        // Decrementar contador
+        engagementCounterService.addReposts(chirpId, -1);
+    }
 
-        // Eliminar repost
-        repostRepository.delete(repost);
+    // Si no se afectó ninguna fila: el chirp no existe o el estado ya era el pedido
+    private RuntimeException missingChirpOr(Long chirpId, RuntimeException otherwise) {
+        return chirpRepository.existsById(chirpId) ? otherwise : new ResourceNotFoundException("Chirp no encontrado");
+    }
 
-        // Decrementar contador
-        chirp.setRepostsCount(Math.max(0, chirp.getRepostsCount() - 1));
-        chirpRepository.save(chirp);
+    private void notifyAuthor(Long chirpId, User actor, NotificationType type, String content, String title,
+            String body) {
+        Long authorId = chirpRepository.findAuthorIdById(chirpId)
+                .orElseThrow(() -> new ResourceNotFoundException("Chirp no encontrado"));
+        notifyAuthor(chirpId, authorId, actor, type, content, title, body);
+    }
+
+    private void notifyAuthor(Long chirpId, Long authorId, User actor, NotificationType type, String content,
+            String title, String body) {
+        // Solo si no es el propio autor; el pipeline la escribe en lote y envía el push después del commit
+        if (authorId.equals(actor.getId())) {
+            return;
+        }
+        notificationPipeline.publish(new NotificationEvent(type, actor.getId(), actor.getDisplayName(), authorId,
+                chirpId, content, title, body, null));
     }
 }
@@ -0,0 +1,193 @@
+package mx.edu.utez.backend.service;
+
+import jakarta.annotation.PreDestroy;
+import mx.edu.utez.backend.model.Chirp;
+import mx.edu.utez.backend.repository.UserRepository;
+import mx.edu.utez.backend.util.ChirpTextParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Guarda los hashtags y menciones de un chirp en chirp_hashtags y
+ * chirp_mentions, dentro de la misma transacción que el chirp. Cada tabla se
+ * escribe con un solo lote JDBC; ChirpPurger borra las filas junto con el chirp.
+ *
+ * Los chirps anteriores a estas tablas se rellenan en segundo plano al
+ * arrancar: un recorrido por id descendente (los recientes primero) con el
+ * cursor guardado en backfill_progress, así un reinicio lo retoma y uno
+ * terminado no se repite. Mientras avanza, las búsquedas por hashtag o
+ * mención pueden no incluir los chirps más antiguos.
+ */
+@Service
+public class ChirpTagIndexer {
+
+    private static final Logger log = LoggerFactory.getLogger(ChirpTagIndexer.class);
+
+    private static final String BACKFILL_NAME = "chirp_tags";
+
+    private static final String INSERT_HASHTAG_SQL =
+            "INSERT IGNORE INTO chirp_hashtags (chirp_id, tag, created_at) VALUES (?, ?, ?)";
+
+    private static final String INSERT_MENTION_SQL =
+            "INSERT IGNORE INTO chirp_mentions (chirp_id, user_id, created_at) VALUES (?, ?, ?)";
+
+    // El punto de partida es el primer id que el indexado en línea ya pudo no ver
+    private static final String START_BACKFILL_SQL =
+            "INSERT IGNORE INTO backfill_progress (name, cursor_id) "
+                    + "SELECT ?, COALESCE(MAX(id), 0) + 1 FROM chirps";
+
+    private static final String BACKFILL_CHIRPS_SQL =
+            "SELECT id, content, created_at FROM chirps WHERE id < ? AND deleted = false ORDER BY id DESC LIMIT ?";
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${chirps.tags.backfill.enabled:true}")
+    private boolean backfillEnabled;
+
+    @Value("${chirps.tags.backfill.chunk-size:1000}")
+    private int backfillChunkSize;
+
+    @Value("${chirps.tags.backfill.pause-ms:50}")
+    private long backfillPauseMs;
+
+    private final ExecutorService backfillExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "chirp-tag-backfill");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startBackfill() {
+        if (backfillEnabled) {
+            backfillExecutor.execute(this::backfill);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        backfillExecutor.shutdownNow();
+    }
+
+    public void index(Chirp chirp) {
+        Timestamp createdAt = Timestamp.valueOf(chirp.getCreatedAt());
+
+        Set<String> tags = ChirpTextParser.hashtags(chirp.getContent());
+        if (!tags.isEmpty()) {
+            List<Object[]> rows = new ArrayList<>(tags.size());
+            for (String tag : tags) {
+                rows.add(new Object[] { chirp.getId(), tag, createdAt });
+            }
+            jdbcTemplate.batchUpdate(INSERT_HASHTAG_SQL, rows);
+        }
+
+        Set<String> usernames = ChirpTextParser.mentions(chirp.getContent());
+        if (usernames.isEmpty()) {
+            return;
+        }
+        // Solo cuentas existentes y activas; un @ a un usuario inexistente se ignora
+        List<Long> userIds = userRepository.findIdsByUsernames(usernames);
+        if (!userIds.isEmpty()) {
+            List<Object[]> rows = new ArrayList<>(userIds.size());
+            for (Long userId : userIds) {
+                rows.add(new Object[] { chirp.getId(), userId, createdAt });
+            }
+            jdbcTemplate.batchUpdate(INSERT_MENTION_SQL, rows);
+        }
+    }
+
+    // Cada tramo es idempotente (INSERT IGNORE): si se corta antes de guardar el cursor, se repite sin duplicar
+    private void backfill() {
+        long rows = 0;
+        try {
+            jdbcTemplate.update(START_BACKFILL_SQL, BACKFILL_NAME);
+            Map<String, Object> progress = jdbcTemplate.queryForMap(
+                    "SELECT cursor_id, completed_at FROM backfill_progress WHERE name = ?", BACKFILL_NAME);
+            if (progress.get("completed_at") != null) {
+                return;
+            }
+            long cursor = ((Number) progress.get("cursor_id")).longValue();
+            log.info("Rellenando hashtags y menciones de chirps con id menor a {}", cursor);
+            while (!Thread.currentThread().isInterrupted()) {
+                List<Map<String, Object>> chirps =
+                        jdbcTemplate.queryForList(BACKFILL_CHIRPS_SQL, cursor, backfillChunkSize);
+                if (!chirps.isEmpty()) {
+                    rows += indexChunk(chirps);
+                    cursor = ((Number) chirps.get(chirps.size() - 1).get("id")).longValue();
+                }
+                if (chirps.size() < backfillChunkSize) {
+                    jdbcTemplate.update("UPDATE backfill_progress SET cursor_id = ?, completed_at = ? WHERE name = ?",
+                            cursor, Timestamp.valueOf(LocalDateTime.now()), BACKFILL_NAME);
+                    log.info("Relleno de hashtags y menciones terminado: {} filas", rows);
+                    return;
+                }
+                jdbcTemplate.update("UPDATE backfill_progress SET cursor_id = ? WHERE name = ?", cursor, BACKFILL_NAME);
+                Thread.sleep(backfillPauseMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (DataAccessException e) {
+            log.warn("Falló el relleno de hashtags y menciones; se retoma en el siguiente arranque", e);
+        }
+    }
+
+    // Un lote por tabla y una sola consulta de usuarios para todas las menciones del tramo
+    private int indexChunk(List<Map<String, Object>> chirps) {
+        Set<String> usernames = new HashSet<>();
+        for (Map<String, Object> chirp : chirps) {
+            usernames.addAll(ChirpTextParser.mentions((String) chirp.get("content")));
+        }
+        Map<String, Long> userIds = new HashMap<>();
+        if (!usernames.isEmpty()) {
+            for (Object[] user : userRepository.findIdsAndUsernamesByUsernames(usernames)) {
+                userIds.put(((String) user[1]).toLowerCase(Locale.ROOT), (Long) user[0]);
+            }
+        }
+
+        List<Object[]> hashtagRows = new ArrayList<>();
+        List<Object[]> mentionRows = new ArrayList<>();
+        for (Map<String, Object> chirp : chirps) {
+            Object chirpId = chirp.get("id");
+            Object createdAt = chirp.get("created_at");
+            String content = (String) chirp.get("content");
+            for (String tag : ChirpTextParser.hashtags(content)) {
+                hashtagRows.add(new Object[] { chirpId, tag, createdAt });
+            }
+            for (String username : ChirpTextParser.mentions(content)) {
+                Long userId = userIds.get(username);
+                if (userId != null) {
+                    mentionRows.add(new Object[] { chirpId, userId, createdAt });
+                }
+            }
+        }
+        if (!hashtagRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_HASHTAG_SQL, hashtagRows);
+        }
+        if (!mentionRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_MENTION_SQL, mentionRows);
+        }
+        return hashtagRows.size() + mentionRows.size();
+    }
+}
@@ -0,0 +1,59 @@
+package mx.edu.utez.backend.service;
+
+import java.util.Arrays;
+
+/**
+ * Count-min sketch de tamaño fijo: estima la frecuencia de cualquier término
+ * con memoria constante (depth * width contadores), sin importar cuántos
+ * términos distintos lleguen. La estimación nunca es menor que el valor real.
+ */
+class CountMinSketch {
+
+    private final int depth;
+    private final int width;
+    private final int[] counters;
+
+    CountMinSketch(int depth, int width) {
+        this.depth = depth;
+        this.width = width;
+        this.counters = new int[depth * width];
+    }
+
+    void add(String term) {
+        int hash = term.hashCode();
+        for (int row = 0; row < depth; row++) {
+            int index = row * width + slot(hash, row);
+            if (counters[index] < Integer.MAX_VALUE) {
+                counters[index]++;
+            }
+        }
+    }
+
+    int estimate(String term) {
+        int hash = term.hashCode();
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, counters[row * width + slot(hash, row)]);
+        }
+        return min;
+    }
+
+    void clear() {
+        Arrays.fill(counters, 0);
+    }
+
+    long bytes() {
+        return 16L + 4L * counters.length;
+    }
+
+    // Una función hash por fila a partir del mismo hashCode (mezcla tipo murmur3 con semilla distinta)
+    private int slot(int hash, int row) {
+        int h = hash ^ (0x9E3779B9 * (row + 1));
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return Math.floorMod(h, width);
+    }
+}
@@ -0,0 +1,397 @@
+package mx.edu.utez.backend.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import mx.edu.utez.backend.repository.ChirpRepository;
+import mx.edu.utez.backend.repository.FollowRepository;
+import mx.edu.utez.backend.repository.LikeRepository;
+import mx.edu.utez.backend.repository.RepostRepository;
+import mx.edu.utez.backend.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Reconciliación incremental de los contadores desnormalizados (likes, reposts
+ * y respuestas de chirps; seguidores y seguidos de usuarios). Recorre las
+ * tablas en tramos ordenados por id, recalcula los totales reales con
+ * consultas agregadas por rango y corrige la deriva con UPDATE en lote
+ * condicionados a los valores leídos, de modo que nunca pisa una escritura
+ * concurrente. Se autolimita: entre tramos duerme en proporción al tiempo
+ * trabajado y espera mientras el pool de conexiones está saturado.
+ */
+@Service
+public class CounterReconciler {
+
+    private static final Logger log = LoggerFactory.getLogger(CounterReconciler.class);
+
+    private static final String REPAIR_CHIRP_SQL = """
+            UPDATE chirps SET likes_count = ?, reposts_count = ?, replies_count = ?
+            WHERE id = ? AND likes_count = ? AND reposts_count = ? AND replies_count = ?
+            """;
+
+    private static final String REPAIR_USER_SQL = """
+            UPDATE users SET followers_count = ?, following_count = ?
+            WHERE id = ? AND followers_count = ? AND following_count = ?
+            """;
+
+    @Autowired
+    private ChirpRepository chirpRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private LikeRepository likeRepository;
+
+    @Autowired
+    private RepostRepository repostRepository;
+
+    @Autowired
+    private FollowRepository followRepository;
+
+    @Autowired
+    private EngagementCounterService engagementCounterService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${reconciler.enabled:true}")
+    private boolean enabled;
+
+    @Value("${reconciler.interval-ms:600000}")
+    private long intervalMs;
+
+    @Value("${reconciler.chunk-size:500}")
+    private int chunkSize;
+
+    // Fracción máxima del tiempo que el reconciliador pasa trabajando (el resto duerme)
+    @Value("${reconciler.duty-cycle:0.2}")
+    private double dutyCycle;
+
+    // Uso del pool (activas / máximo) a partir del cual se pausa
+    @Value("${reconciler.max-pool-usage:0.7}")
+    private double maxPoolUsage;
+
+    @Value("${reconciler.backoff-ms:2000}")
+    private long backoffMs;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "counter-reconciler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile boolean stopping;
+
+    private volatile PassStats lastPass;
+    private volatile PassStats currentPass;
+    private volatile long completedPasses;
+
+    private Counter chirpDriftRows;
+    private Counter userDriftRows;
+    private Counter lostRaces;
+    private Counter throttledMillis;
+    private DistributionSummary chirpDriftMagnitude;
+    private DistributionSummary userDriftMagnitude;
+
+    @PostConstruct
+    public void initialize() {
+        chirpDriftRows = meterRegistry.counter("reconciler.drift.rows", "entity", "chirp");
+        userDriftRows = meterRegistry.counter("reconciler.drift.rows", "entity", "user");
+        lostRaces = meterRegistry.counter("reconciler.repair.skipped");
+        throttledMillis = meterRegistry.counter("reconciler.throttled.ms");
+        chirpDriftMagnitude = meterRegistry.summary("reconciler.drift.magnitude", "entity", "chirp");
+        userDriftMagnitude = meterRegistry.summary("reconciler.drift.magnitude", "entity", "user");
+        if (enabled) {
+            executor.scheduleWithFixedDelay(this::runPass, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stopping = true;
+        executor.shutdownNow();
+    }
+
+    /**
+     * Lanza una pasada completa fuera de calendario. Devuelve false si ya hay una en curso.
+     */
+    public boolean triggerPass() {
+        if (running.get()) {
+            return false;
+        }
+        executor.execute(this::runPass);
+        return true;
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", enabled);
+        status.put("running", running.get());
+        status.put("completedPasses", completedPasses);
+        PassStats current = currentPass;
+        if (current != null) {
+            status.put("currentPass", current.toMap());
+        }
+        PassStats last = lastPass;
+        if (last != null) {
+            status.put("lastPass", last.toMap());
+        }
+        return status;
+    }
+
+    private void runPass() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        PassStats stats = new PassStats();
+        currentPass = stats;
+        try {
+            long cursor = 0;
+            while (!stopping && cursor >= 0) {
+                long start = System.nanoTime();
+                cursor = reconcileChirps(cursor, stats);
+                throttle(System.nanoTime() - start, stats);
+            }
+            cursor = 0;
+            while (!stopping && cursor >= 0) {
+                long start = System.nanoTime();
+                cursor = reconcileUsers(cursor, stats);
+                throttle(System.nanoTime() - start, stats);
+            }
+            stats.finishedAt = LocalDateTime.now();
+            lastPass = stats;
+            completedPasses++;
+            if (stats.chirpsDrifted > 0 || stats.usersDrifted > 0) {
+                log.info("Reconciliación terminada: {} chirps y {} usuarios corregidos",
+                        stats.chirpsRepaired, stats.usersRepaired);
+            }
+        } catch (DataAccessException e) {
+            // La siguiente pasada vuelve a empezar desde el principio
+            log.warn("Reconciliación de contadores interrumpida", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            currentPass = null;
+            running.set(false);
+        }
+    }
+
+    // Procesa el tramo de chirps con id > afterId; devuelve el nuevo cursor o -1 al terminar
+    private long reconcileChirps(long afterId, PassStats stats) {
+        List<Object[]> rows = chirpRepository.findCounterChunk(afterId, chunkSize);
+        if (rows.isEmpty()) {
+            return -1;
+        }
+        long toId = ((Number) rows.get(rows.size() - 1)[0]).longValue();
+
+        // La marca de cambios se lee antes y después de contar: si cambió o hay deltas en vuelo
+        // (una transacción sin terminar o un flush sin descontar), el chirp queda para la siguiente
+        // pasada. Un flush previo a la primera lectura se detecta al reparar: las filas se
+        // actualizan solo si conservan los valores leídos en el tramo
+        Map<Long, Long> stampsBefore = new HashMap<>();
+        for (Object[] row : rows) {
+            Long id = ((Number) row[0]).longValue();
+            stampsBefore.put(id, engagementCounterService.changeStamp(id));
+        }
+        Map<Long, Long> likes = toCountMap(likeRepository.countInRange(afterId, toId));
+        Map<Long, Long> reposts = toCountMap(repostRepository.countInRange(afterId, toId));
+        Map<Long, Long> replies = toCountMap(chirpRepository.countRepliesInRange(afterId, toId));
+
+        List<Object[]> repairs = new ArrayList<>();
+        for (Object[] row : rows) {
+            Long id = ((Number) row[0]).longValue();
+            long stampBefore = stampsBefore.get(id);
+            long[] pending = engagementCounterService.pendingDeltas(id);
+            if (stampBefore < 0 || engagementCounterService.changeStamp(id) != stampBefore) {
+                stats.chirpsSkipped++;
+                continue;
+            }
+            long storedLikes = ((Number) row[1]).longValue();
+            long storedReposts = ((Number) row[2]).longValue();
+            long storedReplies = ((Number) row[3]).longValue();
+            // Lo persistido más lo pendiente debe igualar el total real
+            long expectedLikes = likes.getOrDefault(id, 0L) - pending[0];
+            long expectedReposts = reposts.getOrDefault(id, 0L) - pending[1];
+            long expectedReplies = replies.getOrDefault(id, 0L) - pending[2];
+            long drift = Math.abs(expectedLikes - storedLikes) + Math.abs(expectedReposts - storedReposts)
+                    + Math.abs(expectedReplies - storedReplies);
+            if (drift == 0) {
+                continue;
+            }
+            chirpDriftMagnitude.record(drift);
+            stats.recordChirpDrift(drift);
+            repairs.add(new Object[] { expectedLikes, expectedReposts, expectedReplies, id,
+                    storedLikes, storedReposts, storedReplies });
+        }
+        stats.chirpsScanned += rows.size();
+        stats.chirpCursor = toId;
+        if (!repairs.isEmpty()) {
+            int repaired = applyRepairs(REPAIR_CHIRP_SQL, repairs);
+            chirpDriftRows.increment(repaired);
+            stats.chirpsRepaired += repaired;
+        }
+        return rows.size() < chunkSize ? -1 : toId;
+    }
+
+    private long reconcileUsers(long afterId, PassStats stats) {
+        List<Object[]> rows = userRepository.findCounterChunk(afterId, chunkSize);
+        if (rows.isEmpty()) {
+            return -1;
+        }
+        long toId = ((Number) rows.get(rows.size() - 1)[0]).longValue();
+        Map<Long, Long> followers = toCountMap(followRepository.countFollowersInRange(afterId, toId));
+        Map<Long, Long> following = toCountMap(followRepository.countFollowingInRange(afterId, toId));
+
+        List<Object[]> repairs = new ArrayList<>();
+        for (Object[] row : rows) {
+            Long id = ((Number) row[0]).longValue();
+            long storedFollowers = ((Number) row[1]).longValue();
+            long storedFollowing = ((Number) row[2]).longValue();
+            long expectedFollowers = followers.getOrDefault(id, 0L);
+            long expectedFollowing = following.getOrDefault(id, 0L);
+            long drift = Math.abs(expectedFollowers - storedFollowers) + Math.abs(expectedFollowing - storedFollowing);
+            if (drift == 0) {
+                continue;
+            }
+            userDriftMagnitude.record(drift);
+            stats.recordUserDrift(drift);
+            repairs.add(new Object[] { expectedFollowers, expectedFollowing, id, storedFollowers, storedFollowing });
+        }
+        stats.usersScanned += rows.size();
+        stats.userCursor = toId;
+        if (!repairs.isEmpty()) {
+            int repaired = applyRepairs(REPAIR_USER_SQL, repairs);
+            userDriftRows.increment(repaired);
+            stats.usersRepaired += repaired;
+        }
+        return rows.size() < chunkSize ? -1 : toId;
+    }
+
+    // Los UPDATE están condicionados a los valores leídos; si una escritura concurrente ganó, la fila no se toca
+    private int applyRepairs(String sql, List<Object[]> repairs) {
+        int[] results = jdbcTemplate.batchUpdate(sql, repairs);
+        int repaired = 0;
+        for (int result : results) {
+            if (result > 0 || result == Statement.SUCCESS_NO_INFO) {
+                repaired++;
+            } else {
+                lostRaces.increment();
+            }
+        }
+        return repaired;
+    }
+
+    private void throttle(long workedNanos, PassStats stats) throws InterruptedException {
+        long pause = (long) (TimeUnit.NANOSECONDS.toMillis(workedNanos) * (1 - dutyCycle) / dutyCycle);
+        while (!stopping && poolSaturated()) {
+            pause += backoffMs;
+            sleep(backoffMs, stats);
+        }
+        if (pause > 0 && !stopping) {
+            sleep(Math.min(pause, intervalMs), stats);
+        }
+    }
+
+    private boolean poolSaturated() {
+        if (!(dataSource instanceof HikariDataSource hikari)) {
+            return false;
+        }
+        HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+        if (pool == null) {
+            return false;
+        }
+        return pool.getThreadsAwaitingConnection() > 0
+                || pool.getActiveConnections() >= maxPoolUsage * hikari.getMaximumPoolSize();
+    }
+
+    private void sleep(long millis, PassStats stats) throws InterruptedException {
+        Thread.sleep(millis);
+        throttledMillis.increment(millis);
+        stats.throttledMillis += millis;
+    }
+
+    private static Map<Long, Long> toCountMap(List<Object[]> rows) {
+        Map<Long, Long> counts = new HashMap<>(rows.size() * 2);
+        for (Object[] row : rows) {
+            counts.put(((Number) row[0]).longValue(), ((Number) row[1]).longValue());
+        }
+        return counts;
+    }
+
+    private static class PassStats {
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private LocalDateTime finishedAt;
+        private long chirpsScanned;
+        private long chirpsDrifted;
+        private long chirpsRepaired;
+        private long chirpsSkipped;
+        private long chirpMaxDrift;
+        private long chirpCursor;
+        private long usersScanned;
+        private long usersDrifted;
+        private long usersRepaired;
+        private long userMaxDrift;
+        private long userCursor;
+        private long throttledMillis;
+
+        private void recordChirpDrift(long drift) {
+            chirpsDrifted++;
+            chirpMaxDrift = Math.max(chirpMaxDrift, drift);
+        }
+
+        private void recordUserDrift(long drift) {
+            usersDrifted++;
+            userMaxDrift = Math.max(userMaxDrift, drift);
+        }
+
+        private Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("startedAt", startedAt);
+            map.put("finishedAt", finishedAt);
+            map.put("chirpsScanned", chirpsScanned);
+            map.put("chirpsDrifted", chirpsDrifted);
+            map.put("chirpsRepaired", chirpsRepaired);
+            map.put("chirpsSkipped", chirpsSkipped);
+            map.put("chirpMaxDrift", chirpMaxDrift);
+            map.put("chirpCursor", chirpCursor);
+            map.put("usersScanned", usersScanned);
+            map.put("usersDrifted", usersDrifted);
+            map.put("usersRepaired", usersRepaired);
+            map.put("userMaxDrift", userMaxDrift);
+            map.put("userCursor", userCursor);
+            map.put("throttledMillis", throttledMillis);
+            return map;
+        }
+    }
+}
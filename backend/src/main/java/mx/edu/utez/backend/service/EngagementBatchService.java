@@ -0,0 +1,266 @@
+package mx.edu.utez.backend.service;
+
+import mx.edu.utez.backend.dto.request.EngagementOperationRequest;
+import mx.edu.utez.backend.dto.response.EngagementBatchResponse;
+import mx.edu.utez.backend.dto.response.EngagementResultResponse;
+import mx.edu.utez.backend.model.NotificationType;
+import mx.edu.utez.backend.model.User;
+import mx.edu.utez.backend.repository.ChirpRepository;
+import mx.edu.utez.backend.repository.LikeRepository;
+import mx.edu.utez.backend.repository.RepostRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Aplica en una sola transacción las interacciones que un cliente acumuló sin
+ * conexión. Por cada chirp solo cuenta la última operación de likes y la
+ * última de reposts; los likes y reposts se insertan en un lote JDBC y se
+ * borran con un DELETE ... IN por tabla, y los deltas de contadores se
+ * combinan por chirp antes de pasar a EngagementCounterService.
+ */
+@Service
+public class EngagementBatchService {
+
+    private static final String APPLIED = "APPLIED";
+    private static final String UNCHANGED = "UNCHANGED";
+    private static final String SUPERSEDED = "SUPERSEDED";
+    private static final String NOT_FOUND = "NOT_FOUND";
+    private static final String INVALID = "INVALID";
+
+    private static final String INSERT_LIKE_SQL =
+            "INSERT IGNORE INTO likes (user_id, chirp_id, created_at) VALUES (?, ?, ?)";
+
+    private static final String INSERT_REPOST_SQL =
+            "INSERT IGNORE INTO reposts (user_id, chirp_id, created_at) VALUES (?, ?, ?)";
+
+    private enum Operation {
+        LIKE(true, true),
+        UNLIKE(true, false),
+        REPOST(false, true),
+        UNREPOST(false, false);
+
+        private final boolean like;
+        private final boolean present;
+
+        Operation(boolean like, boolean present) {
+            this.like = like;
+            this.present = present;
+        }
+
+        private static Operation parse(String type) {
+            for (Operation operation : values()) {
+                if (operation.name().equalsIgnoreCase(type)) {
+                    return operation;
+                }
+            }
+            return null;
+        }
+    }
+
+    @Autowired
+    private ChirpRepository chirpRepository;
+
+    @Autowired
+    private LikeRepository likeRepository;
+
+    @Autowired
+    private RepostRepository repostRepository;
+
+    @Autowired
+    private TimelineService timelineService;
+
+    @Autowired
+    private EngagementCounterService engagementCounterService;
+
+    @Autowired
+    private VersionStampService versionStampService;
+
+    @Autowired
+    private NotificationPipeline notificationPipeline;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Transactional
+    public EngagementBatchResponse apply(List<EngagementOperationRequest> requests, User currentUser) {
+        int size = requests.size();
+        Operation[] operations = new Operation[size];
+        String[] statuses = new String[size];
+
+        // Última operación por chirp, por separado para likes y reposts
+        Map<Long, Integer> lastLike = new LinkedHashMap<>();
+        Map<Long, Integer> lastRepost = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            operations[i] = Operation.parse(requests.get(i).getType());
+            if (operations[i] == null) {
+                statuses[i] = INVALID;
+                continue;
+            }
+            Integer previous = (operations[i].like ? lastLike : lastRepost).put(requests.get(i).getChirpId(), i);
+            if (previous != null) {
+                statuses[previous] = SUPERSEDED;
+            }
+        }
+
+        Set<Long> chirpIds = new HashSet<>(lastLike.keySet());
+        chirpIds.addAll(lastRepost.keySet());
+        Map<Long, Long> authors = new HashMap<>();
+        if (!chirpIds.isEmpty()) {
+            for (Object[] row : chirpRepository.findAuthorIdsByIds(chirpIds)) {
+                authors.put((Long) row[0], (Long) row[1]);
+            }
+        }
+
+        Map<Long, long[]> deltas = new HashMap<>();
+        List<NotificationEvent> events = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        applyLikes(lastLike, operations, statuses, authors, deltas, events, currentUser, now);
+        applyReposts(lastRepost, operations, statuses, authors, deltas, events, currentUser, now);
+
+        if (!deltas.isEmpty()) {
+            engagementCounterService.addAll(deltas);
+            versionStampService.bumpTimeline(currentUser.getId());
+            notificationPipeline.publishAll(events);
+        }
+
+        List<EngagementResultResponse> results = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            EngagementOperationRequest request = requests.get(i);
+            results.add(new EngagementResultResponse(request.getType(), request.getChirpId(), statuses[i]));
+        }
+        return new EngagementBatchResponse(results);
+    }
+
+    private void applyLikes(Map<Long, Integer> last, Operation[] operations, String[] statuses,
+            Map<Long, Long> authors, Map<Long, long[]> deltas, List<NotificationEvent> events,
+            User currentUser, LocalDateTime now) {
+        Map<Long, Integer> live = liveOperations(last, statuses, authors);
+        if (live.isEmpty()) {
+            return;
+        }
+        Long userId = currentUser.getId();
+        Set<Long> existing = new HashSet<>(likeRepository.lockChirpIds(userId, live.keySet()));
+        List<Long> toInsert = new ArrayList<>();
+        List<Long> toDelete = new ArrayList<>();
+        split(live, operations, statuses, existing, toInsert, toDelete);
+
+        for (Long chirpId : insert(INSERT_LIKE_SQL, userId, toInsert, live, statuses, now)) {
+            deltas.computeIfAbsent(chirpId, id -> new long[2])[0]++;
+            notify(events, NotificationType.LIKE, chirpId, authors.get(chirpId), currentUser, "Nuevo like",
+                    currentUser.getDisplayName() + " le dio like a tu chirp");
+        }
+        if (!toDelete.isEmpty()) {
+            // Las filas quedaron bloqueadas arriba: se borran exactamente las que se leyeron
+            likeRepository.deleteByUserIdAndChirpIds(userId, toDelete);
+            for (Long chirpId : toDelete) {
+                statuses[live.get(chirpId)] = APPLIED;
+                deltas.computeIfAbsent(chirpId, id -> new long[2])[0]--;
+            }
+        }
+    }
+
+    private void applyReposts(Map<Long, Integer> last, Operation[] operations, String[] statuses,
+            Map<Long, Long> authors, Map<Long, long[]> deltas, List<NotificationEvent> events,
+            User currentUser, LocalDateTime now) {
+        Map<Long, Integer> live = liveOperations(last, statuses, authors);
+        if (live.isEmpty()) {
+            return;
+        }
+        Long userId = currentUser.getId();
+        Set<Long> existing = new HashSet<>(repostRepository.lockChirpIds(userId, live.keySet()));
+        List<Long> toInsert = new ArrayList<>();
+        List<Long> toDelete = new ArrayList<>();
+        split(live, operations, statuses, existing, toInsert, toDelete);
+
+        Map<Long, Long> reposted = new LinkedHashMap<>();
+        for (Long chirpId : insert(INSERT_REPOST_SQL, userId, toInsert, live, statuses, now)) {
+            deltas.computeIfAbsent(chirpId, id -> new long[2])[1]++;
+            reposted.put(chirpId, authors.get(chirpId));
+            notify(events, NotificationType.REPOST, chirpId, authors.get(chirpId), currentUser, "Nuevo repost",
+                    currentUser.getDisplayName() + " reposteó tu chirp");
+        }
+        // Todos los reposts del lote llegan a los timelines con un solo INSERT
+        timelineService.fanOutReposts(reposted, currentUser, now);
+        if (!toDelete.isEmpty()) {
+            repostRepository.deleteByUserIdAndChirpIds(userId, toDelete);
+            timelineService.removeReposts(toDelete, userId);
+            for (Long chirpId : toDelete) {
+                statuses[live.get(chirpId)] = APPLIED;
+                deltas.computeIfAbsent(chirpId, id -> new long[2])[1]--;
+            }
+        }
+    }
+
+    // Descarta (NOT_FOUND) las operaciones sobre chirps inexistentes o borrados
+    private Map<Long, Integer> liveOperations(Map<Long, Integer> last, String[] statuses, Map<Long, Long> authors) {
+        Map<Long, Integer> live = new LinkedHashMap<>();
+        last.forEach((chirpId, index) -> {
+            if (authors.containsKey(chirpId)) {
+                live.put(chirpId, index);
+            } else {
+                statuses[index] = NOT_FOUND;
+            }
+        });
+        return live;
+    }
+
+    private void split(Map<Long, Integer> live, Operation[] operations, String[] statuses, Set<Long> existing,
+            List<Long> toInsert, List<Long> toDelete) {
+        live.forEach((chirpId, index) -> {
+            boolean present = operations[index].present;
+            if (present == existing.contains(chirpId)) {
+                statuses[index] = UNCHANGED;
+            } else if (present) {
+                toInsert.add(chirpId);
+            } else {
+                toDelete.add(chirpId);
+            }
+        });
+    }
+
+    // INSERT IGNORE en un lote JDBC; devuelve los chirps donde sí se insertó la fila
+    private List<Long> insert(String sql, Long userId, List<Long> chirpIds, Map<Long, Integer> live,
+            String[] statuses, LocalDateTime now) {
+        if (chirpIds.isEmpty()) {
+            return List.of();
+        }
+        Timestamp createdAt = Timestamp.valueOf(now);
+        List<Object[]> rows = new ArrayList<>(chirpIds.size());
+        for (Long chirpId : chirpIds) {
+            rows.add(new Object[] { userId, chirpId, createdAt });
+        }
+        int[] results = jdbcTemplate.batchUpdate(sql, rows);
+        List<Long> inserted = new ArrayList<>();
+        for (int i = 0; i < results.length; i++) {
+            Long chirpId = chirpIds.get(i);
+            if (results[i] > 0 || results[i] == Statement.SUCCESS_NO_INFO) {
+                statuses[live.get(chirpId)] = APPLIED;
+                inserted.add(chirpId);
+            } else {
+                statuses[live.get(chirpId)] = UNCHANGED;
+            }
+        }
+        return inserted;
+    }
+
+    private void notify(List<NotificationEvent> events, NotificationType type, Long chirpId, Long authorId,
+            User actor, String title, String body) {
+        if (!authorId.equals(actor.getId())) {
+            events.add(new NotificationEvent(type, actor.getId(), actor.getDisplayName(), authorId, chirpId, null,
+                    title, body, null));
+        }
+    }
+}
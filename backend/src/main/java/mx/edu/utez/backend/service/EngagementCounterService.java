@@ -0,0 +1,261 @@
+package mx.edu.utez.backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import mx.edu.utez.backend.dto.ChirpDTO;
+import mx.edu.utez.backend.util.TransactionHooks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Contadores de interacción (likes, reposts, respuestas) con escritura
+ * diferida. Los deltas se acumulan en celdas LongAdder por chirp después del
+ * commit y se escriben periódicamente con UPDATE ... SET x = x + ? en lote,
+ * así un chirp viral no genera una fila de bloqueos sobre su registro. Las
+ * lecturas suman el valor persistido más el delta pendiente.
+ *
+ * Cada chirp lleva además una marca de cambios y un conteo de deltas en
+ * vuelo: los registrados en una transacción que aún no termina y los de un
+ * flush ya escrito en la base pero no descontado. CounterReconciler los usa
+ * para no corregir un chirp cuyo total real y pendiente no cuadran todavía.
+ */
+@Service
+public class EngagementCounterService {
+
+    private static final Logger log = LoggerFactory.getLogger(EngagementCounterService.class);
+
+    private static final String FLUSH_SQL = """
+            UPDATE chirps SET
+                likes_count = GREATEST(0, likes_count + ?),
+                reposts_count = GREATEST(0, reposts_count + ?),
+                replies_count = GREATEST(0, replies_count + ?)
+            WHERE id = ?
+            """;
+
+    private static final int LOCK_STRIPES = 64;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${engagement.counters.flush-batch-size:500}")
+    private int flushBatchSize;
+
+    private final Map<Long, Cells> pending = new ConcurrentHashMap<>();
+
+    // Los escritores toman el lock de lectura de su franja; el flush toma el de escritura solo
+    // para retirar celdas en cero, de modo que ningún delta se sume a una celda ya descartada
+    private final StampedLock[] stripes = new StampedLock[LOCK_STRIPES];
+
+    // Fuente de las marcas de cambio: una celda recreada nunca repite la marca de la anterior
+    private final AtomicLong changeSequence = new AtomicLong();
+
+    private TransactionTemplate transactionTemplate;
+    private Timer flushTimer;
+    private Counter flushedRows;
+    private Counter flushFailures;
+
+    @PostConstruct
+    public void initialize() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            stripes[i] = new StampedLock();
+        }
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        flushTimer = meterRegistry.timer("engagement.counters.flush.time");
+        flushedRows = meterRegistry.counter("engagement.counters.flushed");
+        flushFailures = meterRegistry.counter("engagement.counters.flush.failures");
+        Gauge.builder("engagement.counters.pending", pending, Map::size).register(meterRegistry);
+    }
+
+    public void addLikes(Long chirpId, int delta) {
+        defer(chirpId, delta, 0, 0);
+    }
+
+    public void addReposts(Long chirpId, int delta) {
+        defer(chirpId, 0, delta, 0);
+    }
+
+    public void addReplies(Long chirpId, int delta) {
+        defer(chirpId, 0, 0, delta);
+    }
+
+    // Deltas combinados por chirp como [likes, reposts], p. ej. de un lote de interacciones
+    public void addAll(Map<Long, long[]> deltas) {
+        deltas.forEach((chirpId, delta) -> defer(chirpId, delta[0], delta[1], 0));
+    }
+
+    // Suma los deltas pendientes a los contadores leídos de la base de datos
+    public ChirpDTO applyPending(ChirpDTO dto) {
+        Cells cells = pending.get(dto.getId());
+        if (cells != null) {
+            dto.setLikesCount((int) Math.max(0, dto.getLikesCount() + cells.likes.sum()));
+            dto.setRepostsCount((int) Math.max(0, dto.getRepostsCount() + cells.reposts.sum()));
+            dto.setRepliesCount((int) Math.max(0, dto.getRepliesCount() + cells.replies.sum()));
+        }
+        return dto;
+    }
+
+    // Deltas aún no persistidos de un chirp como [likes, reposts, respuestas]
+    public long[] pendingDeltas(Long chirpId) {
+        Cells cells = pending.get(chirpId);
+        if (cells == null) {
+            return new long[3];
+        }
+        return new long[] { cells.likes.sum(), cells.reposts.sum(), cells.replies.sum() };
+    }
+
+    /**
+     * Marca de cambios de un chirp: distinta tras cada delta aplicado o
+     * escrito, y -1 mientras haya alguno en vuelo. Si coincide antes y después
+     * de contar las filas reales, lo pendiente leído corresponde a ese conteo.
+     */
+    public long changeStamp(Long chirpId) {
+        Cells cells = pending.get(chirpId);
+        if (cells == null) {
+            return 0;
+        }
+        // Se lee primero el conteo: quien termina actualiza la marca antes de bajarlo
+        return cells.inFlight.get() > 0 ? -1 : cells.stamp;
+    }
+
+    @Scheduled(fixedDelayString = "${engagement.counters.flush-interval-ms:1000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        List<Cells> written = new ArrayList<>();
+        List<Object[]> batch = new ArrayList<>();
+        for (Map.Entry<Long, Cells> entry : pending.entrySet()) {
+            Cells cells = entry.getValue();
+            long likes = cells.likes.sum();
+            long reposts = cells.reposts.sum();
+            long replies = cells.replies.sum();
+            if (likes == 0 && reposts == 0 && replies == 0) {
+                retireIfIdle(entry.getKey(), cells);
+                continue;
+            }
+            // En vuelo desde antes de escribir hasta descontar, así la celda tampoco se retira
+            cells.inFlight.incrementAndGet();
+            written.add(cells);
+            batch.add(new Object[] { likes, reposts, replies, entry.getKey() });
+            if (batch.size() >= flushBatchSize) {
+                write(written, batch);
+                written.clear();
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(written, batch);
+        }
+        flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    // La celda queda en vuelo desde la transacción del delta hasta que este se aplica o se descarta
+    private void defer(Long chirpId, long likes, long reposts, long replies) {
+        Cells cells = track(chirpId);
+        TransactionHooks.afterCompletion(committed -> {
+            if (committed) {
+                cells.likes.add(likes);
+                cells.reposts.add(reposts);
+                cells.replies.add(replies);
+            }
+            cells.stamp = changeSequence.incrementAndGet();
+            cells.inFlight.decrementAndGet();
+        });
+    }
+
+    private Cells track(Long chirpId) {
+        StampedLock lock = stripe(chirpId);
+        long stamp = lock.readLock();
+        try {
+            Cells cells = pending.computeIfAbsent(chirpId, id -> new Cells());
+            cells.inFlight.incrementAndGet();
+            return cells;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private void write(List<Cells> written, List<Object[]> batch) {
+        try {
+            // Todo el lote o nada: si falla a la mitad no queda ninguna fila aplicada
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(FLUSH_SQL, batch));
+        } catch (DataAccessException | TransactionException e) {
+            // El lote se revirtió completo: los deltas se conservan y se reintentan en el siguiente flush
+            flushFailures.increment();
+            log.warn("No se pudieron escribir {} contadores de interacción", batch.size(), e);
+            written.forEach(cells -> cells.inFlight.decrementAndGet());
+            return;
+        }
+        // Ya persistidos: se descuentan de lo pendiente (si el chirp se borró, simplemente se descartan)
+        for (int i = 0; i < batch.size(); i++) {
+            Object[] row = batch.get(i);
+            Cells cells = written.get(i);
+            cells.likes.add(-(long) row[0]);
+            cells.reposts.add(-(long) row[1]);
+            cells.replies.add(-(long) row[2]);
+            cells.stamp = changeSequence.incrementAndGet();
+            cells.inFlight.decrementAndGet();
+        }
+        flushedRows.increment(batch.size());
+    }
+
+    private void retireIfIdle(Long chirpId, Cells cells) {
+        StampedLock lock = stripe(chirpId);
+        long stamp = lock.writeLock();
+        try {
+            if (cells.inFlight.get() == 0
+                    && cells.likes.sum() == 0 && cells.reposts.sum() == 0 && cells.replies.sum() == 0) {
+                pending.remove(chirpId, cells);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private StampedLock stripe(Long chirpId) {
+        return stripes[(int) (chirpId & (LOCK_STRIPES - 1))];
+    }
+
+    private static class Cells {
+        private final LongAdder likes = new LongAdder();
+        private final LongAdder reposts = new LongAdder();
+        private final LongAdder replies = new LongAdder();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private volatile long stamp;
+    }
+}
@@ -0,0 +1,59 @@
+package mx.edu.utez.backend.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+
+/**
+ * Referencia ligera a un elemento del feed (solo IDs y fecha de orden).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FeedEntry {
+
+    public static final Comparator<FeedEntry> NEWEST_FIRST = Comparator
+            .comparing(FeedEntry::getSortTs, Comparator.reverseOrder())
+            .thenComparing(FeedEntry::getChirpId, Comparator.reverseOrder());
+
+    private Long chirpId;
+    private Long authorId;
+    private Long reposterId; // null si no es repost
+    private LocalDateTime sortTs;
+
+    public String key() {
+        return chirpId + ":" + reposterId;
+    }
+
+    /**
+     * Desempate de una entrada en modo pull dentro del cursor del feed. Es
+     * negativo, así a igual fecha va después de las filas de home_timeline
+     * (ids positivos), y conserva el orden por chirpId descendente.
+     */
+    public long pulledEntryId() {
+        return pulledEntryId(chirpId);
+    }
+
+    public static long pulledEntryId(long chirpId) {
+        return chirpId - Long.MAX_VALUE;
+    }
+
+    // chirpId a partir del cual seguir tras el id de un cursor: el de la entrada en modo pull, o
+    // cualquiera si el cursor es una fila de home_timeline (esas van antes a igual fecha)
+    public static long chirpIdBefore(long cursorId) {
+        return cursorId < 0 ? cursorId + Long.MAX_VALUE : Long.MAX_VALUE;
+    }
+
+    // Fila nativa [chirp_id, author_id, reposter_id, sort_ts]
+    public static FeedEntry fromRow(Object[] row) {
+        return new FeedEntry(
+                ((Number) row[0]).longValue(),
+                ((Number) row[1]).longValue(),
+                row[2] != null ? ((Number) row[2]).longValue() : null,
+                row[3] instanceof Timestamp timestamp ? timestamp.toLocalDateTime() : (LocalDateTime) row[3]);
+    }
+}
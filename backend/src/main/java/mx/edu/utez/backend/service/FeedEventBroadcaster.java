@@ -0,0 +1,235 @@
+package mx.edu.utez.backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import mx.edu.utez.backend.dto.response.FeedEventResponse;
+import mx.edu.utez.backend.util.TransactionHooks;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter.SseEventBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Registro en proceso de suscripciones SSE al feed, indexado por el ID del
+ * seguidor. Las conexiones inactivas no ocupan hilos (servlet asíncrono); los
+ * envíos pasan por una cola acotada por conexión que drena un pool pequeño,
+ * y si un cliente no consume a tiempo y su cola se llena, se le desconecta.
+ */
+@Component
+public class FeedEventBroadcaster {
+
+    public static final String NEW_ITEM_EVENT = "new-item";
+
+    @Autowired
+    private FollowGraphCache followGraphCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${feed.stream.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${feed.stream.queue-size:32}")
+    private int queueSize;
+
+    @Value("${feed.stream.send-threads:4}")
+    private int sendThreads;
+
+    @Value("${feed.stream.max-connections-per-user:5}")
+    private int maxConnectionsPerUser;
+
+    private final Map<Long, Set<Subscription>> subscriptions = new ConcurrentHashMap<>();
+    private final AtomicInteger connections = new AtomicInteger();
+
+    private ExecutorService sender;
+    private Counter sent;
+    private Counter dropped;
+
+    @PostConstruct
+    public void initialize() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        sender = Executors.newFixedThreadPool(sendThreads, runnable -> {
+            Thread thread = new Thread(runnable, "feed-stream-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        sent = meterRegistry.counter("feed.stream.sent");
+        dropped = meterRegistry.counter("feed.stream.dropped");
+        Gauge.builder("feed.stream.connections", connections, AtomicInteger::get).register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscriptions.values().forEach(set -> set.forEach(subscription -> subscription.emitter.complete()));
+        sender.shutdownNow();
+    }
+
+    public SseEmitter subscribe(Long userId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscription subscription = new Subscription(userId, emitter);
+        List<Subscription> evicted = new ArrayList<>();
+
+        // El alta y el límite se resuelven en un solo compute: un remove()
+        // concurrente no puede descartar el conjunto entre ambos pasos, ni dos
+        // altas simultáneas pasar juntas el límite
+        subscriptions.compute(userId, (id, userSubscriptions) -> {
+            Set<Subscription> current = userSubscriptions != null ? userSubscriptions : ConcurrentHashMap.newKeySet();
+            // Varias pestañas o dispositivos están bien, pero no sin límite
+            Iterator<Subscription> iterator = current.iterator();
+            while (current.size() >= maxConnectionsPerUser && iterator.hasNext()) {
+                evicted.add(iterator.next());
+                iterator.remove();
+                connections.decrementAndGet();
+            }
+            current.add(subscription);
+            connections.incrementAndGet();
+            return current;
+        });
+        // Se cierran fuera del compute: complete() dispara remove() sobre la misma llave
+        evicted.forEach(old -> old.emitter.complete());
+
+        emitter.onCompletion(() -> remove(subscription));
+        emitter.onTimeout(() -> remove(subscription));
+        emitter.onError(error -> remove(subscription));
+
+        // Primer evento para que el cliente sepa que la conexión quedó abierta
+        subscription.offer(SseEmitter.event().comment("connected"));
+        return emitter;
+    }
+
+    /**
+     * Notifica a los seguidores conectados del actor (autor o quien repostea)
+     * y al propio actor, una vez que la transacción hizo commit.
+     */
+    public void publish(Long actorId, FeedEventResponse event) {
+        TransactionHooks.afterCommit(() -> deliver(actorId, event));
+    }
+
+    @Scheduled(fixedDelayString = "${feed.stream.heartbeat-ms:25000}")
+    public void heartbeat() {
+        // Mantiene viva la conexión a través de proxies y detecta clientes caídos
+        subscriptions.values().forEach(set -> set.forEach(subscription ->
+                subscription.offer(SseEmitter.event().comment("ping"))));
+    }
+
+    public int getConnectionCount() {
+        return connections.get();
+    }
+
+    private void deliver(Long actorId, FeedEventResponse event) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        send(actorId, event);
+
+        // Se recorre el lado más pequeño: seguidores del actor o usuarios conectados
+        long[] followers = followGraphCache.followers(actorId);
+        if (followers.length <= subscriptions.size()) {
+            for (long followerId : followers) {
+                send(followerId, event);
+            }
+        } else {
+            for (Long userId : subscriptions.keySet()) {
+                if (Arrays.binarySearch(followers, userId) >= 0) {
+                    send(userId, event);
+                }
+            }
+        }
+    }
+
+    private void send(Long userId, FeedEventResponse event) {
+        Set<Subscription> userSubscriptions = subscriptions.get(userId);
+        if (userSubscriptions == null) {
+            return;
+        }
+        for (Subscription subscription : userSubscriptions) {
+            subscription.offer(SseEmitter.event()
+                    .name(NEW_ITEM_EVENT)
+                    .data(event, MediaType.APPLICATION_JSON));
+        }
+    }
+
+    private void disconnect(Subscription subscription) {
+        remove(subscription);
+        subscription.emitter.complete();
+    }
+
+    private void remove(Subscription subscription) {
+        subscriptions.computeIfPresent(subscription.userId, (id, userSubscriptions) -> {
+            if (userSubscriptions.remove(subscription)) {
+                connections.decrementAndGet();
+            }
+            return userSubscriptions.isEmpty() ? null : userSubscriptions;
+        });
+    }
+
+    private class Subscription {
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<SseEventBuilder> queue;
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        Subscription(Long userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(queueSize);
+        }
+
+        void offer(SseEventBuilder event) {
+            if (!queue.offer(event)) {
+                // Cliente lento: se corta y el cliente vuelve a conectarse y recarga el feed
+                dropped.increment();
+                disconnect(this);
+                return;
+            }
+            if (draining.compareAndSet(false, true)) {
+                sender.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                SseEventBuilder event;
+                while ((event = queue.poll()) != null) {
+                    emitter.send(event);
+                    sent.increment();
+                }
+            } catch (IOException e) {
+                remove(this);
+                queue.clear();
+                emitter.completeWithError(e);
+            } catch (IllegalStateException e) {
+                // El emitter ya estaba cerrado (timeout o desconexión)
+                remove(this);
+                queue.clear();
+            } finally {
+                draining.set(false);
+            }
+            // Un evento pudo llegar entre el último poll y liberar la marca
+            if (!queue.isEmpty() && draining.compareAndSet(false, true)) {
+                sender.execute(this::drain);
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package mx.edu.utez.backend.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Mezcla k-way de secuencias ya ordenadas por fecha usando un heap con la
+ * cabeza de cada secuencia. Solo se leen las entradas necesarias para llenar
+ * la página, en lugar de ordenar la unión completa.
+ */
+@Component
+public class FeedMergeEngine {
+
+    /**
+     * Devuelve hasta {@code limit} entradas, de la más reciente a la más
+     * antigua. Un chirp que aparece como original y como repost de varios
+     * seguidos se entrega una sola vez (su aparición más reciente).
+     */
+    public List<FeedEntry> merge(List<? extends FeedStream> streams, int limit) {
+        PriorityQueue<FeedStream> heap = new PriorityQueue<>(Math.max(1, streams.size()),
+                (a, b) -> FeedEntry.NEWEST_FIRST.compare(a.peek(), b.peek()));
+        for (FeedStream stream : streams) {
+            if (stream.peek() != null) {
+                heap.add(stream);
+            }
+        }
+
+        Set<Long> seenChirps = new HashSet<>();
+        List<FeedEntry> page = new ArrayList<>(limit);
+        while (page.size() < limit && !heap.isEmpty()) {
+            FeedStream stream = heap.poll();
+            FeedEntry entry = stream.next();
+            if (seenChirps.add(entry.getChirpId())) {
+                page.add(entry);
+            }
+            if (stream.peek() != null) {
+                heap.add(stream);
+            }
+        }
+        return page;
+    }
+}
@@ -0,0 +1,122 @@
+package mx.edu.utez.backend.service;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+/**
+ * Secuencia de entradas de feed ordenada de la más reciente a la más antigua
+ * (por ejemplo, los chirps de un autor o los reposts de un usuario).
+ */
+public interface FeedStream {
+
+    // null cuando la secuencia se terminó
+    FeedEntry peek();
+
+    FeedEntry next();
+
+    static FeedStream of(List<FeedEntry> entries) {
+        return new SliceFeedStream((last, limit) -> last == null ? entries : Collections.emptyList(),
+                Math.max(1, entries.size()));
+    }
+
+    /**
+     * Secuencia que se llena por rebanadas: el loader recibe la última
+     * entrada entregada (null en la primera llamada) y el tamaño de la rebanada.
+     */
+    static FeedStream slices(BiFunction<FeedEntry, Integer, List<FeedEntry>> loader, int sliceSize) {
+        return new SliceFeedStream(loader, sliceSize);
+    }
+
+    /**
+     * Entradas de first y, al agotarse, las de las secuencias que crea then
+     * (todas más antiguas que first), mezcladas entre sí. then solo se invoca
+     * si el consumidor llega hasta ahí.
+     */
+    static FeedStream concat(FeedStream first, Supplier<List<FeedStream>> then) {
+        return new ConcatFeedStream(first, then);
+    }
+
+    class ConcatFeedStream implements FeedStream {
+
+        private final FeedStream first;
+        private final Supplier<List<FeedStream>> then;
+        private List<FeedStream> rest;
+
+        ConcatFeedStream(FeedStream first, Supplier<List<FeedStream>> then) {
+            this.first = first;
+            this.then = then;
+        }
+
+        @Override
+        public FeedEntry peek() {
+            FeedEntry entry = first.peek();
+            if (entry != null) {
+                return entry;
+            }
+            FeedStream newest = newestOfRest();
+            return newest != null ? newest.peek() : null;
+        }
+
+        @Override
+        public FeedEntry next() {
+            if (first.peek() != null) {
+                return first.next();
+            }
+            FeedStream newest = newestOfRest();
+            return newest != null ? newest.next() : null;
+        }
+
+        // Son pocas secuencias (chirps y reposts de un autor): basta con recorrerlas
+        private FeedStream newestOfRest() {
+            if (rest == null) {
+                rest = then.get();
+            }
+            FeedStream newest = null;
+            for (FeedStream stream : rest) {
+                FeedEntry entry = stream.peek();
+                if (entry != null && (newest == null || FeedEntry.NEWEST_FIRST.compare(entry, newest.peek()) < 0)) {
+                    newest = stream;
+                }
+            }
+            return newest;
+        }
+    }
+
+    class SliceFeedStream implements FeedStream {
+
+        private final BiFunction<FeedEntry, Integer, List<FeedEntry>> loader;
+        private final int sliceSize;
+        private final Deque<FeedEntry> buffer = new ArrayDeque<>();
+        private FeedEntry last;
+        private boolean exhausted;
+
+        SliceFeedStream(BiFunction<FeedEntry, Integer, List<FeedEntry>> loader, int sliceSize) {
+            this.loader = loader;
+            this.sliceSize = sliceSize;
+        }
+
+        @Override
+        public FeedEntry peek() {
+            if (buffer.isEmpty() && !exhausted) {
+                List<FeedEntry> slice = loader.apply(last, sliceSize);
+                buffer.addAll(slice);
+                exhausted = slice.size() < sliceSize;
+            }
+            return buffer.peekFirst();
+        }
+
+        @Override
+        public FeedEntry next() {
+            FeedEntry entry = peek();
+            if (entry != null) {
+                buffer.removeFirst();
+                last = entry;
+            }
+            return entry;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package mx.edu.utez.backend.service;
+
+import com.google.firebase.messaging.BatchResponse;
+import com.google.firebase.messaging.FirebaseMessaging;
+import com.google.firebase.messaging.Message;
+import com.google.firebase.messaging.MessagingErrorCode;
+import com.google.firebase.messaging.Notification;
+import com.google.firebase.messaging.SendResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Envía los lotes con FirebaseMessaging.sendEach (hasta 500 mensajes por
+ * llamada) y clasifica el error de cada mensaje.
+ */
+@Component
+@ConditionalOnProperty(name = "push.transport", havingValue = "firebase", matchIfMissing = true)
+public class FirebasePushTransport implements PushTransport {
+
+    private static final int FIREBASE_MAX_BATCH = 500;
+
+    @Autowired
+    private FirebaseService firebaseService;
+
+    @Override
+    public int maxBatchSize() {
+        return FIREBASE_MAX_BATCH;
+    }
+
+    @Override
+    public List<Result> send(List<PushMessage> messages) throws Exception {
+        if (!firebaseService.isInitialized()) {
+            // Sin credenciales no hay a dónde enviar; no tiene sentido reintentar
+            return new ArrayList<>(Collections.nCopies(messages.size(), Result.SKIPPED));
+        }
+
+        List<Message> batch = messages.stream()
+                .map(message -> Message.builder()
+                        .setToken(message.getToken())
+                        .setNotification(Notification.builder()
+                                .setTitle(message.getTitle())
+                                .setBody(message.getBody())
+                                .build())
+                        .build())
+                .collect(Collectors.toList());
+
+        BatchResponse response = FirebaseMessaging.getInstance().sendEach(batch);
+        List<Result> results = new ArrayList<>(messages.size());
+        for (SendResponse sendResponse : response.getResponses()) {
+            results.add(classify(sendResponse));
+        }
+        return results;
+    }
+
+    private Result classify(SendResponse response) {
+        if (response.isSuccessful()) {
+            return Result.SENT;
+        }
+        MessagingErrorCode code = response.getException() != null
+                ? response.getException().getMessagingErrorCode()
+                : null;
+        // Solo estos códigos dicen que el token no sirve; INVALID_ARGUMENT también sale por un
+        // payload inválido y borrar el token dejaría sin push a un dispositivo válido
+        if (code == MessagingErrorCode.UNREGISTERED || code == MessagingErrorCode.SENDER_ID_MISMATCH) {
+            return Result.INVALID_TOKEN;
+        }
+        if (code == MessagingErrorCode.INVALID_ARGUMENT) {
+            return Result.REJECTED;
+        }
+        return Result.RETRY;
+    }
+}
@@ -0,0 +1,193 @@
+package mx.edu.utez.backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import mx.edu.utez.backend.repository.FollowRepository;
+import mx.edu.utez.backend.util.TransactionHooks;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Índice en memoria del grafo de seguimiento. Cada lista de adyacencia
+ * (seguidos o seguidores de un usuario) se guarda como un long[] ordenado,
+ * se carga de forma perezosa y se expulsa por LRU cuando se supera el
+ * presupuesto de memoria. follow/unfollow la actualizan de forma incremental
+ * después del commit.
+ */
+@Component
+public class FollowGraphCache {
+
+    // Costo aproximado por entrada además del arreglo (nodo del mapa, llave, header del arreglo)
+    private static final long ENTRY_OVERHEAD_BYTES = 96;
+    private static final int GENERATION_STRIPES = 1024;
+
+    @Autowired
+    private FollowRepository followRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${follow-graph.memory-budget-bytes:67108864}")
+    private long memoryBudgetBytes;
+
+    // Llave: userId * 2 + dirección (0 = seguidos, 1 = seguidores)
+    private final LinkedHashMap<Long, long[]> adjacency = new LinkedHashMap<>(1024, 0.75f, true);
+    private long usedBytes;
+
+    // Se incrementa en cada mutación para no cachear una carga que se cruzó con un follow/unfollow
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    private Counter hits;
+    private Counter misses;
+    private Counter evictions;
+
+    @PostConstruct
+    public void initialize() {
+        hits = meterRegistry.counter("follow.graph.hits");
+        misses = meterRegistry.counter("follow.graph.misses");
+        evictions = meterRegistry.counter("follow.graph.evictions");
+        Gauge.builder("follow.graph.bytes", this, FollowGraphCache::getUsedBytes).register(meterRegistry);
+        Gauge.builder("follow.graph.entries", this, FollowGraphCache::getEntryCount).register(meterRegistry);
+    }
+
+    public long[] following(Long userId) {
+        return adjacency(userId, false);
+    }
+
+    public long[] followers(Long userId) {
+        return adjacency(userId, true);
+    }
+
+    public boolean isFollowing(Long followerId, Long followingId) {
+        return Arrays.binarySearch(following(followerId), followingId) >= 0;
+    }
+
+    public Set<Long> followingAmong(Long followerId, Collection<Long> userIds) {
+        long[] following = following(followerId);
+        Set<Long> result = new HashSet<>();
+        for (Long userId : userIds) {
+            if (Arrays.binarySearch(following, userId) >= 0) {
+                result.add(userId);
+            }
+        }
+        return result;
+    }
+
+    public void onFollow(Long followerId, Long followingId) {
+        TransactionHooks.afterCommit(() -> {
+            update(key(followerId, false), followingId, true);
+            update(key(followingId, true), followerId, true);
+        });
+    }
+
+    public void onUnfollow(Long followerId, Long followingId) {
+        TransactionHooks.afterCommit(() -> {
+            update(key(followerId, false), followingId, false);
+            update(key(followingId, true), followerId, false);
+        });
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public synchronized int getEntryCount() {
+        return adjacency.size();
+    }
+
+    private long[] adjacency(Long userId, boolean followers) {
+        long key = key(userId, followers);
+        synchronized (this) {
+            long[] cached = adjacency.get(key);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+        }
+        misses.increment();
+
+        long generation = generations.get(stripe(key));
+        List<Long> ids = followers
+                ? followRepository.findFollowerIdsByUserId(userId)
+                : followRepository.findFollowingIdsByUserId(userId);
+        long[] loaded = ids.stream().mapToLong(Long::longValue).sorted().toArray();
+
+        synchronized (this) {
+            if (generations.get(stripe(key)) == generation && !adjacency.containsKey(key)) {
+                put(key, loaded);
+            }
+        }
+        return loaded;
+    }
+
+    // Los arreglos son inmutables: cada cambio crea una copia con el elemento insertado o quitado
+    private void update(long key, long id, boolean add) {
+        generations.incrementAndGet(stripe(key));
+        synchronized (this) {
+            long[] current = adjacency.get(key);
+            if (current == null) {
+                return; // no está cargado; se leerá de la base de datos cuando se necesite
+            }
+            int index = Arrays.binarySearch(current, id);
+            long[] updated;
+            if (add && index < 0) {
+                int insertAt = -index - 1;
+                updated = new long[current.length + 1];
+                System.arraycopy(current, 0, updated, 0, insertAt);
+                updated[insertAt] = id;
+                System.arraycopy(current, insertAt, updated, insertAt + 1, current.length - insertAt);
+            } else if (!add && index >= 0) {
+                updated = new long[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, index);
+                System.arraycopy(current, index + 1, updated, index, current.length - index - 1);
+            } else {
+                return;
+            }
+            put(key, updated);
+        }
+    }
+
+    private void put(long key, long[] ids) {
+        long[] previous = adjacency.put(key, ids);
+        if (previous != null) {
+            usedBytes -= sizeOf(previous);
+        }
+        usedBytes += sizeOf(ids);
+
+        Iterator<Map.Entry<Long, long[]>> eldest = adjacency.entrySet().iterator();
+        while (usedBytes > memoryBudgetBytes && eldest.hasNext()) {
+            Map.Entry<Long, long[]> entry = eldest.next();
+            if (entry.getKey() == key) {
+                continue;
+            }
+            usedBytes -= sizeOf(entry.getValue());
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private static long sizeOf(long[] ids) {
+        return ENTRY_OVERHEAD_BYTES + 8L * ids.length;
+    }
+
+    private static long key(Long userId, boolean followers) {
+        return userId * 2 + (followers ? 1 : 0);
+    }
+
+    private static int stripe(long key) {
+        return (int) (Long.hashCode(key) & (GENERATION_STRIPES - 1));
+    }
+}
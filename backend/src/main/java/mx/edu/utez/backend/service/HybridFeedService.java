@@ -0,0 +1,388 @@
+package mx.edu.utez.backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import mx.edu.utez.backend.model.User;
+import mx.edu.utez.backend.repository.TimelineRepository;
+import mx.edu.utez.backend.repository.UserRepository;
+import mx.edu.utez.backend.util.FeedCursor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Modo híbrido push/pull del feed. Los autores con al menos
+ * {@code threshold} seguidores no hacen fan-out al escribir: sus chirps y
+ * reposts recientes se guardan en un buffer circular por autor y se mezclan
+ * en el timeline de cada seguidor al leer; al paginar más allá del buffer se
+ * sigue con rebanadas de sus chirps y reposts en la base de datos. Cuando un autor deja de superar
+ * el umbral, lo que publicó en modo pull se copia a los timelines de sus
+ * seguidores en segundo plano y su buffer se sigue mezclando hasta terminar.
+ */
+@Service
+public class HybridFeedService {
+
+    private static final Logger log = LoggerFactory.getLogger(HybridFeedService.class);
+
+    // Límite superior al seguir desde la base de datos con el buffer vacío (el máximo de DATETIME en MySQL)
+    private static final LocalDateTime END_OF_TIME = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+    private static final String BACKFILL_SQL =
+            "INSERT IGNORE INTO home_timeline (owner_id, chirp_id, author_id, reposter_id, sort_ts) VALUES (?, ?, ?, ?, ?)";
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private FollowGraphCache followGraphCache;
+
+    @Autowired
+    private TimelineRepository timelineRepository;
+
+    @Autowired
+    private FeedMergeEngine feedMergeEngine;
+
+    @Autowired
+    private AuthorFeedStreams authorFeedStreams;
+
+    @Autowired
+    private VersionStampService versionStampService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${feed.hybrid.celebrity-threshold:10000}")
+    private int initialThreshold;
+
+    @Value("${feed.hybrid.ring-size:200}")
+    private int ringSize;
+
+    // Seguidores por tramo al copiar las entradas de un autor que deja el modo pull
+    @Value("${feed.hybrid.demotion-chunk-size:500}")
+    private int demotionChunkSize;
+
+    private final AtomicInteger threshold = new AtomicInteger();
+    private final Set<Long> celebrityIds = ConcurrentHashMap.newKeySet();
+    // Autores que dejaron el modo pull y cuyas entradas aún se están copiando a los timelines
+    private final Set<Long> drainingIds = ConcurrentHashMap.newKeySet();
+    private final Map<Long, AuthorRing> rings = new ConcurrentHashMap<>();
+
+    private final ExecutorService demotionExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "feed-demotion-backfill");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private Timer fanOutTimer;
+    private DistributionSummary fanOutRows;
+    private Counter fanOutSkipped;
+    private Timer mergeTimer;
+    private DistributionSummary mergeSources;
+
+    @PostConstruct
+    public void initialize() {
+        threshold.set(initialThreshold);
+
+        fanOutTimer = Timer.builder("feed.fanout.time")
+                .description("Tiempo de escritura del fan-out en home_timeline")
+                .register(meterRegistry);
+        fanOutRows = DistributionSummary.builder("feed.fanout.rows")
+                .description("Filas escritas en home_timeline por fan-out")
+                .register(meterRegistry);
+        fanOutSkipped = Counter.builder("feed.fanout.skipped")
+                .description("Escrituras de autores con muchos seguidores que no hicieron fan-out")
+                .register(meterRegistry);
+        mergeTimer = Timer.builder("feed.merge.time")
+                .description("Tiempo de mezcla en lectura de los buffers de autores")
+                .register(meterRegistry);
+        mergeSources = DistributionSummary.builder("feed.merge.sources")
+                .description("Buffers de autores mezclados por lectura del feed")
+                .register(meterRegistry);
+        Gauge.builder("feed.hybrid.threshold", threshold, AtomicInteger::get).register(meterRegistry);
+        Gauge.builder("feed.hybrid.celebrities", celebrityIds, Set::size).register(meterRegistry);
+        Gauge.builder("feed.hybrid.draining", drainingIds, Set::size).register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        demotionExecutor.shutdownNow();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadCelebrities() {
+        celebrityIds.clear();
+        celebrityIds.addAll(userRepository.findIdsWithFollowersAtLeast(threshold.get()));
+    }
+
+    public int getThreshold() {
+        return threshold.get();
+    }
+
+    /**
+     * Cambia el umbral en caliente. Los autores que dejan de superarlo
+     * vuelven a hacer fan-out en su siguiente escritura; lo que publicaron en
+     * modo pull se copia a los timelines de sus seguidores.
+     */
+    public void setThreshold(int newThreshold) {
+        Set<Long> previous = new HashSet<>(celebrityIds);
+        threshold.set(newThreshold);
+        loadCelebrities();
+        previous.removeAll(celebrityIds);
+        previous.forEach(this::demote);
+        versionStampService.bumpAllTimelines();
+    }
+
+    public int getCelebrityCount() {
+        return celebrityIds.size();
+    }
+
+    public int getRingCount() {
+        return rings.size();
+    }
+
+    public boolean isCelebrity(User user) {
+        if (user.getFollowersCount() >= threshold.get()) {
+            celebrityIds.add(user.getId());
+            return true;
+        }
+        if (celebrityIds.remove(user.getId())) {
+            demote(user.getId());
+        }
+        return false;
+    }
+
+    public void recordFanOut(long startNanos, int rows) {
+        fanOutTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        fanOutRows.record(rows);
+    }
+
+    // Guarda el chirp o repost en el buffer de quien lo publicó en lugar de hacer fan-out
+    public void append(Long sourceUserId, FeedEntry entry) {
+        fanOutSkipped.increment();
+        ring(sourceUserId).add(entry);
+    }
+
+    public void removeChirp(Long chirpId) {
+        rings.values().forEach(ring -> ring.removeIf(entry -> entry.getChirpId().equals(chirpId)));
+    }
+
+    public void removeRepost(Long chirpId, Long reposterId) {
+        AuthorRing ring = rings.get(reposterId);
+        if (ring != null) {
+            ring.removeIf(entry -> entry.getChirpId().equals(chirpId) && reposterId.equals(entry.getReposterId()));
+        }
+    }
+
+    /**
+     * Entradas de los autores con muchos seguidores que sigue el usuario,
+     * más recientes que el cursor (si lo hay), ordenadas y limitadas.
+     */
+    public List<FeedEntry> pullEntries(Long ownerId, FeedCursor before, int limit) {
+        if (celebrityIds.isEmpty() && drainingIds.isEmpty()) {
+            return List.of();
+        }
+        long start = System.nanoTime();
+
+        List<Long> followedCelebrities = followedCelebrities(ownerId);
+        if (followedCelebrities.isEmpty()) {
+            return List.of();
+        }
+
+        // Mismo orden que las rebanadas por autor: fecha y luego chirpId, ambos descendentes
+        long beforeChirpId = before != null ? FeedEntry.chirpIdBefore(before.getId()) : Long.MAX_VALUE;
+        Predicate<FeedEntry> olderThanCursor = entry -> before == null
+                || entry.getSortTs().isBefore(before.getSortDate())
+                || (entry.getSortTs().isEqual(before.getSortDate()) && entry.getChirpId() < beforeChirpId);
+
+        List<FeedStream> streams = new ArrayList<>();
+        for (Long celebrityId : followedCelebrities) {
+            streams.add(pullStream(celebrityId, before, beforeChirpId, olderThanCursor, limit));
+        }
+        List<FeedEntry> result = feedMergeEngine.merge(streams, limit);
+
+        mergeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        mergeSources.record(followedCelebrities.size());
+        return result;
+    }
+
+    /**
+     * Entradas del buffer del autor y, si el merge llega a agotarlo, sus
+     * chirps y reposts más antiguos desde la base de datos: el buffer solo
+     * guarda las ringSize más recientes.
+     */
+    private FeedStream pullStream(Long authorId, FeedCursor before, long beforeChirpId,
+            Predicate<FeedEntry> olderThanCursor, int limit) {
+        AuthorRing ring = ring(authorId);
+        List<FeedEntry> snapshot = ring.snapshot();
+        // Sin recortar: si el merge descarta duplicados y sigue leyendo, no debe saltarse entradas del buffer
+        FeedStream buffered = FeedStream.of(snapshot.stream()
+                .filter(olderThanCursor)
+                .collect(Collectors.toList()));
+        if (ring.isComplete()) {
+            return buffered;
+        }
+        // Se sigue desde la entrada más antigua del buffer, o desde el cursor si es anterior
+        FeedEntry oldest = snapshot.isEmpty() ? null : snapshot.get(snapshot.size() - 1);
+        boolean fromCursor = before != null && (oldest == null || !olderThanCursor.test(oldest));
+        LocalDateTime fromTs = fromCursor ? before.getSortDate() : oldest != null ? oldest.getSortTs() : END_OF_TIME;
+        long fromChirpId = fromCursor ? beforeChirpId : oldest != null ? oldest.getChirpId() : Long.MAX_VALUE;
+        return FeedStream.concat(buffered, () -> authorFeedStreams.entriesBefore(authorId, fromTs, fromChirpId, limit));
+    }
+
+    // Autores en modo pull que sigue el usuario, incluidos los que están saliendo de él
+    public List<Long> followedCelebrities(Long ownerId) {
+        if (celebrityIds.isEmpty() && drainingIds.isEmpty()) {
+            return List.of();
+        }
+        long[] following = followGraphCache.following(ownerId);
+        Set<Long> sources = new HashSet<>(celebrityIds);
+        sources.addAll(drainingIds);
+        return sources.stream()
+                .filter(celebrityId -> Arrays.binarySearch(following, celebrityId) >= 0)
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    // El buffer se sigue mezclando en lectura hasta que sus entradas estén en home_timeline
+    private void demote(Long userId) {
+        if (!drainingIds.add(userId)) {
+            return;
+        }
+        demotionExecutor.execute(() -> {
+            try {
+                backfillFollowers(userId);
+                if (!celebrityIds.contains(userId)) {
+                    rings.remove(userId);
+                }
+                drainingIds.remove(userId);
+                versionStampService.bumpAuthorStream(userId);
+            } catch (DataAccessException e) {
+                // Su buffer se sigue mezclando en lectura, así sus entradas no desaparecen del feed
+                log.warn("No se pudo copiar el feed del autor {} a sus seguidores", userId, e);
+            }
+        });
+    }
+
+    /**
+     * Copia las entradas recientes del autor (las mismas que cargaría su
+     * buffer) a los timelines de sus seguidores, por tramos de seguidores y
+     * con INSERT IGNORE para no duplicar lo que ya llegó por fan-out o backfill.
+     */
+    private void backfillFollowers(Long userId) {
+        List<FeedEntry> entries = timelineRepository.findRecentEntriesByUser(userId, ringSize).stream()
+                .map(FeedEntry::fromRow)
+                .collect(Collectors.toList());
+        if (entries.isEmpty()) {
+            return;
+        }
+        long cursor = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            List<Long> followerIds = jdbcTemplate.queryForList(
+                    "SELECT follower_id FROM follows WHERE following_id = ? AND follower_id > ? "
+                            + "ORDER BY follower_id LIMIT ?",
+                    Long.class, userId, cursor, demotionChunkSize);
+            if (followerIds.isEmpty()) {
+                return;
+            }
+            List<Object[]> rows = new ArrayList<>(followerIds.size() * entries.size());
+            for (Long followerId : followerIds) {
+                for (FeedEntry entry : entries) {
+                    rows.add(new Object[] { followerId, entry.getChirpId(), entry.getAuthorId(),
+                            entry.getReposterId(), entry.getSortTs() });
+                }
+            }
+            jdbcTemplate.batchUpdate(BACKFILL_SQL, rows);
+            versionStampService.bumpTimelines(userId,
+                    followerIds.stream().mapToLong(Long::longValue).toArray());
+            cursor = followerIds.get(followerIds.size() - 1);
+        }
+    }
+
+    private AuthorRing ring(Long userId) {
+        return rings.computeIfAbsent(userId, this::loadRing);
+    }
+
+    // Al crear el buffer (arranque o nuevo autor) se llena con sus entradas más recientes
+    private AuthorRing loadRing(Long userId) {
+        List<Object[]> rows = timelineRepository.findRecentEntriesByUser(userId, ringSize);
+        AuthorRing ring = new AuthorRing(ringSize, rows.size() < ringSize);
+        for (int i = rows.size() - 1; i >= 0; i--) {
+            ring.add(FeedEntry.fromRow(rows.get(i)));
+        }
+        return ring;
+    }
+
+    /**
+     * Buffer circular acotado con las entradas más recientes de un autor.
+     */
+    static class AuthorRing {
+
+        private final int capacity;
+        private final ArrayDeque<FeedEntry> entries;
+        // Tiene todas las entradas del autor: ni la carga inicial llenó el buffer ni se descartó ninguna
+        private boolean complete;
+
+        AuthorRing(int capacity, boolean complete) {
+            this.capacity = capacity;
+            this.entries = new ArrayDeque<>(capacity);
+            this.complete = complete;
+        }
+
+        synchronized void add(FeedEntry entry) {
+            String key = entry.key();
+            if (entries.stream().anyMatch(existing -> existing.key().equals(key))) {
+                return;
+            }
+            entries.addFirst(entry);
+            if (entries.size() > capacity) {
+                entries.removeLast();
+                complete = false;
+            }
+        }
+
+        synchronized boolean isComplete() {
+            return complete;
+        }
+
+        synchronized void removeIf(Predicate<FeedEntry> filter) {
+            entries.removeIf(filter);
+        }
+
+        // Más recientes primero
+        synchronized List<FeedEntry> snapshot() {
+            List<FeedEntry> snapshot = new ArrayList<>(entries);
+            snapshot.sort(FeedEntry.NEWEST_FIRST);
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package mx.edu.utez.backend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Transporte en memoria para pruebas de carga y desarrollo local: no usa la
+ * red, simula la latencia de un lote y guarda los últimos mensajes. Los tokens
+ * con el prefijo configurado se reportan como inválidos.
+ */
+@Component
+@ConditionalOnProperty(name = "push.transport", havingValue = "loopback")
+public class LoopbackPushTransport implements PushTransport {
+
+    private static final int RECENT_LIMIT = 1000;
+
+    @Value("${push.loopback.latency-ms:0}")
+    private long latencyMs;
+
+    @Value("${push.loopback.invalid-token-prefix:invalid-}")
+    private String invalidTokenPrefix;
+
+    private final AtomicLong delivered = new AtomicLong();
+    private final Deque<PushMessage> recent = new ArrayDeque<>();
+
+    @Override
+    public int maxBatchSize() {
+        return 500;
+    }
+
+    @Override
+    public List<Result> send(List<PushMessage> messages) throws Exception {
+        if (latencyMs > 0) {
+            Thread.sleep(latencyMs);
+        }
+        List<Result> results = new ArrayList<>(messages.size());
+        for (PushMessage message : messages) {
+            if (message.getToken().startsWith(invalidTokenPrefix)) {
+                results.add(Result.INVALID_TOKEN);
+                continue;
+            }
+            results.add(Result.SENT);
+            delivered.incrementAndGet();
+            remember(message);
+        }
+        return results;
+    }
+
+    public long getDeliveredCount() {
+        return delivered.get();
+    }
+
+    public synchronized List<PushMessage> getRecentMessages() {
+        return new ArrayList<>(recent);
+    }
+
+    private synchronized void remember(PushMessage message) {
+        recent.addLast(message);
+        if (recent.size() > RECENT_LIMIT) {
+            recent.removeFirst();
+        }
+    }
+}
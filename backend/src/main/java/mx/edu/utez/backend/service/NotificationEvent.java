@@ -0,0 +1,27 @@
+package mx.edu.utez.backend.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import mx.edu.utez.backend.model.NotificationType;
+
+import java.time.LocalDateTime;
+
+/**
+ * Notificación pendiente de escribir y enviar por push. Solo lleva IDs y
+ * textos para no retener entidades JPA fuera de su transacción.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationEvent {
+    private NotificationType type;
+    private Long actorId;
+    private String actorName;
+    private Long recipientId;
+    private Long chirpId; // null para FOLLOW
+    private String content; // texto para replies y menciones
+    private String pushTitle;
+    private String pushBody;
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,597 @@
+package mx.edu.utez.backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import mx.edu.utez.backend.model.NotificationType;
+import mx.edu.utez.backend.repository.UserRepository;
+import mx.edu.utez.backend.util.TransactionHooks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.SqlTypeValue;
+import org.springframework.jdbc.core.StatementCreatorUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Pipeline asíncrono de notificaciones. Después del commit, cada evento entra
+ * en una cola acotada (particionada por destinatario para conservar el orden
+ * de cada usuario); los workers la drenan en lotes, escriben las filas con
+ * JDBC batch y pasan el lote a una etapa de push separada. Así la latencia de
+ * like/repost/follow no depende de la base de notificaciones ni de Firebase.
+ */
+@Service
+public class NotificationPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationPipeline.class);
+
+    private static final String INSERT_SQL = """
+            INSERT INTO notifications (type, actor_id, user_id, chirp_id, content, is_read, created_at,
+                actor_count, recent_actor_ids, last_activity_at)
+            VALUES (?, ?, ?, ?, ?, false, ?, ?, ?, ?)
+            """;
+
+    private static final String MERGE_SQL = """
+            UPDATE notifications
+            SET actor_id = ?, actor_count = ?, recent_actor_ids = ?, last_activity_at = ?
+            WHERE id = ?
+            """;
+
+    private static final String INSERT_ACTOR_SQL =
+            "INSERT IGNORE INTO notification_actors (notification_id, actor_id) VALUES (?, ?)";
+
+    // Solo se agrupan las notificaciones sin texto propio
+    private static final Set<NotificationType> COALESCED_TYPES = EnumSet.of(
+            NotificationType.LIKE, NotificationType.REPOST, NotificationType.FOLLOW);
+    private static final int RECENT_ACTORS = 3;
+
+    private static final Map<NotificationType, String> GROUPED_PUSH_BODIES = Map.of(
+            NotificationType.LIKE, "%s y %d más le dieron like a tu chirp",
+            NotificationType.REPOST, "%s y %d más repostearon tu chirp",
+            NotificationType.FOLLOW, "%s y %d más comenzaron a seguirte");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PushDispatcher pushDispatcher;
+
+    @Autowired
+    private VersionStampService versionStampService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${notifications.pipeline.partitions:4}")
+    private int partitionCount;
+
+    @Value("${notifications.pipeline.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${notifications.pipeline.batch-size:200}")
+    private int batchSize;
+
+    @Value("${notifications.pipeline.offer-timeout-ms:50}")
+    private long offerTimeoutMs;
+
+    @Value("${notifications.pipeline.push-threads:2}")
+    private int pushThreads;
+
+    @Value("${notifications.pipeline.push-queue-capacity:1000}")
+    private int pushQueueCapacity;
+
+    @Value("${notifications.coalesce.window-minutes:60}")
+    private long coalesceWindowMinutes;
+
+    @Value("${notifications.coalesce.push-interval-ms:300000}")
+    private long groupPushIntervalMs;
+
+    // Último push por grupo (destinatario, tipo, chirp) para no repetir push del mismo grupo
+    private final Map<String, Long> lastGroupPush = new ConcurrentHashMap<>();
+
+    private List<BlockingQueue<NotificationEvent>> partitions;
+    private List<Thread> workers;
+    private ThreadPoolExecutor pushExecutor;
+    private volatile boolean running = true;
+
+    private Counter written;
+    private Counter overflow;
+    private Counter dropped;
+    private Counter writeFailures;
+    private Counter pushDropped;
+    private Counter coalesced;
+    private Counter pushSuppressed;
+
+    @PostConstruct
+    public void initialize() {
+        written = meterRegistry.counter("notifications.pipeline.written");
+        overflow = meterRegistry.counter("notifications.pipeline.overflow");
+        dropped = meterRegistry.counter("notifications.pipeline.dropped");
+        writeFailures = meterRegistry.counter("notifications.pipeline.write.failures");
+        pushDropped = meterRegistry.counter("notifications.push.dropped");
+        coalesced = meterRegistry.counter("notifications.pipeline.coalesced");
+        pushSuppressed = meterRegistry.counter("notifications.push.suppressed");
+        Gauge.builder("notifications.pipeline.queued", this, NotificationPipeline::getQueuedCount)
+                .register(meterRegistry);
+
+        AtomicInteger pushThreadNumber = new AtomicInteger();
+        pushExecutor = new ThreadPoolExecutor(pushThreads, pushThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(pushQueueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "notification-push-" + pushThreadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        partitions = new ArrayList<>(partitionCount);
+        workers = new ArrayList<>(partitionCount);
+        for (int i = 0; i < partitionCount; i++) {
+            BlockingQueue<NotificationEvent> queue = new ArrayBlockingQueue<>(queueCapacity);
+            partitions.add(queue);
+            Thread worker = new Thread(() -> drainLoop(queue), "notification-writer-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    /**
+     * Encola la notificación cuando la transacción actual hace commit; si se
+     * revierte, la notificación nunca se escribe ni se envía.
+     */
+    public void publish(NotificationEvent event) {
+        if (event.getCreatedAt() == null) {
+            event.setCreatedAt(LocalDateTime.now());
+        }
+        TransactionHooks.afterCommit(() -> enqueue(event));
+    }
+
+    // Igual que publish pero con un único hook para todo el lote
+    public void publishAll(List<NotificationEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (NotificationEvent event : events) {
+            if (event.getCreatedAt() == null) {
+                event.setCreatedAt(now);
+            }
+        }
+        TransactionHooks.afterCommit(() -> events.forEach(this::enqueue));
+    }
+
+    public int getQueuedCount() {
+        return partitions.stream().mapToInt(BlockingQueue::size).sum();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+        for (Thread worker : workers) {
+            try {
+                worker.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Lo que quedó en cola se escribe antes de cerrar (sin push)
+        for (BlockingQueue<NotificationEvent> queue : partitions) {
+            List<NotificationEvent> remaining = new ArrayList<>();
+            queue.drainTo(remaining);
+            if (!remaining.isEmpty()) {
+                write(remaining);
+            }
+        }
+        pushExecutor.shutdown();
+    }
+
+    private void enqueue(NotificationEvent event) {
+        BlockingQueue<NotificationEvent> queue = partitions.get(
+                (int) Math.floorMod(event.getRecipientId(), (long) partitionCount));
+        if (queue.offer(event)) {
+            return;
+        }
+        // Cola llena: se frena brevemente al productor y, si sigue llena, se descarta
+        overflow.increment();
+        try {
+            if (queue.offer(event, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        dropped.increment();
+    }
+
+    private void drainLoop(BlockingQueue<NotificationEvent> queue) {
+        List<NotificationEvent> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, batchSize - 1);
+            try {
+                List<NotificationEvent> stored = write(batch);
+                if (!stored.isEmpty()) {
+                    schedulePush(stored);
+                }
+            } catch (RuntimeException e) {
+                // El worker no debe morir por un lote; se cuenta y se sigue
+                writeFailures.increment(batch.size());
+                log.error("Error inesperado al escribir {} notificaciones", batch.size(), e);
+            }
+            batch.clear();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${notifications.coalesce.push-interval-ms:300000}")
+    public void evictPushHistory() {
+        long cutoff = System.currentTimeMillis() - groupPushIntervalMs;
+        lastGroupPush.values().removeIf(pushedAt -> pushedAt < cutoff);
+    }
+
+    /**
+     * Escribe el lote agrupando likes/reposts/follows por (destinatario, tipo,
+     * chirp): primero dentro del lote y luego contra el grupo no leído más
+     * reciente de la ventana. Devuelve los push que hay que enviar (uno por
+     * grupo como máximo y limitado por intervalo).
+     */
+    private List<NotificationEvent> write(List<NotificationEvent> batch) {
+        List<Group> groups = new ArrayList<>();
+        Map<String, Group> byKey = new HashMap<>();
+        for (NotificationEvent event : batch) {
+            if (!COALESCED_TYPES.contains(event.getType())) {
+                groups.add(new Group(null, event));
+                continue;
+            }
+            String key = groupKey(event.getRecipientId(), event.getType().name(), event.getChirpId());
+            Group group = byKey.get(key);
+            if (group == null) {
+                group = new Group(key, event);
+                byKey.put(key, group);
+                groups.add(group);
+            } else {
+                group.add(event);
+            }
+        }
+        if (!byKey.isEmpty()) {
+            attachOpenGroups(byKey);
+        }
+
+        List<Group> merging = new ArrayList<>();
+        List<Group> inserts = new ArrayList<>();
+        for (Group group : groups) {
+            if (group.existingId != null) {
+                merging.add(group);
+            } else {
+                inserts.add(group);
+            }
+        }
+
+        List<Group> stored = new ArrayList<>(groups.size());
+        stored.addAll(mergeAll(merging));
+        stored.addAll(insert(inserts));
+
+        written.increment(stored.size());
+        coalesced.increment(batch.size() - groups.size());
+        stored.stream().map(group -> group.latest.getRecipientId()).distinct()
+                .forEach(versionStampService::bumpNotifications);
+        return pushesFor(stored);
+    }
+
+    private List<Group> mergeAll(List<Group> merging) {
+        if (merging.isEmpty()) {
+            return merging;
+        }
+        try {
+            merge(merging);
+            return merging;
+        } catch (DataAccessException e) {
+            // Igual que en insert: se reintenta fila por fila y solo se pierde el grupo que falla
+            log.warn("Falló la actualización en lote de {} notificaciones agrupadas; se reintenta por fila",
+                    merging.size(), e);
+            List<Group> stored = new ArrayList<>(merging.size());
+            for (Group group : merging) {
+                try {
+                    merge(List.of(group));
+                    stored.add(group);
+                } catch (DataAccessException rowError) {
+                    writeFailures.increment();
+                }
+            }
+            return stored;
+        }
+    }
+
+    /**
+     * Registra los actores del lote en cada grupo abierto (INSERT IGNORE, así
+     * un actor repetido no suma) y toma actor_count del total de filas. Los
+     * actores recientes ya guardados también se registran, para grupos
+     * creados antes de existir notification_actors.
+     */
+    private void merge(List<Group> merging) {
+        List<Object[]> actorRows = new ArrayList<>();
+        for (Group group : merging) {
+            Set<Long> actors = new LinkedHashSet<>(group.actors);
+            actors.addAll(group.recentActors);
+            actors.forEach(actorId -> actorRows.add(new Object[] { group.existingId, actorId }));
+        }
+        jdbcTemplate.batchUpdate(INSERT_ACTOR_SQL, actorRows);
+
+        List<Long> ids = merging.stream().map(group -> group.existingId).collect(Collectors.toList());
+        Map<Long, Integer> counts = new HashMap<>();
+        jdbcTemplate.query("SELECT notification_id, COUNT(*) FROM notification_actors WHERE notification_id IN ("
+                + String.join(",", Collections.nCopies(ids.size(), "?")) + ") GROUP BY notification_id",
+                rs -> {
+                    counts.put(rs.getLong(1), rs.getInt(2));
+                }, ids.toArray());
+
+        List<Object[]> merges = new ArrayList<>(merging.size());
+        for (Group group : merging) {
+            group.actorCount = Math.max(1, counts.getOrDefault(group.existingId, 0));
+            merges.add(new Object[] { group.latest.getActorId(), group.actorCount, group.recentActorIds(),
+                    Timestamp.valueOf(group.latest.getCreatedAt()), group.existingId });
+        }
+        jdbcTemplate.batchUpdate(MERGE_SQL, merges);
+    }
+
+    private List<Group> insert(List<Group> inserts) {
+        if (inserts.isEmpty()) {
+            return inserts;
+        }
+        List<Group> stored;
+        try {
+            List<Long> ids = insertReturningIds(inserts);
+            for (int i = 0; i < inserts.size(); i++) {
+                inserts.get(i).storedId = ids.get(i);
+            }
+            stored = inserts;
+        } catch (DataAccessException e) {
+            // Un solo evento inválido (p. ej. el chirp se borró) no debe tirar el lote completo
+            stored = new ArrayList<>(inserts.size());
+            for (Group group : inserts) {
+                try {
+                    group.storedId = insertReturningIds(List.of(group)).get(0);
+                    stored.add(group);
+                } catch (DataAccessException rowError) {
+                    writeFailures.increment();
+                }
+            }
+        }
+        insertActors(stored);
+        return stored;
+    }
+
+    // Inserta las filas en lote y devuelve sus IDs en el mismo orden
+    private List<Long> insertReturningIds(List<Group> groups) {
+        return jdbcTemplate.execute((ConnectionCallback<List<Long>>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                for (Group group : groups) {
+                    Object[] row = toRow(group);
+                    for (int i = 0; i < row.length; i++) {
+                        StatementCreatorUtils.setParameterValue(ps, i + 1, SqlTypeValue.TYPE_UNKNOWN, row[i]);
+                    }
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                List<Long> ids = new ArrayList<>(groups.size());
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    while (keys.next()) {
+                        ids.add(keys.getLong(1));
+                    }
+                }
+                if (ids.size() != groups.size()) {
+                    throw new SQLException("Se esperaban " + groups.size() + " IDs generados y llegaron " + ids.size());
+                }
+                return ids;
+            }
+        });
+    }
+
+    // Actores de los grupos recién creados; si falla, el grupo conserva el actor_count del lote
+    private void insertActors(List<Group> stored) {
+        List<Object[]> actorRows = new ArrayList<>();
+        for (Group group : stored) {
+            if (group.key != null) {
+                group.actors.forEach(actorId -> actorRows.add(new Object[] { group.storedId, actorId }));
+            }
+        }
+        if (actorRows.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.batchUpdate(INSERT_ACTOR_SQL, actorRows);
+        } catch (DataAccessException e) {
+            log.warn("No se pudieron registrar los actores de {} notificaciones", stored.size(), e);
+        }
+    }
+
+    // Carga los grupos abiertos (no leídos, dentro de la ventana) de los destinatarios del lote
+    private void attachOpenGroups(Map<String, Group> byKey) {
+        Set<Long> recipientIds = byKey.values().stream()
+                .map(group -> group.latest.getRecipientId())
+                .collect(Collectors.toSet());
+        List<Object> args = new ArrayList<>(recipientIds);
+        args.add(Timestamp.valueOf(LocalDateTime.now().minusMinutes(coalesceWindowMinutes)));
+        String sql = "SELECT id, user_id, type, chirp_id, recent_actor_ids FROM notifications"
+                + " WHERE user_id IN (" + String.join(",", Collections.nCopies(recipientIds.size(), "?")) + ")"
+                + " AND type IN ('LIKE', 'REPOST', 'FOLLOW') AND is_read = false AND last_activity_at >= ?"
+                + " ORDER BY id";
+        jdbcTemplate.query(sql, rs -> {
+            long chirpId = rs.getLong("chirp_id");
+            Long nullableChirpId = rs.wasNull() ? null : chirpId;
+            Group group = byKey.get(groupKey(rs.getLong("user_id"), rs.getString("type"), nullableChirpId));
+            if (group != null) {
+                // ORDER BY id: si hay varios, se queda con el más reciente
+                group.attach(rs.getLong("id"), rs.getString("recent_actor_ids"));
+            }
+        }, args.toArray());
+    }
+
+    private List<NotificationEvent> pushesFor(List<Group> stored) {
+        long now = System.currentTimeMillis();
+        List<NotificationEvent> pushes = new ArrayList<>(stored.size());
+        for (Group group : stored) {
+            NotificationEvent latest = group.latest;
+            if (group.key != null) {
+                Long lastPush = lastGroupPush.get(group.key);
+                if (lastPush != null && now - lastPush < groupPushIntervalMs) {
+                    pushSuppressed.increment(group.events);
+                    continue;
+                }
+                lastGroupPush.put(group.key, now);
+            }
+            int total = group.actorCount;
+            if (total <= 1 || !GROUPED_PUSH_BODIES.containsKey(latest.getType())) {
+                pushes.add(latest);
+                continue;
+            }
+            String body = String.format(GROUPED_PUSH_BODIES.get(latest.getType()), latest.getActorName(), total - 1);
+            pushes.add(new NotificationEvent(latest.getType(), latest.getActorId(), latest.getActorName(),
+                    latest.getRecipientId(), latest.getChirpId(), latest.getContent(), latest.getPushTitle(), body,
+                    latest.getCreatedAt()));
+        }
+        return pushes;
+    }
+
+    private Object[] toRow(Group group) {
+        NotificationEvent event = group.latest;
+        Timestamp createdAt = Timestamp.valueOf(event.getCreatedAt());
+        return new Object[] {
+                event.getType().name(),
+                event.getActorId(),
+                event.getRecipientId(),
+                event.getChirpId(),
+                event.getContent(),
+                Timestamp.valueOf(group.first.getCreatedAt()),
+                group.actorCount,
+                group.recentActorIds(),
+                createdAt
+        };
+    }
+
+    private static String groupKey(long recipientId, String type, Long chirpId) {
+        return recipientId + ":" + type + ":" + chirpId;
+    }
+
+    /**
+     * Notificaciones del lote que terminan en una misma fila.
+     */
+    private static class Group {
+        private final String key; // null si el tipo no se agrupa
+        private final NotificationEvent first;
+        private NotificationEvent latest;
+        private int events = 1;
+        // Actores distintos del lote; un like/unlike/like del mismo usuario cuenta una vez
+        private final Set<Long> actors = new LinkedHashSet<>();
+        // Actores más recientes, el más nuevo primero y sin repetir
+        private final LinkedList<Long> recentActors = new LinkedList<>();
+        // Total de actores distintos de la fila; en grupos existentes se recalcula al escribir
+        private int actorCount = 1;
+
+        private Long existingId;
+        private Long storedId;
+
+        Group(String key, NotificationEvent event) {
+            this.key = key;
+            this.first = event;
+            this.latest = event;
+            actors.add(event.getActorId());
+            recentActors.add(event.getActorId());
+        }
+
+        void add(NotificationEvent event) {
+            latest = event;
+            events++;
+            actors.add(event.getActorId());
+            actorCount = actors.size();
+            pushActor(event.getActorId());
+        }
+
+        void attach(long id, String recentActorIds) {
+            existingId = id;
+            if (recentActorIds != null && !recentActorIds.isEmpty()) {
+                // Los del lote son más nuevos: los existentes van detrás
+                for (String actorId : recentActorIds.split(",")) {
+                    Long parsed = Long.valueOf(actorId);
+                    if (!recentActors.contains(parsed) && recentActors.size() < RECENT_ACTORS) {
+                        recentActors.addLast(parsed);
+                    }
+                }
+            }
+        }
+
+        String recentActorIds() {
+            return recentActors.stream().map(String::valueOf).collect(Collectors.joining(","));
+        }
+
+        private void pushActor(Long actorId) {
+            recentActors.remove(actorId);
+            recentActors.addFirst(actorId);
+            while (recentActors.size() > RECENT_ACTORS) {
+                recentActors.removeLast();
+            }
+        }
+    }
+
+    private void schedulePush(List<NotificationEvent> stored) {
+        List<NotificationEvent> pushes = List.copyOf(stored);
+        try {
+            pushExecutor.execute(() -> push(pushes));
+        } catch (RejectedExecutionException e) {
+            // El push es best-effort: la notificación ya quedó guardada
+            pushDropped.increment(pushes.size());
+        }
+    }
+
+    private void push(List<NotificationEvent> events) {
+        Set<Long> recipientIds = events.stream().map(NotificationEvent::getRecipientId).collect(Collectors.toSet());
+        Map<Long, String> tokens = new HashMap<>();
+        for (Object[] row : userRepository.findFcmTokens(recipientIds)) {
+            tokens.put((Long) row[0], (String) row[1]);
+        }
+        for (NotificationEvent event : events) {
+            String token = tokens.get(event.getRecipientId());
+            if (token != null) {
+                pushDispatcher.enqueue(new PushMessage(event.getRecipientId(), token,
+                        event.getPushTitle(), event.getPushBody()));
+            }
+        }
+    }
+}
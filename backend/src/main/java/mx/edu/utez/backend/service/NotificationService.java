@@ -1,10 +1,12 @@
 package mx.edu.utez.backend.service;
 
+import mx.edu.utez.backend.dto.AuthorDTO;
 import mx.edu.utez.backend.dto.NotificationDTO;
 import mx.edu.utez.backend.exception.ResourceNotFoundException;
 import mx.edu.utez.backend.model.Notification;
 import mx.edu.utez.backend.model.User;
 import mx.edu.utez.backend.repository.NotificationRepository;
+import mx.edu.utez.backend.repository.UserRepository;
 import mx.edu.utez.backend.util.DTOMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -13,6 +15,8 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -21,16 +25,42 @@ public class NotificationService {
     @Autowired
     private NotificationRepository notificationRepository;
     
+    @Autowired
+    private UserRepository userRepository;
+    
     @Autowired
     private DTOMapper dtoMapper;
     
+    @Autowired
+    private ChirpImageLoader chirpImageLoader;
+    
+    @Autowired
+    private VersionStampService versionStampService;
+    
+    // ETag débil de las notificaciones de un usuario; la consulta concreta se agrega como sufijo
+    public String getNotificationsETag(User currentUser, String query) {
+        return "W/\"n-" + versionStampService.getBootEpoch() + "-" + currentUser.getId() + "-"
+                + versionStampService.notificationsVersion(currentUser.getId()) + "-" + query + "\"";
+    }
+    
     @Transactional(readOnly = true)
     public List<NotificationDTO> getNotifications(User currentUser, Pageable pageable) {
-        Page<Notification> notifications = notificationRepository.findByUserIdOrderByCreatedAtDesc(
-                currentUser.getId(), pageable);
+        Page<Notification> notifications = notificationRepository.findGroupedByUserId(currentUser.getId(), pageable);
         
+        Map<Long, List<String>> imageUrls = chirpImageLoader.load(notifications.stream()
+                .filter(notification -> notification.getChirp() != null)
+                .map(notification -> notification.getChirp().getId())
+                .collect(Collectors.toSet()));
+        
+        // Actores recientes de las notificaciones agrupadas, en una sola consulta
+        Set<Long> actorIds = notifications.stream()
+                .flatMap(notification -> dtoMapper.parseRecentActorIds(notification).stream())
+                .collect(Collectors.toSet());
+        Map<Long, AuthorDTO> actors = userRepository.findAllById(actorIds).stream()
+                .collect(Collectors.toMap(User::getId, dtoMapper::toAuthorDTO));
+
         return notifications.stream()
-                .map(dtoMapper::toNotificationDTO)
+                .map(notification -> dtoMapper.toNotificationDTO(notification, imageUrls, actors))
                 .collect(Collectors.toList());
     }
     
@@ -50,11 +80,13 @@ public void markAsRead(Long notificationId, User currentUser) {
 
     notification.setRead(true);
     notificationRepository.save(notification);
+    versionStampService.bumpNotifications(currentUser.getId());
 }
 
     
     @Transactional
     public int markAllAsRead(User currentUser) {
+        versionStampService.bumpNotifications(currentUser.getId());
         return notificationRepository.markAllAsRead(currentUser.getId());
     }
     
@@ -68,6 +100,7 @@ public void deleteNotification(Long notificationId, User currentUser) {
     }
 
     notificationRepository.delete(notification);
+    versionStampService.bumpNotifications(currentUser.getId());
 }
 
 }
@@ -0,0 +1,711 @@
+package mx.edu.utez.backend.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import mx.edu.utez.backend.util.TextNormalizer;
+import mx.edu.utez.backend.util.TransactionHooks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice invertido embebido: por cada término normalizado (minúsculas, sin
+ * acentos) guarda la lista ordenada de ids de chirps que lo contienen. Todas
+ * las mutaciones se aplican en un único hilo propio, así las peticiones no
+ * esperan al índice; las consultas solo toman el candado de lectura.
+ *
+ * El índice se guarda en disco como un snapshot (ids con deltas en varint) y
+ * al arrancar se completa desde MySQL por keyset a partir del último id
+ * guardado. Los chirps borrados quedan como lápidas hasta la siguiente
+ * compactación. El ranking suma el idf de los términos de la consulta que
+ * aparecen en el chirp y desempata por recencia; el último término se
+ * busca también como prefijo para el autocompletado del buscador. Las listas
+ * se recorren con cursores de mayor a menor id sin copiarlas, y la consulta
+ * se detiene al llenar la ventana o al agotar search.index.max-scan ids.
+ *
+ * Las listas viven completas en el heap: unos 8 bytes por posting (con el
+ * margen de crecimiento de cada arreglo) más ~100 bytes por término. Con
+ * decenas de millones de chirps de ~15 términos son varios GB, que hay que
+ * reservar en -Xmx; el gauge search.index.bytes da la estimación actual. El
+ * disco solo guarda el snapshot para no reconstruir al arrancar.
+ */
+@Component
+public class PostingsChirpSearchIndex implements ChirpSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(PostingsChirpSearchIndex.class);
+
+    private static final int MAGIC = 0x43485358;
+    private static final int VERSION = 1;
+    private static final String SNAPSHOT_FILE = "chirps.idx";
+    private static final int MAX_TERM_LENGTH = 64;
+
+    // Costo aproximado de un término en el TreeMap (entrada, String y objeto Postings)
+    private static final int TERM_OVERHEAD_BYTES = 100;
+
+    // Ids recientes que se vuelven a leer al arrancar por si su alta no alcanzó a quedar en el snapshot
+    private static final long CATCH_UP_OVERLAP = 10_000;
+
+    private static final String CATCH_UP_SQL =
+            "SELECT id, content FROM chirps WHERE id > ? AND deleted = false ORDER BY id LIMIT ?";
+
+    private static final String FIND_DELETED_SQL = "SELECT id FROM chirps WHERE deleted = true AND id <= ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${search.index.enabled:true}")
+    private boolean enabled;
+
+    @Value("${search.index.dir:search-index}")
+    private String directory;
+
+    @Value("${search.index.snapshot-interval-ms:300000}")
+    private long snapshotIntervalMs;
+
+    @Value("${search.index.rebuild-chunk-size:2000}")
+    private int rebuildChunkSize;
+
+    @Value("${search.index.rebuild-pause-ms:10}")
+    private long rebuildPauseMs;
+
+    // Límite de offset + limit por consulta (tamaño del heap de resultados)
+    @Value("${search.index.max-window:1000}")
+    private int maxWindow;
+
+    @Value("${search.index.min-prefix-length:2}")
+    private int minPrefixLength;
+
+    @Value("${search.index.max-prefix-terms:64}")
+    private int maxPrefixTerms;
+
+    // Ids recorridos como máximo por consulta; al llegar se devuelve lo mejor encontrado
+    @Value("${search.index.max-scan:500000}")
+    private int maxScan;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "chirp-search-index");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Protegidos por lock; solo los modifica el hilo del índice
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    private final Set<Long> tombstones = new HashSet<>();
+    private long documentCount;
+    private long postingCount;
+
+    // Solo los usa el hilo del índice
+    private long maxIndexedId;
+    private long catchUpCursor;
+    private boolean dirty;
+
+    private volatile boolean ready;
+
+    private Timer queryTimer;
+
+    @PostConstruct
+    public void initialize() {
+        queryTimer = meterRegistry.timer("search.index.query");
+        Gauge.builder("search.index.terms", this, PostingsChirpSearchIndex::getTermCount).register(meterRegistry);
+        Gauge.builder("search.index.postings", this, PostingsChirpSearchIndex::getPostingCount)
+                .register(meterRegistry);
+        Gauge.builder("search.index.bytes", this, PostingsChirpSearchIndex::getEstimatedBytes)
+                .register(meterRegistry);
+        Gauge.builder("search.index.ready", this, index -> index.isReady() ? 1 : 0).register(meterRegistry);
+        if (enabled) {
+            executor.execute(this::load);
+            executor.scheduleWithFixedDelay(this::snapshotIfDirty, snapshotIntervalMs, snapshotIntervalMs,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (enabled && ready) {
+            submit(this::snapshotIfDirty);
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void index(Long chirpId, String content) {
+        if (enabled) {
+            TransactionHooks.afterCommit(() -> submit(() -> add(chirpId, content)));
+        }
+    }
+
+    @Override
+    public void remove(Long chirpId) {
+        if (enabled) {
+            TransactionHooks.afterCommit(() -> submit(() -> tombstone(chirpId)));
+        }
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public List<Long> search(String query, int offset, int limit) {
+        int window = Math.min(offset + limit, maxWindow);
+        List<String> tokens = new ArrayList<>(TextNormalizer.words(query, MAX_TERM_LENGTH));
+        if (window <= offset || tokens.isEmpty()) {
+            return List.of();
+        }
+        return queryTimer.record(() -> {
+            lock.readLock().lock();
+            try {
+                return rank(tokens, offset, window);
+            } finally {
+                lock.readLock().unlock();
+            }
+        });
+    }
+
+    public int getTermCount() {
+        lock.readLock().lock();
+        try {
+            return terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getPostingCount() {
+        lock.readLock().lock();
+        try {
+            return postingCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getEstimatedBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = (long) terms.size() * TERM_OVERHEAD_BYTES;
+            for (Postings postings : terms.values()) {
+                bytes += (long) postings.ids.length * Long.BYTES;
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Long> rank(List<String> tokens, int offset, int window) {
+        // Un cursor por término de la consulta; el último también une los términos que empiezan con él
+        List<PostingsCursor> cursors = new ArrayList<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            if (i == tokens.size() - 1 && token.length() >= minPrefixLength) {
+                PostingsCursor union = prefixUnion(token);
+                if (union != null) {
+                    cursors.add(union);
+                }
+            } else {
+                Postings postings = terms.get(token);
+                if (postings != null && postings.size > 0) {
+                    cursors.add(new ArrayCursor(postings));
+                }
+            }
+        }
+        if (cursors.isEmpty()) {
+            return List.of();
+        }
+
+        int count = cursors.size();
+        double[] idf = new double[count];
+        double maxScore = 0;
+        for (int g = 0; g < count; g++) {
+            // En una unión por prefijo el tamaño es la suma de sus listas (cota superior de la unión)
+            long size = cursors.get(g).size();
+            idf[g] = Math.log(1 + (double) Math.max(documentCount, size) / size);
+            maxScore += idf[g];
+        }
+
+        // Recorre los ids de mayor a menor uniendo los cursores; un id más viejo solo entra si puntúa más
+        PriorityQueue<Hit> heap = new PriorityQueue<>(window + 1);
+        for (int scanned = 0; scanned < maxScan; scanned++) {
+            long id = Long.MIN_VALUE;
+            for (PostingsCursor cursor : cursors) {
+                id = Math.max(id, cursor.current());
+            }
+            if (id == Long.MIN_VALUE) {
+                break;
+            }
+            double score = 0;
+            for (int g = 0; g < count; g++) {
+                PostingsCursor cursor = cursors.get(g);
+                if (cursor.current() == id) {
+                    score += idf[g];
+                    cursor.advance();
+                }
+            }
+            if (tombstones.contains(id)) {
+                continue;
+            }
+            if (heap.size() < window) {
+                heap.add(new Hit(id, score));
+            } else if (score > heap.peek().score) {
+                heap.poll();
+                heap.add(new Hit(id, score));
+            }
+            if (heap.size() == window && heap.peek().score >= maxScore) {
+                break;
+            }
+        }
+
+        List<Hit> hits = new ArrayList<>(heap);
+        hits.sort(Collections.reverseOrder());
+        List<Long> result = new ArrayList<>();
+        for (int i = offset; i < hits.size(); i++) {
+            result.add(hits.get(i).id);
+        }
+        return result;
+    }
+
+    // null si ningún término empieza con el prefijo
+    private PostingsCursor prefixUnion(String prefix) {
+        SortedMap<String, Postings> matches = terms.subMap(prefix, prefix + Character.MAX_VALUE);
+        Postings exact = matches.get(prefix);
+        // Con muchas expansiones se quedan las de más documentos, sin ordenar todas
+        int slots = exact != null ? maxPrefixTerms - 1 : maxPrefixTerms;
+        PriorityQueue<Postings> largest = new PriorityQueue<>(Comparator.comparingInt((Postings p) -> p.size));
+        for (Map.Entry<String, Postings> match : matches.entrySet()) {
+            Postings postings = match.getValue();
+            if (postings == exact || postings.size == 0 || slots <= 0) {
+                continue;
+            }
+            if (largest.size() < slots) {
+                largest.add(postings);
+            } else if (postings.size > largest.peek().size) {
+                largest.poll();
+                largest.add(postings);
+            }
+        }
+        List<Postings> selected = new ArrayList<>(largest);
+        if (exact != null && exact.size > 0) {
+            selected.add(exact);
+        }
+        if (selected.isEmpty()) {
+            return null;
+        }
+        return selected.size() == 1 ? new ArrayCursor(selected.get(0)) : new UnionCursor(selected);
+    }
+
+    // ---- Mutaciones (hilo del índice) ----
+
+    private void submit(Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            // Apagando: el catch-up del siguiente arranque recupera el alta
+        }
+    }
+
+    private void add(long chirpId, String content) {
+        Set<String> tokens = TextNormalizer.words(content, MAX_TERM_LENGTH);
+        lock.writeLock().lock();
+        try {
+            if (tombstones.contains(chirpId)) {
+                return;
+            }
+            boolean added = false;
+            for (String token : tokens) {
+                if (terms.computeIfAbsent(token, key -> new Postings()).add(chirpId)) {
+                    postingCount++;
+                    added = true;
+                }
+            }
+            if (added) {
+                documentCount++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        maxIndexedId = Math.max(maxIndexedId, chirpId);
+        dirty = true;
+    }
+
+    private void tombstone(long chirpId) {
+        lock.writeLock().lock();
+        try {
+            if (tombstones.add(chirpId) && chirpId <= maxIndexedId) {
+                documentCount = Math.max(0, documentCount - 1);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        dirty = true;
+    }
+
+    // Quita las lápidas de las listas; cada término se reescribe con el candado tomado solo para él
+    private void compact() {
+        Set<Long> removed;
+        List<String> keys;
+        lock.readLock().lock();
+        try {
+            if (tombstones.isEmpty()) {
+                return;
+            }
+            removed = new HashSet<>(tombstones);
+            keys = new ArrayList<>(terms.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+        for (String key : keys) {
+            lock.writeLock().lock();
+            try {
+                Postings postings = terms.get(key);
+                int before = postings.size;
+                postings.removeAll(removed);
+                postingCount -= before - postings.size;
+                if (postings.size == 0) {
+                    terms.remove(key);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            tombstones.removeAll(removed);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void load() {
+        Path file = Paths.get(directory).resolve(SNAPSHOT_FILE);
+        if (Files.exists(file)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                readSnapshot(in);
+                log.info("Índice de búsqueda cargado: {} términos, último chirp {}", terms.size(), maxIndexedId);
+            } catch (IOException e) {
+                log.warn("Snapshot del índice de búsqueda ilegible, se reconstruye desde la base de datos", e);
+                lock.writeLock().lock();
+                try {
+                    terms.clear();
+                    documentCount = 0;
+                    postingCount = 0;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                maxIndexedId = 0;
+            }
+        }
+        catchUpCursor = Math.max(0, maxIndexedId - CATCH_UP_OVERLAP);
+        try {
+            // Borrados lógicos que el snapshot todavía incluye (los ya purgados los filtra la base al cargar)
+            for (Long chirpId : jdbcTemplate.queryForList(FIND_DELETED_SQL, Long.class, maxIndexedId)) {
+                tombstone(chirpId);
+            }
+        } catch (DataAccessException e) {
+            log.warn("No se pudieron leer los chirps borrados para el índice de búsqueda", e);
+        }
+        catchUp();
+    }
+
+    // Un tramo por tarea para que las altas en vivo se intercalen con la reconstrucción
+    private void catchUp() {
+        List<Map<String, Object>> rows;
+        try {
+            rows = jdbcTemplate.queryForList(CATCH_UP_SQL, catchUpCursor, rebuildChunkSize);
+        } catch (DataAccessException e) {
+            log.warn("Reconstrucción del índice de búsqueda interrumpida, se reintenta", e);
+            executor.schedule(this::catchUp, snapshotIntervalMs, TimeUnit.MILLISECONDS);
+            return;
+        }
+        for (Map<String, Object> row : rows) {
+            long chirpId = ((Number) row.get("id")).longValue();
+            add(chirpId, (String) row.get("content"));
+            catchUpCursor = chirpId;
+        }
+        if (rows.size() < rebuildChunkSize) {
+            ready = true;
+            log.info("Índice de búsqueda listo: {} términos, {} chirps", getTermCount(), documentCount);
+            snapshotIfDirty();
+            return;
+        }
+        executor.schedule(this::catchUp, rebuildPauseMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void snapshotIfDirty() {
+        // A media reconstrucción el snapshot tendría huecos por debajo de maxIndexedId
+        if (!ready || !dirty) {
+            return;
+        }
+        compact();
+        Path dir = Paths.get(directory);
+        Path tmp = dir.resolve(SNAPSHOT_FILE + ".tmp");
+        try {
+            Files.createDirectories(dir);
+            // Sin candado: este hilo es el único que modifica el índice
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                writeSnapshot(out);
+            }
+            Files.move(tmp, dir.resolve(SNAPSHOT_FILE), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            dirty = false;
+        } catch (IOException e) {
+            log.warn("No se pudo guardar el snapshot del índice de búsqueda", e);
+        }
+    }
+
+    private void writeSnapshot(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(maxIndexedId);
+        out.writeLong(documentCount);
+        out.writeInt(terms.size());
+        for (Map.Entry<String, Postings> entry : terms.entrySet()) {
+            Postings postings = entry.getValue();
+            out.writeUTF(entry.getKey());
+            out.writeInt(postings.size);
+            long previous = 0;
+            for (int i = 0; i < postings.size; i++) {
+                writeVarLong(out, postings.ids[i] - previous);
+                previous = postings.ids[i];
+            }
+        }
+    }
+
+    private void readSnapshot(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Formato de snapshot desconocido");
+        }
+        long maxId = in.readLong();
+        long documents = in.readLong();
+        int termCount = in.readInt();
+        TreeMap<String, Postings> loaded = new TreeMap<>();
+        long postings = 0;
+        for (int t = 0; t < termCount; t++) {
+            String term = in.readUTF();
+            int size = in.readInt();
+            Postings list = new Postings(size);
+            long previous = 0;
+            for (int i = 0; i < size; i++) {
+                previous += readVarLong(in);
+                list.ids[i] = previous;
+            }
+            list.size = size;
+            postings += size;
+            loaded.put(term, list);
+        }
+        lock.writeLock().lock();
+        try {
+            terms.clear();
+            terms.putAll(loaded);
+            documentCount = documents;
+            postingCount = postings;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        maxIndexedId = maxId;
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Varint demasiado largo");
+    }
+
+    // Lista de ids ordenada de forma ascendente; las altas casi siempre llegan al final
+    private static final class Postings {
+
+        private long[] ids;
+        private int size;
+
+        private Postings() {
+            this(4);
+        }
+
+        private Postings(int capacity) {
+            ids = new long[Math.max(capacity, 1)];
+        }
+
+        private boolean add(long id) {
+            int index = size;
+            if (size > 0 && ids[size - 1] >= id) {
+                int found = Arrays.binarySearch(ids, 0, size, id);
+                if (found >= 0) {
+                    return false;
+                }
+                index = -found - 1;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, ids.length + (ids.length >> 1) + 1);
+            }
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            ids[index] = id;
+            size++;
+            return true;
+        }
+
+        private void removeAll(Set<Long> removed) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (!removed.contains(ids[i])) {
+                    ids[kept++] = ids[i];
+                }
+            }
+            size = kept;
+            if (ids.length > 16 && size < ids.length / 4) {
+                ids = Arrays.copyOf(ids, Math.max(size, 4));
+            }
+        }
+    }
+
+    // Recorre ids de mayor a menor; current() es Long.MIN_VALUE al terminar
+    private interface PostingsCursor {
+
+        long current();
+
+        void advance();
+
+        long size();
+    }
+
+    private static final class ArrayCursor implements PostingsCursor {
+
+        private final Postings postings;
+        private int position;
+
+        private ArrayCursor(Postings postings) {
+            this.postings = postings;
+            this.position = postings.size - 1;
+        }
+
+        @Override
+        public long current() {
+            return position >= 0 ? postings.ids[position] : Long.MIN_VALUE;
+        }
+
+        @Override
+        public void advance() {
+            position--;
+        }
+
+        @Override
+        public long size() {
+            return postings.size;
+        }
+    }
+
+    // Unión perezosa de varias listas con un heap de cursores; un id repetido se entrega una vez
+    private static final class UnionCursor implements PostingsCursor {
+
+        private final PriorityQueue<ArrayCursor> heap;
+        private final long size;
+
+        private UnionCursor(List<Postings> lists) {
+            heap = new PriorityQueue<>(lists.size(),
+                    (a, b) -> Long.compare(b.current(), a.current()));
+            long total = 0;
+            for (Postings postings : lists) {
+                heap.add(new ArrayCursor(postings));
+                total += postings.size;
+            }
+            size = total;
+        }
+
+        @Override
+        public long current() {
+            return heap.isEmpty() ? Long.MIN_VALUE : heap.peek().current();
+        }
+
+        @Override
+        public void advance() {
+            long id = current();
+            while (!heap.isEmpty() && heap.peek().current() == id) {
+                ArrayCursor cursor = heap.poll();
+                cursor.advance();
+                if (cursor.current() != Long.MIN_VALUE) {
+                    heap.add(cursor);
+                }
+            }
+        }
+
+        @Override
+        public long size() {
+            return size;
+        }
+    }
+
+    private static final class Hit implements Comparable<Hit> {
+
+        private final long id;
+        private final double score;
+
+        private Hit(long id, double score) {
+            this.id = id;
+            this.score = score;
+        }
+
+        // Mayor puntaje primero y, en empate, el chirp más reciente
+        @Override
+        public int compareTo(Hit other) {
+            int byScore = Double.compare(score, other.score);
+            return byScore != 0 ? byScore : Long.compare(id, other.id);
+        }
+    }
+}
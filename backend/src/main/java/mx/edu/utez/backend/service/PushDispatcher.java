@@ -0,0 +1,215 @@
+package mx.edu.utez.backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import mx.edu.utez.backend.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Despachador de push. Agrupa los mensajes que llegan dentro de una ventana
+ * de tiempo (o hasta el máximo del transporte) y los envía en lote por el
+ * PushTransport activo. Las fallas temporales se reintentan con backoff
+ * exponencial con jitter; los tokens inválidos se borran del usuario.
+ */
+@Service
+public class PushDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(PushDispatcher.class);
+
+    @Autowired
+    private PushTransport transport;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${push.dispatch.window-ms:100}")
+    private long windowMs;
+
+    @Value("${push.dispatch.queue-capacity:20000}")
+    private int queueCapacity;
+
+    @Value("${push.dispatch.sender-threads:4}")
+    private int senderThreads;
+
+    @Value("${push.dispatch.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${push.dispatch.backoff-base-ms:200}")
+    private long backoffBaseMs;
+
+    @Value("${push.dispatch.backoff-max-ms:30000}")
+    private long backoffMaxMs;
+
+    private BlockingQueue<PushMessage> queue;
+    private Thread batcher;
+    private ThreadPoolExecutor senders;
+    private ScheduledExecutorService retryScheduler;
+    private volatile boolean running = true;
+
+    private Counter sent;
+    private Counter retried;
+    private Counter failed;
+    private Counter dropped;
+    private Counter invalidTokens;
+    private Counter rejected;
+    private DistributionSummary batchSize;
+
+    @PostConstruct
+    public void initialize() {
+        sent = meterRegistry.counter("push.sent");
+        retried = meterRegistry.counter("push.retried");
+        failed = meterRegistry.counter("push.failed");
+        dropped = meterRegistry.counter("push.dropped");
+        invalidTokens = meterRegistry.counter("push.invalid_tokens");
+        rejected = meterRegistry.counter("push.rejected");
+        batchSize = DistributionSummary.builder("push.batch.size").register(meterRegistry);
+
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        Gauge.builder("push.queued", queue, BlockingQueue::size).register(meterRegistry);
+
+        AtomicInteger senderNumber = new AtomicInteger();
+        // Cola corta: si los envíos se atrasan, el batcher espera en lugar de acumular lotes
+        senders = new ThreadPoolExecutor(senderThreads, senderThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(senderThreads * 2), runnable -> {
+                    Thread thread = new Thread(runnable, "push-sender-" + senderNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "push-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        batcher = new Thread(this::batchLoop, "push-batcher");
+        batcher.setDaemon(true);
+        batcher.start();
+    }
+
+    public void enqueue(PushMessage message) {
+        if (message.getToken() == null || message.getToken().isEmpty()) {
+            return; // El usuario no tiene token registrado
+        }
+        if (!queue.offer(message)) {
+            dropped.increment();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        batcher.interrupt();
+        retryScheduler.shutdownNow();
+        senders.shutdown();
+        try {
+            senders.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void batchLoop() {
+        int maxBatch = transport.maxBatchSize();
+        while (running) {
+            List<PushMessage> batch = new ArrayList<>(maxBatch);
+            try {
+                batch.add(queue.take());
+                // Se junta lo que llegue durante la ventana, sin pasar del máximo del transporte
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(windowMs);
+                while (batch.size() < maxBatch) {
+                    queue.drainTo(batch, maxBatch - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatch || remaining <= 0) {
+                        break;
+                    }
+                    PushMessage next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                senders.execute(() -> send(batch));
+            } catch (RejectedExecutionException e) {
+                dropped.increment(batch.size());
+            }
+        }
+    }
+
+    private void send(List<PushMessage> batch) {
+        batchSize.record(batch.size());
+        List<PushTransport.Result> results;
+        try {
+            results = transport.send(batch);
+        } catch (Exception e) {
+            log.warn("Falló el envío de un lote de {} push; se reintentará", batch.size(), e);
+            batch.forEach(this::scheduleRetry);
+            return;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            PushMessage message = batch.get(i);
+            switch (results.get(i)) {
+                case SENT -> sent.increment();
+                case INVALID_TOKEN -> pruneToken(message);
+                case REJECTED -> {
+                    rejected.increment();
+                    log.warn("Push rechazado por inválido para el usuario {}; no se reintenta", message.getUserId());
+                }
+                case RETRY -> scheduleRetry(message);
+                case SKIPPED -> dropped.increment();
+            }
+        }
+    }
+
+    private void scheduleRetry(PushMessage message) {
+        int attempt = message.getAttempts() + 1;
+        if (attempt >= maxAttempts || !running) {
+            failed.increment();
+            return;
+        }
+        message.setAttempts(attempt);
+        retried.increment();
+
+        // Backoff exponencial con jitter ("equal jitter"): entre la mitad y el total del tope
+        long cap = Math.min(backoffMaxMs, backoffBaseMs << Math.min(attempt, 20));
+        long delay = cap / 2 + ThreadLocalRandom.current().nextLong(cap / 2 + 1);
+        try {
+            retryScheduler.schedule(() -> enqueue(message), delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            failed.increment();
+        }
+    }
+
+    private void pruneToken(PushMessage message) {
+        invalidTokens.increment();
+        // Solo se borra si el usuario no registró otro token mientras tanto
+        userRepository.clearFcmToken(message.getUserId(), message.getToken());
+    }
+}
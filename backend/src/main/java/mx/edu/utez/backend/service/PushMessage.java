@@ -0,0 +1,23 @@
+package mx.edu.utez.backend.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Push pendiente de envío. attempts cuenta los envíos fallidos reintentables.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PushMessage {
+    private Long userId;
+    private String token;
+    private String title;
+    private String body;
+    private int attempts;
+
+    public PushMessage(Long userId, String token, String title, String body) {
+        this(userId, token, title, body, 0);
+    }
+}
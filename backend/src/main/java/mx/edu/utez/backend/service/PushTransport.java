@@ -0,0 +1,29 @@
+package mx.edu.utez.backend.service;
+
+import java.util.List;
+
+/**
+ * Transporte de push. Recibe un lote y devuelve un resultado por mensaje, en
+ * el mismo orden. Si el lote completo falla (red, credenciales) lanza una
+ * excepción y el despachador reintenta todo el lote.
+ */
+public interface PushTransport {
+
+    enum Result {
+        SENT,
+        // El token ya no es válido: se borra de User.fcmToken
+        INVALID_TOKEN,
+        // El mensaje en sí es inválido (payload muy grande, datos mal formados): ni se reintenta
+        // ni se toca el token, que puede seguir sirviendo
+        REJECTED,
+        // Falla temporal (cuota, servidor no disponible): se reintenta con backoff
+        RETRY,
+        // No se envió y no tiene caso reintentar (transporte sin configurar)
+        SKIPPED
+    }
+
+    // Máximo de mensajes por llamada a send
+    int maxBatchSize();
+
+    List<Result> send(List<PushMessage> messages) throws Exception;
+}
@@ -0,0 +1,174 @@
+package mx.edu.utez.backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import mx.edu.utez.backend.repository.FeedItemProjection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Feed en modo "top": toma una ventana de candidatos del timeline, los
+ * puntúa con los contadores desnormalizados del chirp (likes, reposts,
+ * respuestas) y un decaimiento exponencial por antigüedad, y conserva los K
+ * mejores con un heap acotado. El ranking se cachea por usuario durante un
+ * TTL corto para que paginar sea estable y barato.
+ */
+@Service
+public class RankedFeedService {
+
+    private static final double LIKE_WEIGHT = 1.0;
+    private static final double REPOST_WEIGHT = 2.0;
+    private static final double REPLY_WEIGHT = 3.0;
+
+    @Autowired
+    private TimelineService timelineService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${feed.top.candidate-window:500}")
+    private int candidateWindow;
+
+    @Value("${feed.top.max-results:200}")
+    private int maxResults;
+
+    @Value("${feed.top.half-life-hours:6}")
+    private double halfLifeHours;
+
+    @Value("${feed.top.cache-ttl-ms:60000}")
+    private long cacheTtlMs;
+
+    private final Map<Long, RankedFeed> cache = new ConcurrentHashMap<>();
+    // Marca de cada ranking calculado; el ETag incluye la época de arranque, así no se repiten
+    private final AtomicLong stamps = new AtomicLong();
+
+    private Counter cacheHits;
+    private Counter cacheMisses;
+
+    @PostConstruct
+    public void initialize() {
+        cacheHits = meterRegistry.counter("feed.top.cache.hits");
+        cacheMisses = meterRegistry.counter("feed.top.cache.misses");
+        Gauge.builder("feed.top.cache.entries", cache, Map::size).register(meterRegistry);
+    }
+
+    // No es readOnly: si el timeline no existe todavía se construye al generar candidatos
+    @Transactional
+    public List<FeedItemProjection> getTopPage(Long ownerId, int page, int size) {
+        List<FeedItemProjection> ranked = ranked(ownerId).items;
+        int from = (int) Math.min((long) page * size, ranked.size());
+        int to = Math.min(from + size, ranked.size());
+        return ranked.subList(from, to);
+    }
+
+    /**
+     * Identifica el ranking que se va a servir, calculándolo si no hay uno
+     * vigente; se usa en el ETag. Cada cálculo recibe una marca nueva, así un
+     * ETag nunca coincide con un ranking distinto del que etiquetó.
+     */
+    @Transactional
+    public long rankingStamp(Long ownerId) {
+        return ranked(ownerId).stamp;
+    }
+
+    @Scheduled(fixedDelayString = "${feed.top.cache-ttl-ms:60000}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        cache.values().removeIf(feed -> feed.expiresAt <= now);
+    }
+
+    private RankedFeed ranked(Long ownerId) {
+        long now = System.currentTimeMillis();
+        RankedFeed cached = cache.get(ownerId);
+        if (cached != null && cached.expiresAt > now) {
+            cacheHits.increment();
+            return cached;
+        }
+        cacheMisses.increment();
+
+        List<FeedItemProjection> candidates = timelineService.getFeedPage(ownerId, PageRequest.of(0, candidateWindow));
+        List<FeedItemProjection> items = rank(candidates, LocalDateTime.now());
+        RankedFeed ranked = new RankedFeed(items, now + cacheTtlMs, stamps.incrementAndGet());
+        cache.put(ownerId, ranked);
+        return ranked;
+    }
+
+    private List<FeedItemProjection> rank(List<FeedItemProjection> candidates, LocalDateTime now) {
+        // Heap de mínimos con los K mejores: O(n log K) en lugar de ordenar toda la ventana
+        PriorityQueue<ScoredItem> heap = new PriorityQueue<>(maxResults + 1);
+        Set<Long> seenChirps = new HashSet<>();
+        for (FeedItemProjection item : candidates) {
+            // Un chirp reposteado por varios seguidos aparece una sola vez (la entrada más reciente)
+            if (!seenChirps.add(item.getId())) {
+                continue;
+            }
+            heap.offer(new ScoredItem(item, score(item, now)));
+            if (heap.size() > maxResults) {
+                heap.poll();
+            }
+        }
+
+        List<FeedItemProjection> items = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            items.add(heap.poll().item);
+        }
+        Collections.reverse(items);
+        return Collections.unmodifiableList(items);
+    }
+
+    private double score(FeedItemProjection item, LocalDateTime now) {
+        double engagement = LIKE_WEIGHT * item.getLikesCount()
+                + REPOST_WEIGHT * item.getRepostsCount()
+                + REPLY_WEIGHT * item.getRepliesCount();
+        // La antigüedad cuenta desde que entró al feed (un repost reciente vuelve a subir)
+        double ageHours = Math.max(0, Duration.between(item.getSortDate(), now).toMinutes() / 60.0);
+        return (1 + engagement) * Math.pow(0.5, ageHours / halfLifeHours);
+    }
+
+    private static class ScoredItem implements Comparable<ScoredItem> {
+        private final FeedItemProjection item;
+        private final double score;
+
+        ScoredItem(FeedItemProjection item, double score) {
+            this.item = item;
+            this.score = score;
+        }
+
+        @Override
+        public int compareTo(ScoredItem other) {
+            int result = Double.compare(score, other.score);
+            // Con el mismo puntaje gana el más reciente
+            return result != 0 ? result : item.getSortDate().compareTo(other.item.getSortDate());
+        }
+    }
+
+    private static class RankedFeed {
+        private final List<FeedItemProjection> items;
+        private final long expiresAt;
+        private final long stamp;
+
+        RankedFeed(List<FeedItemProjection> items, long expiresAt, long stamp) {
+            this.items = items;
+            this.expiresAt = expiresAt;
+            this.stamp = stamp;
+        }
+    }
+}
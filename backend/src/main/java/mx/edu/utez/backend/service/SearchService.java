@@ -1,24 +1,57 @@
 package mx.edu.utez.backend.service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import mx.edu.utez.backend.dto.ChirpDTO;
 import mx.edu.utez.backend.dto.UserDTO;
+import mx.edu.utez.backend.dto.response.FeedPageResponse;
 import mx.edu.utez.backend.dto.response.SearchResponse;
+import mx.edu.utez.backend.exception.BadRequestException;
+import mx.edu.utez.backend.exception.ResourceNotFoundException;
 import mx.edu.utez.backend.model.Chirp;
+import mx.edu.utez.backend.model.ChirpHashtag;
+import mx.edu.utez.backend.model.ChirpMention;
 import mx.edu.utez.backend.model.User;
 import mx.edu.utez.backend.repository.*;
+import mx.edu.utez.backend.util.ChirpTextParser;
 import mx.edu.utez.backend.util.DTOMapper;
+import mx.edu.utez.backend.util.FeedCursor;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
 public class SearchService {
     
+    // Igual al top-K por nodo del autocompletado (search.typeahead.top-k)
+    private static final int MAX_USER_RESULTS = 10;
+    
+    private static final int MAX_ALL_CHIRP_RESULTS = 10;
+    
     @Autowired
     private UserRepository userRepository;
     
@@ -26,71 +59,217 @@ public class SearchService {
     private ChirpRepository chirpRepository;
     
     @Autowired
-    private FollowRepository followRepository;
+    private ChirpSearchIndex chirpSearchIndex;
+    
+    @Autowired
+    private UserTypeaheadIndex userTypeaheadIndex;
+    
+    @Autowired
+    private ChirpHashtagRepository chirpHashtagRepository;
+    
+    @Autowired
+    private ChirpMentionRepository chirpMentionRepository;
     
     @Autowired
-    private LikeRepository likeRepository;
+    private ViewerStateResolver viewerStateResolver;
     
     @Autowired
-    private RepostRepository repostRepository;
+    private ChirpImageLoader chirpImageLoader;
     
     @Autowired
     private DTOMapper dtoMapper;
     
-    @Transactional(readOnly = true)
-    public SearchResponse searchAll(String query, User currentUser) {
-        // Buscar usuarios (limitar a 10)
-        List<User> users = userRepository.searchUsers(query);
-        List<UserDTO> userDTOs = users.stream()
-                .limit(10)
-                .map(user -> {
-                    boolean isFollowing = followRepository.existsByFollowerIdAndFollowingId(
-                            currentUser.getId(), user.getId());
-                    return dtoMapper.toUserDTO(user, isFollowing);
-                })
-                .collect(Collectors.toList());
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${search.all.timeout-ms:800}")
+    private long allTimeoutMs;
+    
+    @Value("${search.all.threads:8}")
+    private int allThreads;
+    
+    @Value("${search.all.queue-capacity:64}")
+    private int allQueueCapacity;
+    
+    private ThreadPoolExecutor allExecutor;
+    private TransactionTemplate readOnlyTransaction;
+    private Counter usersTimedOut;
+    private Counter chirpsTimedOut;
+    private Counter allRejected;
+    
+    @PostConstruct
+    public void initialize() {
+        usersTimedOut = meterRegistry.counter("search.all.timeouts", "part", "users");
+        chirpsTimedOut = meterRegistry.counter("search.all.timeouts", "part", "chirps");
+        allRejected = meterRegistry.counter("search.all.rejected");
         
-        // Buscar chirps (limitar a 10)
-        List<Chirp> chirps = chirpRepository.searchChirps(query);
-        List<ChirpDTO> chirpDTOs = chirps.stream()
-                .limit(10)
-                .map(chirp -> {
-                    boolean isLiked = likeRepository.existsByUserIdAndChirpId(
-                            currentUser.getId(), chirp.getId());
-                    boolean isReposted = repostRepository.existsByUserIdAndChirpId(
-                            currentUser.getId(), chirp.getId());
-                    return dtoMapper.toChirpDTO(chirp, isLiked, isReposted);
-                })
-                .collect(Collectors.toList());
+        // Cada sub-búsqueda corre en otro hilo, así que abre su propia transacción de lectura;
+        // el timeout de la transacción también corta la consulta en MySQL al vencer el plazo
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        readOnlyTransaction.setTimeout((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(allTimeoutMs + 999)));
         
-        return new SearchResponse(userDTOs, chirpDTOs);
+        AtomicInteger threadNumber = new AtomicInteger();
+        allExecutor = new ThreadPoolExecutor(allThreads, allThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(allQueueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "search-all-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        allExecutor.allowCoreThreadTimeOut(true);
     }
     
-    @Transactional(readOnly = true)
-    public List<UserDTO> searchUsers(String query, User currentUser) {
-        List<User> users = userRepository.searchUsers(query);
+    @PreDestroy
+    public void shutdown() {
+        allExecutor.shutdownNow();
+    }
+    
+    // Usuarios y chirps en paralelo con un plazo común; lo que no llegue a tiempo se
+    // responde vacío y la respuesta se marca como parcial
+    public SearchResponse searchAll(String query, User currentUser) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(allTimeoutMs);
+        Future<List<UserDTO>> users = submit(() -> toUserDTOs(findUsers(query, MAX_USER_RESULTS), currentUser));
+        Future<List<ChirpDTO>> chirps = submit(() ->
+                toChirpDTOs(findChirps(query, PageRequest.of(0, MAX_ALL_CHIRP_RESULTS)), currentUser));
         
-        return users.stream()
-                .map(user -> {
-                    boolean isFollowing = followRepository.existsByFollowerIdAndFollowingId(
-                            currentUser.getId(), user.getId());
-                    return dtoMapper.toUserDTO(user, isFollowing);
-                })
-                .collect(Collectors.toList());
+        List<UserDTO> userDTOs = await(users, deadline, usersTimedOut);
+        List<ChirpDTO> chirpDTOs = await(chirps, deadline, chirpsTimedOut);
+        boolean partial = userDTOs == null || chirpDTOs == null;
+        return new SearchResponse(userDTOs == null ? List.of() : userDTOs,
+                chirpDTOs == null ? List.of() : chirpDTOs, partial);
+    }
+    
+    @Transactional(readOnly = true)
+    public List<UserDTO> searchUsers(String query, int limit, User currentUser) {
+        return toUserDTOs(findUsers(query, Math.max(1, Math.min(limit, MAX_USER_RESULTS))), currentUser);
     }
     
     @Transactional(readOnly = true)
     public List<ChirpDTO> searchChirps(String query, User currentUser, Pageable pageable) {
-        Page<Chirp> chirps = chirpRepository.searchChirpsPage(query, pageable);
-        
-        return chirps.stream()
-                .map(chirp -> {
-                    boolean isLiked = likeRepository.existsByUserIdAndChirpId(
-                            currentUser.getId(), chirp.getId());
-                    boolean isReposted = repostRepository.existsByUserIdAndChirpId(
-                            currentUser.getId(), chirp.getId());
-                    return dtoMapper.toChirpDTO(chirp, isLiked, isReposted);
-                })
+        return toChirpDTOs(findChirps(query, pageable), currentUser);
+    }
+    
+    @Transactional(readOnly = true)
+    public FeedPageResponse getHashtagChirps(String tag, FeedCursor before, int size, User currentUser) {
+        String normalized = ChirpTextParser.normalizeTag(tag);
+        if (normalized.isEmpty()) {
+            throw new BadRequestException("Hashtag inválido");
+        }
+        Pageable page = PageRequest.of(0, size);
+        List<ChirpHashtag> rows = before == null
+                ? chirpHashtagRepository.findLatest(normalized, page)
+                : chirpHashtagRepository.findBefore(normalized, before.getSortDate(), before.getId(), page);
+        List<Long> chirpIds = rows.stream().map(row -> row.getId().getChirpId()).collect(Collectors.toList());
+        String nextCursor = null;
+        if (!rows.isEmpty() && rows.size() >= size) {
+            ChirpHashtag last = rows.get(rows.size() - 1);
+            nextCursor = new FeedCursor(last.getCreatedAt(), last.getId().getChirpId()).toString();
+        }
+        return new FeedPageResponse(toChirpDTOs(findInOrder(chirpIds), currentUser), nextCursor);
+    }
+    
+    @Transactional(readOnly = true)
+    public FeedPageResponse getMentionChirps(Long userId, FeedCursor before, int size, User currentUser) {
+        if (userRepository.findExistingIds(List.of(userId)).isEmpty()) {
+            throw new ResourceNotFoundException("Usuario no encontrado");
+        }
+        Pageable page = PageRequest.of(0, size);
+        List<ChirpMention> rows = before == null
+                ? chirpMentionRepository.findLatest(userId, page)
+                : chirpMentionRepository.findBefore(userId, before.getSortDate(), before.getId(), page);
+        List<Long> chirpIds = rows.stream().map(row -> row.getId().getChirpId()).collect(Collectors.toList());
+        String nextCursor = null;
+        if (!rows.isEmpty() && rows.size() >= size) {
+            ChirpMention last = rows.get(rows.size() - 1);
+            nextCursor = new FeedCursor(last.getCreatedAt(), last.getId().getChirpId()).toString();
+        }
+        return new FeedPageResponse(toChirpDTOs(findInOrder(chirpIds), currentUser), nextCursor);
+    }
+    
+    // Autocompletado en memoria; con el trie aún cargando se usa la búsqueda por LIKE
+    private List<User> findUsers(String query, int limit) {
+        if (!userTypeaheadIndex.isReady()) {
+            return userRepository.searchUsers(query, PageRequest.of(0, limit));
+        }
+        List<Long> userIds = userTypeaheadIndex.search(query, limit);
+        if (userIds.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, User> byId = userRepository.findAllById(userIds).stream()
+                .filter(user -> user.getDeletionRequestedAt() == null)
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        return userIds.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+    
+    private List<Chirp> findChirps(String query, Pageable pageable) {
+        if (chirpSearchIndex.isReady()) {
+            return findInOrder(chirpSearchIndex.search(query, (int) pageable.getOffset(), pageable.getPageSize()));
+        }
+        // Índice en reconstrucción: búsqueda por LIKE sobre la tabla, con el límite en la consulta
+        return chirpRepository.searchChirps(query, pageable);
+    }
+    
+    private <T> Future<List<T>> submit(Supplier<List<T>> search) {
+        try {
+            return allExecutor.submit(() -> readOnlyTransaction.execute(status -> search.get()));
+        } catch (RejectedExecutionException e) {
+            // Pool saturado: esa parte se da por vencida en lugar de encolar más trabajo
+            allRejected.increment();
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+    
+    // null si la sub-búsqueda no terminó antes del plazo
+    private <T> List<T> await(Future<List<T>> future, long deadline, Counter timedOut) {
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            timedOut.increment();
+            return null;
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+    
+    // Carga los chirps en el orden del ranking; los borrados después de indexarse no aparecen
+    private List<Chirp> findInOrder(List<Long> chirpIds) {
+        if (chirpIds.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Chirp> byId = chirpRepository.findAllById(chirpIds).stream()
+                .collect(Collectors.toMap(Chirp::getId, Function.identity()));
+        return chirpIds.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
     }
+    
+    private List<UserDTO> toUserDTOs(List<User> users, User currentUser) {
+        Set<Long> followingIds = viewerStateResolver.resolveFollowing(currentUser.getId(),
+                users.stream().map(User::getId).collect(Collectors.toList()));
+        return users.stream()
+                .map(user -> dtoMapper.toUserDTO(user, followingIds.contains(user.getId())))
+                .collect(Collectors.toList());
+    }
+    
+    private List<ChirpDTO> toChirpDTOs(List<Chirp> chirps, User currentUser) {
+        List<Long> chirpIds = chirps.stream().map(Chirp::getId).collect(Collectors.toList());
+        return dtoMapper.toChirpDTOs(chirps,
+                viewerStateResolver.resolve(currentUser.getId(), chirpIds),
+                chirpImageLoader.load(chirpIds));
+    }
 }
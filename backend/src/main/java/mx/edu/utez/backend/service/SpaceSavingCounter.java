@@ -0,0 +1,58 @@
+package mx.edu.utez.backend.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Algoritmo space-saving: sigue como máximo {@code capacity} términos. Cuando
+ * llega uno nuevo y no hay lugar, reemplaza al de menor conteo y hereda ese
+ * conteo, así cualquier término más frecuente que total / capacity siempre
+ * queda entre los candidatos.
+ */
+class SpaceSavingCounter {
+
+    private final int capacity;
+    private final Map<String, long[]> counts;
+
+    SpaceSavingCounter(int capacity) {
+        this.capacity = capacity;
+        this.counts = new HashMap<>(capacity * 2);
+    }
+
+    void add(String term) {
+        long[] count = counts.get(term);
+        if (count != null) {
+            count[0]++;
+            return;
+        }
+        if (counts.size() < capacity) {
+            counts.put(term, new long[] { 1 });
+            return;
+        }
+        // Búsqueda lineal del mínimo: la capacidad es chica y esto solo pasa con términos nuevos
+        String minTerm = null;
+        long min = Long.MAX_VALUE;
+        for (Map.Entry<String, long[]> entry : counts.entrySet()) {
+            if (entry.getValue()[0] < min) {
+                min = entry.getValue()[0];
+                minTerm = entry.getKey();
+            }
+        }
+        counts.remove(minTerm);
+        counts.put(term, new long[] { min + 1 });
+    }
+
+    Set<String> terms() {
+        return counts.keySet();
+    }
+
+    void clear() {
+        counts.clear();
+    }
+
+    // Aproximado: entradas del mapa con su arreglo y un término de ~16 caracteres
+    long bytes() {
+        return 64L + capacity * 120L;
+    }
+}
@@ -0,0 +1,339 @@
+package mx.edu.utez.backend.service;
+
+import mx.edu.utez.backend.dto.response.FeedEventResponse;
+import mx.edu.utez.backend.model.Chirp;
+import mx.edu.utez.backend.model.TimelineEntry;
+import mx.edu.utez.backend.model.User;
+import mx.edu.utez.backend.repository.ChirpRepository;
+import mx.edu.utez.backend.repository.FeedItem;
+import mx.edu.utez.backend.repository.FeedItemProjection;
+import mx.edu.utez.backend.repository.TimelineRepository;
+import mx.edu.utez.backend.repository.UserRepository;
+import mx.edu.utez.backend.util.FeedCursor;
+import mx.edu.utez.backend.util.TransactionHooks;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Timeline materializado por usuario. Las escrituras (chirp, repost, follow)
+ * insertan o borran entradas en home_timeline y la lectura del feed es un
+ * range scan sobre (owner_id, sort_ts). Los autores con muchos seguidores se
+ * mezclan en lectura a través de {@link HybridFeedService}.
+ */
+@Service
+public class TimelineService {
+
+    private static final Comparator<FeedItemProjection> NEWEST_FIRST = Comparator
+            .comparing(FeedItemProjection::getSortDate, Comparator.reverseOrder())
+            .thenComparing(FeedItemProjection::getEntryId, Comparator.reverseOrder());
+
+    @Autowired
+    private TimelineRepository timelineRepository;
+
+    @Autowired
+    private ChirpRepository chirpRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private HybridFeedService hybridFeedService;
+
+    @Autowired
+    private FollowGraphCache followGraphCache;
+
+    @Autowired
+    private AuthorFeedStreams authorFeedStreams;
+
+    @Autowired
+    private FeedMergeEngine feedMergeEngine;
+
+    @Autowired
+    private VersionStampService versionStampService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private FeedEventBroadcaster feedEventBroadcaster;
+
+    // Chirps/reposts que se copian al timeline cuando se sigue a alguien
+    @Value("${feed.timeline.backfill-size:50}")
+    private int backfillSize;
+
+    // Tamaño máximo del timeline que se construye para usuarios sin entradas
+    @Value("${feed.timeline.rebuild-size:800}")
+    private int rebuildSize;
+
+    // Filas por rebanada al leer chirps/reposts de cada autor durante la reconstrucción
+    @Value("${feed.timeline.rebuild-slice-size:20}")
+    private int rebuildSliceSize;
+
+    // Usuarios cuyo timeline ya está construido; evita consultar users.timeline_seeded_at en cada lectura
+    private final Set<Long> seededOwners = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Versión del feed de un usuario: su timeline materializado más los
+     * buffers de los autores en modo pull que sigue. No consulta la base de datos
+     * salvo para cargar el grafo de seguimiento si no está en memoria.
+     */
+    public String feedVersion(Long ownerId) {
+        long version = versionStampService.timelineVersion(ownerId);
+        for (Long celebrityId : hybridFeedService.followedCelebrities(ownerId)) {
+            version = 31 * version + versionStampService.authorStreamVersion(celebrityId);
+        }
+        return versionStampService.getBootEpoch() + "-" + version;
+    }
+
+    @Transactional
+    public List<FeedItemProjection> getFeedPage(Long ownerId, Pageable pageable) {
+        ensureSeeded(ownerId);
+
+        int window = (int) pageable.getOffset() + pageable.getPageSize();
+        List<FeedEntry> pulled = hybridFeedService.pullEntries(ownerId, null, window);
+        if (pulled.isEmpty()) {
+            return timelineRepository.findFeedPage(ownerId, pageable);
+        }
+
+        // Con entradas en modo pull se mezcla desde el inicio y se recorta la página
+        List<FeedItemProjection> merged = merge(
+                timelineRepository.findFeedPage(ownerId, PageRequest.of(0, window)), pulled, window);
+        int from = (int) Math.min(pageable.getOffset(), merged.size());
+        return merged.subList(from, merged.size());
+    }
+
+    @Transactional(readOnly = true)
+    public List<FeedItemProjection> getFeedPageBefore(Long ownerId, FeedCursor before, int limit) {
+        List<FeedItemProjection> pushed = timelineRepository.findFeedPageBefore(
+                ownerId, before.getSortDate(), before.getId(), limit);
+        List<FeedEntry> pulled = hybridFeedService.pullEntries(ownerId, before, limit);
+        return pulled.isEmpty() ? pushed : merge(pushed, pulled, limit);
+    }
+
+    @Transactional
+    public void fanOutChirp(Chirp chirp) {
+        // Las respuestas no aparecen en el feed
+        if (chirp.getReplyTo() != null) {
+            return;
+        }
+        User author = chirp.getAuthor();
+        feedEventBroadcaster.publish(author.getId(),
+                new FeedEventResponse(chirp.getId(), author.getId(), null, chirp.getCreatedAt()));
+        if (hybridFeedService.isCelebrity(author)) {
+            timelineRepository.save(new TimelineEntry(null, author.getId(), chirp.getId(), author.getId(),
+                    null, chirp.getCreatedAt(), null));
+            hybridFeedService.append(author.getId(),
+                    new FeedEntry(chirp.getId(), author.getId(), null, chirp.getCreatedAt()));
+            versionStampService.bumpTimeline(author.getId());
+            versionStampService.bumpAuthorStream(author.getId());
+            return;
+        }
+        long start = System.nanoTime();
+        int rows = timelineRepository.fanOutChirp(chirp.getId(), author.getId(), chirp.getCreatedAt());
+        hybridFeedService.recordFanOut(start, rows);
+        versionStampService.bumpTimelines(author.getId(), followGraphCache.followers(author.getId()));
+    }
+
+    @Transactional
+    public void fanOutRepost(Long chirpId, Long authorId, User reposter, LocalDateTime createdAt) {
+        fanOutReposts(Map.of(chirpId, authorId), reposter, createdAt);
+    }
+
+    /**
+     * Fan-out de varios reposts del mismo usuario (chirpId → autor) con un
+     * solo INSERT…SELECT; las versiones de los timelines se incrementan una vez.
+     */
+    @Transactional
+    public void fanOutReposts(Map<Long, Long> authorsByChirp, User reposter, LocalDateTime createdAt) {
+        if (authorsByChirp.isEmpty()) {
+            return;
+        }
+        Long reposterId = reposter.getId();
+        authorsByChirp.forEach((chirpId, authorId) -> feedEventBroadcaster.publish(reposterId,
+                new FeedEventResponse(chirpId, authorId, reposterId, createdAt)));
+        if (hybridFeedService.isCelebrity(reposter)) {
+            List<TimelineEntry> entries = new ArrayList<>(authorsByChirp.size());
+            authorsByChirp.forEach((chirpId, authorId) -> {
+                entries.add(new TimelineEntry(null, reposterId, chirpId, authorId, reposterId, createdAt, null));
+                hybridFeedService.append(reposterId, new FeedEntry(chirpId, authorId, reposterId, createdAt));
+            });
+            timelineRepository.saveAll(entries);
+            versionStampService.bumpTimeline(reposterId);
+            versionStampService.bumpAuthorStream(reposterId);
+            return;
+        }
+        long start = System.nanoTime();
+        int rows = timelineRepository.fanOutReposts(authorsByChirp.keySet(), reposterId, createdAt);
+        hybridFeedService.recordFanOut(start, rows);
+        versionStampService.bumpTimelines(reposterId, followGraphCache.followers(reposterId));
+    }
+
+    @Transactional
+    public void removeChirp(Long chirpId) {
+        // Las lecturas ya excluyen chirps borrados; sus filas de home_timeline las elimina ChirpPurger
+        hybridFeedService.removeChirp(chirpId);
+        // Puede estar en cualquier timeline (reposts incluidos); los borrados son poco frecuentes
+        versionStampService.bumpAllTimelines();
+    }
+
+    @Transactional
+    public void removeRepost(Long chirpId, Long reposterId) {
+        timelineRepository.deleteRepost(chirpId, reposterId);
+        hybridFeedService.removeRepost(chirpId, reposterId);
+        versionStampService.bumpTimelines(reposterId, followGraphCache.followers(reposterId));
+        versionStampService.bumpAuthorStream(reposterId);
+    }
+
+    // Quita varios reposts del mismo usuario con un solo DELETE
+    @Transactional
+    public void removeReposts(Collection<Long> chirpIds, Long reposterId) {
+        timelineRepository.deleteReposts(chirpIds, reposterId);
+        chirpIds.forEach(chirpId -> hybridFeedService.removeRepost(chirpId, reposterId));
+        versionStampService.bumpTimelines(reposterId, followGraphCache.followers(reposterId));
+        versionStampService.bumpAuthorStream(reposterId);
+    }
+
+    @Transactional
+    public void onFollow(Long ownerId, Long followedId) {
+        timelineRepository.backfillFromUser(ownerId, followedId, backfillSize);
+        versionStampService.bumpTimeline(ownerId);
+    }
+
+    @Transactional
+    public void onUnfollow(Long ownerId, Long followedId) {
+        timelineRepository.removeUserFromTimeline(ownerId, followedId);
+        versionStampService.bumpTimeline(ownerId);
+    }
+
+    // Cada backfill está acotado por autor; el lote de follows ya viene limitado en tamaño
+    @Transactional
+    public void onFollowAll(Long ownerId, Collection<Long> followedIds) {
+        for (Long followedId : followedIds) {
+            timelineRepository.backfillFromUser(ownerId, followedId, backfillSize);
+        }
+        versionStampService.bumpTimeline(ownerId);
+    }
+
+    @Transactional
+    public void onUnfollowAll(Long ownerId, Collection<Long> followedIds) {
+        timelineRepository.removeUsersFromTimeline(ownerId, followedIds);
+        versionStampService.bumpTimeline(ownerId);
+    }
+
+    /**
+     * Mezcla la página de home_timeline con las entradas en modo pull,
+     * descartando duplicados (el mismo chirp/repost ya materializado).
+     */
+    private List<FeedItemProjection> merge(List<FeedItemProjection> pushed, List<FeedEntry> pulled, int limit) {
+        Set<String> seen = pushed.stream()
+                .map(item -> item.getId() + ":" + item.getReposterId())
+                .collect(Collectors.toCollection(HashSet::new));
+
+        List<FeedEntry> missing = pulled.stream()
+                .filter(entry -> seen.add(entry.key()))
+                .collect(Collectors.toList());
+
+        List<FeedItemProjection> merged = new ArrayList<>(pushed);
+        merged.addAll(hydrate(missing));
+        merged.sort(NEWEST_FIRST);
+        return merged.size() > limit ? merged.subList(0, limit) : merged;
+    }
+
+    private List<FeedItemProjection> hydrate(List<FeedEntry> entries) {
+        if (entries.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, FeedItemProjection> chirps = chirpRepository.findFeedItemsByChirpIds(
+                entries.stream().map(FeedEntry::getChirpId).collect(Collectors.toSet())).stream()
+                .collect(Collectors.toMap(FeedItemProjection::getId, Function.identity()));
+        Map<Long, User> reposters = new HashMap<>();
+        userRepository.findAllById(entries.stream()
+                .map(FeedEntry::getReposterId)
+                .filter(id -> id != null)
+                .collect(Collectors.toSet()))
+                .forEach(user -> reposters.put(user.getId(), user));
+
+        List<FeedItemProjection> items = new ArrayList<>();
+        for (FeedEntry entry : entries) {
+            FeedItemProjection chirp = chirps.get(entry.getChirpId());
+            if (chirp == null) {
+                continue; // borrado después de entrar al buffer
+            }
+            FeedItem item = FeedItem.copyOf(chirp);
+            item.setSortDate(entry.getSortTs());
+            item.setEntryId(entry.pulledEntryId()); // a igual fecha van después de las entradas de home_timeline
+            User reposter = entry.getReposterId() != null ? reposters.get(entry.getReposterId()) : null;
+            if (reposter != null) {
+                item.setReposterId(reposter.getId());
+                item.setReposterUsername(reposter.getUsername());
+                item.setReposterDisplayName(reposter.getDisplayName());
+            }
+            items.add(item);
+        }
+        return items;
+    }
+
+    /**
+     * Los usuarios que existían antes del timeline materializado se construyen
+     * una sola vez, mezclando en memoria rebanadas por autor (propias y de cada
+     * seguido) en lugar de ordenar la unión en MySQL. Tener filas no basta como
+     * señal: un fan-out o un follow pueden haber escrito antes de la primera
+     * lectura. La marca users.timeline_seeded_at se reclama con un UPDATE
+     * condicional; una lectura concurrente espera el bloqueo de la fila y al
+     * confirmarse ya no la reclama.
+     */
+    private void ensureSeeded(Long ownerId) {
+        if (seededOwners.contains(ownerId)) {
+            return;
+        }
+        int claimed = jdbcTemplate.update(
+                "UPDATE users SET timeline_seeded_at = ? WHERE id = ? AND timeline_seeded_at IS NULL",
+                Timestamp.valueOf(LocalDateTime.now()), ownerId);
+        if (claimed == 0) {
+            seededOwners.add(ownerId);
+            return;
+        }
+        long[] following = followGraphCache.following(ownerId);
+        long[] sources = Arrays.copyOf(following, following.length + 1);
+        sources[following.length] = ownerId;
+
+        List<FeedEntry> entries = feedMergeEngine.merge(
+                authorFeedStreams.streamsFor(sources, rebuildSliceSize), rebuildSize);
+        insertEntries(ownerId, entries);
+        // Si la transacción se revierte la marca también, y la próxima lectura lo intenta de nuevo
+        TransactionHooks.afterCommit(() -> seededOwners.add(ownerId));
+    }
+
+    // INSERT IGNORE: las entradas ya escritas por fan-out o backfill se conservan
+    private void insertEntries(Long ownerId, List<FeedEntry> entries) {
+        jdbcTemplate.batchUpdate(
+                "INSERT IGNORE INTO home_timeline (owner_id, chirp_id, author_id, reposter_id, sort_ts) VALUES (?, ?, ?, ?, ?)",
+                entries, 500, (ps, entry) -> {
+                    ps.setLong(1, ownerId);
+                    ps.setLong(2, entry.getChirpId());
+                    ps.setLong(3, entry.getAuthorId());
+                    ps.setObject(4, entry.getReposterId());
+                    ps.setObject(5, entry.getSortTs());
+                });
+    }
+}
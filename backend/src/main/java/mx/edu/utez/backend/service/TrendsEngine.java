@@ -0,0 +1,402 @@
+package mx.edu.utez.backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import mx.edu.utez.backend.dto.response.TrendResponse;
+import mx.edu.utez.backend.dto.response.TrendsResponse;
+import mx.edu.utez.backend.exception.BadRequestException;
+import mx.edu.utez.backend.model.Chirp;
+import mx.edu.utez.backend.util.ChirpTextParser;
+import mx.edu.utez.backend.util.TextNormalizer;
+import mx.edu.utez.backend.util.TransactionHooks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tendencias de hashtags en memoria, alimentadas por cada chirp publicado.
+ * Cada ventana (1h y 24h) se divide en tramos; cada tramo tiene un count-min
+ * sketch para estimar conteos y un contador space-saving con los candidatos
+ * más frecuentes. Consultar una ventana es unir los candidatos de sus tramos
+ * vigentes y sumar sus estimaciones; los tramos viejos se reciclan al
+ * escribir, sin tareas de limpieza.
+ *
+ * Hay un ámbito global y uno por país y por ciudad (máximo
+ * trends.max-scopes, se descarta el menos usado). Como sketches y candidatos
+ * tienen tamaño fijo, la memoria queda acotada sin importar cuántos hashtags
+ * distintos aparezcan. Al arrancar se recargan las últimas 24h extrayendo
+ * los hashtags del contenido de los chirps, así no depende de que
+ * chirp_hashtags ya tenga las filas de chirps anteriores a esa tabla.
+ */
+@Service
+public class TrendsEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(TrendsEngine.class);
+
+    private static final String GLOBAL_SCOPE = "";
+
+    // Nombre de la ventana -> duración; el orden es el de Scope.windows
+    private static final Map<String, Long> WINDOWS = new LinkedHashMap<>();
+
+    static {
+        WINDOWS.put("1h", 3_600_000L);
+        WINDOWS.put("24h", 86_400_000L);
+    }
+
+    private static final String WARMUP_CHIRPS_SQL =
+            "SELECT id, content, created_at, country, city FROM chirps WHERE id < ? AND deleted = false ORDER BY id DESC LIMIT ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${trends.enabled:true}")
+    private boolean enabled;
+
+    @Value("${trends.short-window-buckets:12}")
+    private int shortWindowBuckets;
+
+    @Value("${trends.long-window-buckets:24}")
+    private int longWindowBuckets;
+
+    @Value("${trends.sketch-depth:4}")
+    private int sketchDepth;
+
+    @Value("${trends.sketch-width:512}")
+    private int sketchWidth;
+
+    // Capacidad del space-saving de cada tramo
+    @Value("${trends.candidates:50}")
+    private int candidates;
+
+    @Value("${trends.max-scopes:64}")
+    private int maxScopes;
+
+    @Value("${trends.max-results:20}")
+    private int maxResults;
+
+    @Value("${trends.warmup-chunk-size:1000}")
+    private int warmupChunkSize;
+
+    private final ExecutorService warmupExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "trends-warmup");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Orden de acceso para descartar el ámbito local menos consultado o actualizado
+    private final LinkedHashMap<String, Scope> scopes = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final AtomicLong allocatedBytes = new AtomicLong();
+
+    private Counter recordedEvents;
+
+    @PostConstruct
+    public void initialize() {
+        recordedEvents = meterRegistry.counter("trends.events");
+        Gauge.builder("trends.bytes", allocatedBytes, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("trends.scopes", this, TrendsEngine::getScopeCount).register(meterRegistry);
+        if (enabled) {
+            warmupExecutor.execute(this::warmUp);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        warmupExecutor.shutdownNow();
+    }
+
+    public void record(Chirp chirp) {
+        if (!enabled) {
+            return;
+        }
+        Set<String> tags = ChirpTextParser.hashtags(chirp.getContent());
+        if (tags.isEmpty()) {
+            return;
+        }
+        long timestamp = Timestamp.valueOf(chirp.getCreatedAt()).getTime();
+        String country = chirp.getCountry();
+        String city = chirp.getCity();
+        TransactionHooks.afterCommit(() -> apply(tags, country, city, timestamp));
+    }
+
+    public TrendsResponse getTrends(String window, String country, String city, int limit) {
+        Integer windowIndex = windowIndex(window);
+        if (windowIndex == null) {
+            throw new BadRequestException("Ventana inválida, usa 1h o 24h");
+        }
+        if (city != null && country == null) {
+            throw new BadRequestException("Para filtrar por ciudad también se necesita el país");
+        }
+        String key = scopeKey(country, city);
+        if (key == null) {
+            throw new BadRequestException("País o ciudad inválidos");
+        }
+        Scope scope;
+        synchronized (scopes) {
+            scope = scopes.get(key);
+        }
+        List<TrendResponse> trends = List.of();
+        if (scope != null) {
+            synchronized (scope) {
+                trends = scope.windows[windowIndex].top(Math.max(1, Math.min(limit, maxResults)),
+                        System.currentTimeMillis());
+            }
+        }
+        return new TrendsResponse(window, country, city, trends);
+    }
+
+    public int getScopeCount() {
+        synchronized (scopes) {
+            return scopes.size();
+        }
+    }
+
+    private void apply(Set<String> tags, String country, String city, long timestamp) {
+        long now = System.currentTimeMillis();
+        List<String> keys = new ArrayList<>(3);
+        keys.add(GLOBAL_SCOPE);
+        if (country != null) {
+            String countryKey = scopeKey(country, null);
+            if (countryKey != null) {
+                keys.add(countryKey);
+                String cityKey = city != null ? scopeKey(country, city) : null;
+                if (cityKey != null) {
+                    keys.add(cityKey);
+                }
+            }
+        }
+        for (String key : keys) {
+            Scope scope = scope(key);
+            synchronized (scope) {
+                if (scope.released) {
+                    continue;
+                }
+                for (String tag : tags) {
+                    for (Window window : scope.windows) {
+                        window.add(tag, timestamp, now);
+                    }
+                }
+            }
+        }
+        recordedEvents.increment();
+    }
+
+    private Scope scope(String key) {
+        synchronized (scopes) {
+            Scope scope = scopes.get(key);
+            if (scope == null) {
+                scope = new Scope();
+                scopes.put(key, scope);
+                if (scopes.size() > maxScopes) {
+                    evictLeastUsed();
+                }
+            }
+            return scope;
+        }
+    }
+
+    // El ámbito global nunca se descarta
+    private void evictLeastUsed() {
+        for (Map.Entry<String, Scope> entry : scopes.entrySet()) {
+            if (!entry.getKey().equals(GLOBAL_SCOPE)) {
+                Scope scope = entry.getValue();
+                synchronized (scope) {
+                    scope.release();
+                }
+                scopes.remove(entry.getKey());
+                return;
+            }
+        }
+    }
+
+    // "" global, "pais" o "pais|ciudad", normalizados; null si el texto queda vacío
+    private static String scopeKey(String country, String city) {
+        if (country == null) {
+            return GLOBAL_SCOPE;
+        }
+        String normalizedCountry = TextNormalizer.normalize(country).trim();
+        if (normalizedCountry.isEmpty()) {
+            return null;
+        }
+        if (city == null) {
+            return normalizedCountry;
+        }
+        String normalizedCity = TextNormalizer.normalize(city).trim();
+        return normalizedCity.isEmpty() ? null : normalizedCountry + "|" + normalizedCity;
+    }
+
+    private static Integer windowIndex(String window) {
+        int index = 0;
+        for (String name : WINDOWS.keySet()) {
+            if (name.equals(window)) {
+                return index;
+            }
+            index++;
+        }
+        return null;
+    }
+
+    // Recarga las últimas 24h recorriendo chirps por id descendente (PK) y leyendo sus hashtags del contenido
+    private void warmUp() {
+        long now = System.currentTimeMillis();
+        long since = now - WINDOWS.get("24h");
+        int chirps = 0;
+        try {
+            // Los chirps posteriores ya llegan por record()
+            Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM chirps", Long.class);
+            long cursor = maxId == null ? 0 : maxId + 1;
+            while (!Thread.currentThread().isInterrupted()) {
+                List<Map<String, Object>> rows = jdbcTemplate.queryForList(WARMUP_CHIRPS_SQL, cursor, warmupChunkSize);
+                if (rows.isEmpty()) {
+                    break;
+                }
+                boolean reachedStart = false;
+                for (Map<String, Object> row : rows) {
+                    long timestamp = toMillis(row.get("created_at"));
+                    if (timestamp < since) {
+                        reachedStart = true;
+                        break;
+                    }
+                    Set<String> tags = ChirpTextParser.hashtags((String) row.get("content"));
+                    if (!tags.isEmpty()) {
+                        apply(tags, (String) row.get("country"), (String) row.get("city"), timestamp);
+                        chirps++;
+                    }
+                }
+                cursor = ((Number) rows.get(rows.size() - 1).get("id")).longValue();
+                if (reachedStart || rows.size() < warmupChunkSize) {
+                    break;
+                }
+            }
+            log.info("Tendencias recargadas: {} chirps con hashtags de las últimas 24h", chirps);
+        } catch (DataAccessException e) {
+            log.warn("No se pudieron recargar las tendencias; se llenan con los chirps nuevos", e);
+        }
+    }
+
+    private static long toMillis(Object value) {
+        return value instanceof Timestamp timestamp
+                ? timestamp.getTime()
+                : Timestamp.valueOf((LocalDateTime) value).getTime();
+    }
+
+    private final class Scope {
+
+        private final Window[] windows = new Window[] {
+                new Window(WINDOWS.get("1h"), shortWindowBuckets),
+                new Window(WINDOWS.get("24h"), longWindowBuckets)
+        };
+
+        // Lo descartado deja de escribirse aunque un evento en curso aún tenga la referencia
+        private boolean released;
+
+        private void release() {
+            released = true;
+            for (Window window : windows) {
+                window.release();
+            }
+        }
+    }
+
+    // Ventana deslizante como anillo de tramos; cada tramo se crea en su primera escritura
+    private final class Window {
+
+        private final long bucketMillis;
+        private final long[] bucketIds;
+        private final CountMinSketch[] sketches;
+        private final SpaceSavingCounter[] counters;
+
+        private Window(long spanMillis, int buckets) {
+            this.bucketMillis = spanMillis / buckets;
+            this.bucketIds = new long[buckets];
+            this.sketches = new CountMinSketch[buckets];
+            this.counters = new SpaceSavingCounter[buckets];
+            Arrays.fill(bucketIds, -1);
+        }
+
+        private void add(String tag, long timestamp, long now) {
+            long bucket = timestamp / bucketMillis;
+            long current = now / bucketMillis;
+            if (!isLive(bucket, current)) {
+                return;
+            }
+            int slot = (int) Math.floorMod(bucket, (long) bucketIds.length);
+            if (bucketIds[slot] != bucket) {
+                // El tramo ya se recicló para uno más nuevo: el evento llegó demasiado tarde
+                if (bucketIds[slot] > bucket) {
+                    return;
+                }
+                if (sketches[slot] == null) {
+                    sketches[slot] = new CountMinSketch(sketchDepth, sketchWidth);
+                    counters[slot] = new SpaceSavingCounter(candidates);
+                    allocatedBytes.addAndGet(sketches[slot].bytes() + counters[slot].bytes());
+                } else {
+                    sketches[slot].clear();
+                    counters[slot].clear();
+                }
+                bucketIds[slot] = bucket;
+            }
+            sketches[slot].add(tag);
+            counters[slot].add(tag);
+        }
+
+        private List<TrendResponse> top(int limit, long now) {
+            long current = now / bucketMillis;
+            Set<String> terms = new HashSet<>();
+            for (int slot = 0; slot < bucketIds.length; slot++) {
+                if (isLive(bucketIds[slot], current)) {
+                    terms.addAll(counters[slot].terms());
+                }
+            }
+            List<TrendResponse> trends = new ArrayList<>(terms.size());
+            for (String term : terms) {
+                long count = 0;
+                for (int slot = 0; slot < bucketIds.length; slot++) {
+                    if (isLive(bucketIds[slot], current)) {
+                        count += sketches[slot].estimate(term);
+                    }
+                }
+                trends.add(new TrendResponse(term, count));
+            }
+            trends.sort(Comparator.comparingLong(TrendResponse::getCount).reversed()
+                    .thenComparing(TrendResponse::getHashtag));
+            return trends.size() > limit ? new ArrayList<>(trends.subList(0, limit)) : trends;
+        }
+
+        private boolean isLive(long bucket, long current) {
+            return bucket >= 0 && bucket <= current && bucket > current - bucketIds.length;
+        }
+
+        private void release() {
+            for (int slot = 0; slot < sketches.length; slot++) {
+                if (sketches[slot] != null) {
+                    allocatedBytes.addAndGet(-(sketches[slot].bytes() + counters[slot].bytes()));
+                }
+            }
+        }
+    }
+}
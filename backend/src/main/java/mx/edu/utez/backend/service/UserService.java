@@ -2,11 +2,10 @@ package mx.edu.utez.backend.service;
 
 import mx.edu.utez.backend.dto.ChirpDTO;
 import mx.edu.utez.backend.dto.UserDTO;
+import mx.edu.utez.backend.dto.response.BatchFollowResponse;
 import mx.edu.utez.backend.exception.BadRequestException;
 import mx.edu.utez.backend.exception.ConflictException;
 import mx.edu.utez.backend.exception.ResourceNotFoundException;
-import mx.edu.utez.backend.model.Follow;
-import mx.edu.utez.backend.model.Notification;
 import mx.edu.utez.backend.model.NotificationType;
 import mx.edu.utez.backend.model.User;
 import mx.edu.utez.backend.repository.*;
@@ -14,6 +13,7 @@ import mx.edu.utez.backend.util.DTOMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
@@ -22,13 +22,25 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.io.IOException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 public class UserService {
 
+    private static final String INSERT_FOLLOW_SQL =
+            "INSERT IGNORE INTO follows (follower_id, following_id, created_at) VALUES (?, ?, ?)";
+
+    private static final String DELETE_FOLLOW_SQL = "DELETE FROM follows WHERE follower_id = ? AND following_id = ?";
+
     @Autowired
     private UserRepository userRepository;
 
@@ -39,33 +51,51 @@ public class UserService {
     private ChirpRepository chirpRepository;
 
     @Autowired
-    private LikeRepository likeRepository;
+    private TimelineService timelineService;
+
+    @Autowired
+    private ViewerStateResolver viewerStateResolver;
+
+    @Autowired
+    private ChirpImageLoader chirpImageLoader;
 
     @Autowired
-    private RepostRepository repostRepository;
+    private FollowGraphCache followGraphCache;
 
     @Autowired
-    private NotificationRepository notificationRepository;
+    private VersionStampService versionStampService;
 
     @Autowired
-    private FirebaseService firebaseService;
+    private NotificationPipeline notificationPipeline;
 
     @Autowired
     private DTOMapper dtoMapper;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserTypeaheadIndex userTypeaheadIndex;
+
     @Transactional(readOnly = true)
     public UserDTO getProfile(User currentUser) {
         return dtoMapper.toUserDTO(currentUser);
     }
 
+    // ETag débil del perfil visto por un usuario: depende de la versión del perfil y de quién lo ve
+    public String getUserETag(Long userId, User currentUser) {
+        return "W/\"u-" + versionStampService.getBootEpoch() + "-" + userId + "-"
+                + versionStampService.profileVersion(userId) + "-" + currentUser.getId() + "\"";
+    }
+
     @Transactional(readOnly = true)
     public UserDTO getUserById(Long userId, User currentUser) {
         User user = userRepository.findById(userId)
+                .filter(found -> found.getDeletionRequestedAt() == null)
                 .orElseThrow(() -> new ResourceNotFoundException("Usuario no encontrado"));
 
         // Verificar si el usuario actual sigue a este usuario
-        boolean isFollowing = followRepository.existsByFollowerIdAndFollowingId(
-                currentUser.getId(), userId);
+        boolean isFollowing = followGraphCache.isFollowing(currentUser.getId(), userId);
 
         return dtoMapper.toUserDTO(user, isFollowing);
     }
@@ -80,13 +110,12 @@ public class UserService {
         Page<mx.edu.utez.backend.model.Chirp> chirps = chirpRepository.findByAuthorIdOrderByCreatedAtDesc(userId,
                 pageable);
 
-        return chirps.stream()
-                .map(chirp -> {
-                    boolean isLiked = likeRepository.existsByUserIdAndChirpId(currentUser.getId(), chirp.getId());
-                    boolean isReposted = repostRepository.existsByUserIdAndChirpId(currentUser.getId(), chirp.getId());
-                    return dtoMapper.toChirpDTO(chirp, isLiked, isReposted);
-                })
+        List<Long> chirpIds = chirps.stream()
+                .map(mx.edu.utez.backend.model.Chirp::getId)
                 .collect(Collectors.toList());
+        return dtoMapper.toChirpDTOs(chirps.getContent(),
+                viewerStateResolver.resolve(currentUser.getId(), chirpIds),
+                chirpImageLoader.load(chirpIds));
     }
 
     @Transactional
@@ -98,42 +127,33 @@ public class UserService {
 
         // Verificar que el usuario a seguir existe
         User userToFollow = userRepository.findById(userIdToFollow)
+                .filter(found -> found.getDeletionRequestedAt() == null)
                 .orElseThrow(() -> new ResourceNotFoundException("Usuario no encontrado"));
 
-        // Verificar que no lo está siguiendo ya
-        if (followRepository.existsByFollowerIdAndFollowingId(currentUser.getId(), userIdToFollow)) {
+        // INSERT IGNORE: si la relación ya existía (p. ej. un doble toque) no se inserta nada
+        int inserted = jdbcTemplate.update(INSERT_FOLLOW_SQL, currentUser.getId(), userIdToFollow,
+                Timestamp.valueOf(LocalDateTime.now()));
+        if (inserted == 0) {
             throw new ConflictException("Ya estás siguiendo a este usuario");
         }
 
-        // Crear relación de seguimiento
-        Follow follow = new Follow();
-        follow.setFollower(currentUser);
-        follow.setFollowing(userToFollow);
-        followRepository.save(follow);
-        followRepository.flush(); // Force immediate save
-
-        // Actualizar contadores
-        currentUser.setFollowingCount(currentUser.getFollowingCount() + 1);
-        userToFollow.setFollowersCount(userToFollow.getFollowersCount() + 1);
-        userRepository.save(currentUser);
-        userRepository.save(userToFollow);
-        userRepository.flush(); // Force immediate update
-
-        // Crear notificación
-        Notification notification = new Notification();
-        notification.setType(NotificationType.FOLLOW);
-        notification.setActor(currentUser);
-        notification.setUser(userToFollow);
-        notificationRepository.save(notification);
-
-        // Enviar push notification
-        firebaseService.sendPushNotificationToUser(
-                userToFollow,
-                "Nuevo seguidor",
-                currentUser.getDisplayName() + " comenzó a seguirte");
+        // Copiar sus chirps recientes al timeline
+        timelineService.onFollow(currentUser.getId(), userIdToFollow);
+        followGraphCache.onFollow(currentUser.getId(), userIdToFollow);
+
+        // Actualizar contadores con UPDATE relativos, sin pisar seguimientos concurrentes
+        userRepository.adjustFollowersCount(List.of(userIdToFollow), 1);
+        userRepository.adjustFollowingCount(currentUser.getId(), 1);
+        versionStampService.bumpProfile(currentUser.getId());
+        versionStampService.bumpProfile(userIdToFollow);
+
+        // Crear notificación (se escribe y envía después del commit)
+        notificationPipeline.publish(new NotificationEvent(NotificationType.FOLLOW, currentUser.getId(),
+                currentUser.getDisplayName(), userIdToFollow, null, null, "Nuevo seguidor",
+                currentUser.getDisplayName() + " comenzó a seguirte", null));
 
         // Devolver el usuario actualizado con isFollowing=true
-        return dtoMapper.toUserDTO(userToFollow, true);
+        return withFollowCounts(dtoMapper.toUserDTO(userToFollow, true));
     }
 
     @Transactional
@@ -147,23 +167,126 @@ public class UserService {
         User userToUnfollow = userRepository.findById(userIdToUnfollow)
                 .orElseThrow(() -> new ResourceNotFoundException("Usuario no encontrado"));
 
-        // Buscar la relación de seguimiento
-        Follow follow = followRepository.findByFollowerIdAndFollowingId(currentUser.getId(), userIdToUnfollow)
-                .orElseThrow(() -> new ResourceNotFoundException("No estás siguiendo a este usuario"));
+        // Eliminar la relación; si otra petición ya la borró, el DELETE no afecta filas
+        int deleted = jdbcTemplate.update(DELETE_FOLLOW_SQL, currentUser.getId(), userIdToUnfollow);
+        if (deleted == 0) {
+            throw new ResourceNotFoundException("No estás siguiendo a este usuario");
+        }
 
-        // Eliminar la relación
-        followRepository.delete(follow);
-        followRepository.flush(); // Force immediate deletion
+        // Quitar sus chirps y reposts del timeline
+        timelineService.onUnfollow(currentUser.getId(), userIdToUnfollow);
+        followGraphCache.onUnfollow(currentUser.getId(), userIdToUnfollow);
 
-        // Actualizar contadores
-        currentUser.setFollowingCount(Math.max(0, currentUser.getFollowingCount() - 1));
-        userToUnfollow.setFollowersCount(Math.max(0, userToUnfollow.getFollowersCount() - 1));
-        userRepository.save(currentUser);
-        userRepository.save(userToUnfollow);
-        userRepository.flush(); // Force immediate update
+        // Actualizar contadores con UPDATE relativos, sin pisar seguimientos concurrentes
+        userRepository.adjustFollowersCount(List.of(userIdToUnfollow), -1);
+        userRepository.adjustFollowingCount(currentUser.getId(), -1);
+        versionStampService.bumpProfile(currentUser.getId());
+        versionStampService.bumpProfile(userIdToUnfollow);
 
         // Devolver el usuario actualizado con isFollowing=false
-        return dtoMapper.toUserDTO(userToUnfollow, false);
+        return withFollowCounts(dtoMapper.toUserDTO(userToUnfollow, false));
+    }
+
+    /**
+     * Sigue a varios usuarios en una sola transacción: inserta los follows en un
+     * lote JDBC, ajusta los seguidores de todos con un UPDATE agrupado y publica
+     * las notificaciones juntas. Los ids inexistentes, propios o ya seguidos se
+     * devuelven como omitidos en lugar de fallar todo el lote.
+     */
+    @Transactional
+    public BatchFollowResponse followUsers(List<Long> userIds, User currentUser) {
+        Long followerId = currentUser.getId();
+        Set<Long> requested = new LinkedHashSet<>(userIds);
+        requested.remove(followerId);
+        Set<Long> candidates = new LinkedHashSet<>(requested.isEmpty()
+                ? List.of() : userRepository.findExistingIds(requested));
+        candidates.removeAll(followGraphCache.followingAmong(followerId, candidates));
+
+        // INSERT IGNORE: si otra petición ganó la carrera, la fila devuelve 0 y no se cuenta
+        List<Long> targets = new ArrayList<>(candidates);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int[] results = targets.isEmpty() ? new int[0]
+                : jdbcTemplate.batchUpdate(INSERT_FOLLOW_SQL, targets.stream()
+                        .map(id -> new Object[] { followerId, id, now })
+                        .collect(Collectors.toList()));
+        List<Long> followed = new ArrayList<>();
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] > 0 || results[i] == Statement.SUCCESS_NO_INFO) {
+                followed.add(targets.get(i));
+            }
+        }
+
+        if (!followed.isEmpty()) {
+            userRepository.adjustFollowersCount(followed, 1);
+            userRepository.adjustFollowingCount(followerId, followed.size());
+            timelineService.onFollowAll(followerId, followed);
+            List<NotificationEvent> events = new ArrayList<>();
+            for (Long followedId : followed) {
+                followGraphCache.onFollow(followerId, followedId);
+                versionStampService.bumpProfile(followedId);
+                events.add(new NotificationEvent(NotificationType.FOLLOW, followerId,
+                        currentUser.getDisplayName(), followedId, null, null, "Nuevo seguidor",
+                        currentUser.getDisplayName() + " comenzó a seguirte", null));
+            }
+            versionStampService.bumpProfile(followerId);
+            notificationPipeline.publishAll(events);
+        }
+        return batchResult(userIds, followed, followerId);
+    }
+
+    /**
+     * Deja de seguir a varios usuarios con un lote de DELETE y un UPDATE
+     * agrupado. Los contadores se ajustan solo por las filas que este lote
+     * borró de verdad, igual que followUsers con INSERT IGNORE.
+     */
+    @Transactional
+    public BatchFollowResponse unfollowUsers(List<Long> userIds, User currentUser) {
+        Long followerId = currentUser.getId();
+        Set<Long> requested = new LinkedHashSet<>(userIds);
+        requested.remove(followerId);
+        List<Long> targets = requested.isEmpty()
+                ? new ArrayList<>() : followRepository.findFollowingIdsAmong(followerId, requested);
+
+        // Si otra petición borró la fila entre la lectura y el DELETE, este devuelve 0 y no se cuenta
+        int[] results = targets.isEmpty() ? new int[0]
+                : jdbcTemplate.batchUpdate(DELETE_FOLLOW_SQL, targets.stream()
+                        .map(id -> new Object[] { followerId, id })
+                        .collect(Collectors.toList()));
+        List<Long> unfollowed = new ArrayList<>();
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] > 0 || results[i] == Statement.SUCCESS_NO_INFO) {
+                unfollowed.add(targets.get(i));
+            }
+        }
+
+        if (!unfollowed.isEmpty()) {
+            userRepository.adjustFollowersCount(unfollowed, -1);
+            userRepository.adjustFollowingCount(followerId, -unfollowed.size());
+            timelineService.onUnfollowAll(followerId, unfollowed);
+            for (Long unfollowedId : unfollowed) {
+                followGraphCache.onUnfollow(followerId, unfollowedId);
+                versionStampService.bumpProfile(unfollowedId);
+            }
+            versionStampService.bumpProfile(followerId);
+        }
+        return batchResult(userIds, unfollowed, followerId);
+    }
+
+    // La entidad se leyó antes de los UPDATE relativos: los contadores se releen de la base
+    private UserDTO withFollowCounts(UserDTO dto) {
+        dto.setFollowersCount(userRepository.findFollowersCount(dto.getId()).orElse(0));
+        dto.setFollowingCount(userRepository.findFollowingCount(dto.getId()).orElse(0));
+        return dto;
+    }
+
+    private BatchFollowResponse batchResult(List<Long> requested, List<Long> updated, Long userId) {
+        Set<Long> updatedSet = new HashSet<>(updated);
+        List<Long> skipped = requested.stream()
+                .distinct()
+                .filter(id -> !updatedSet.contains(id))
+                .collect(Collectors.toList());
+        int followingCount = userRepository.findFollowingCount(userId).orElse(0);
+        return new BatchFollowResponse(updated, skipped, followingCount);
     }
 
     @Transactional
@@ -206,6 +329,11 @@ public class UserService {
         }
 
         User updatedUser = userRepository.save(currentUser);
+        userTypeaheadIndex.upsert(updatedUser);
+
+        // El nombre y la foto también aparecen en el feed de sus seguidores
+        versionStampService.bumpProfile(currentUser.getId());
+        versionStampService.bumpTimelines(currentUser.getId(), followGraphCache.followers(currentUser.getId()));
         return dtoMapper.toUserDTO(updatedUser);
     }
 }
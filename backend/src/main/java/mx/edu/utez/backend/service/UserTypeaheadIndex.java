@@ -0,0 +1,505 @@
+package mx.edu.utez.backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import mx.edu.utez.backend.model.User;
+import mx.edu.utez.backend.util.TextNormalizer;
+import mx.edu.utez.backend.util.TransactionHooks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Autocompletado de usuarios en memoria. Un trie sobre el username y el
+ * displayName normalizados (completos y palabra por palabra) guarda en cada
+ * nodo los K usuarios con más seguidores de su subárbol, así una consulta es
+ * bajar por el prefijo y leer una lista ya ordenada.
+ *
+ * Registro y edición de perfil actualizan el trie después del commit; el peso
+ * (followersCount) se refresca con una pasada periódica por keyset. Si el
+ * tamaño estimado supera el presupuesto se expulsan los usuarios con menos
+ * seguidores.
+ */
+@Component
+public class UserTypeaheadIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(UserTypeaheadIndex.class);
+
+    // Costos aproximados para el presupuesto (headers de objetos y arreglos, referencias comprimidas)
+    private static final long NODE_BYTES = 80;
+    private static final long EDGE_BYTES = 6;
+    private static final long SLOT_BYTES = 12;
+    private static final long USER_BYTES = 160;
+
+    private static final String REFRESH_SQL = """
+            SELECT id, username, display_name, followers_count, deletion_requested_at
+            FROM users WHERE id > ? ORDER BY id LIMIT ?
+            """;
+
+    // Orden del top-K: más seguidores primero; en empate, la cuenta más antigua
+    private static final Comparator<Entry> RANK = Comparator.comparingInt((Entry entry) -> -entry.weight)
+            .thenComparingLong(entry -> entry.userId);
+
+    // Menos seguidores primero; en empate se expulsa la cuenta más nueva
+    private static final Comparator<Entry> EVICTION_ORDER = Comparator.comparingInt((Entry entry) -> entry.weight)
+            .thenComparing(entry -> entry.userId, Comparator.reverseOrder());
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${search.typeahead.enabled:true}")
+    private boolean enabled;
+
+    @Value("${search.typeahead.top-k:10}")
+    private int topK;
+
+    @Value("${search.typeahead.max-term-length:32}")
+    private int maxTermLength;
+
+    @Value("${search.typeahead.memory-budget-bytes:67108864}")
+    private long memoryBudgetBytes;
+
+    @Value("${search.typeahead.refresh-interval-ms:600000}")
+    private long refreshIntervalMs;
+
+    @Value("${search.typeahead.refresh-chunk-size:2000}")
+    private int refreshChunkSize;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "user-typeahead");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Protegidos por lock
+    private final Node root = new Node();
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final TreeSet<Entry> byWeight = new TreeSet<>(EVICTION_ORDER);
+    private long nodeCount = 1;
+    private long edgeCount;
+    private long slotCount;
+
+    private volatile boolean ready;
+
+    private Counter evictions;
+
+    @PostConstruct
+    public void initialize() {
+        evictions = meterRegistry.counter("search.typeahead.evictions");
+        Gauge.builder("search.typeahead.bytes", this, UserTypeaheadIndex::getUsedBytes).register(meterRegistry);
+        Gauge.builder("search.typeahead.users", this, UserTypeaheadIndex::getUserCount).register(meterRegistry);
+        Gauge.builder("search.typeahead.nodes", this, UserTypeaheadIndex::getNodeCount).register(meterRegistry);
+        if (enabled) {
+            executor.scheduleWithFixedDelay(this::refresh, 0, refreshIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Ids de los usuarios con más seguidores cuyo nombre o username empieza con la consulta
+    public List<Long> search(String query, int limit) {
+        String prefix = TextNormalizer.normalize(query).trim().replaceAll("\\s+", " ");
+        if (prefix.isEmpty()) {
+            return List.of();
+        }
+        if (prefix.length() > maxTermLength) {
+            prefix = prefix.substring(0, maxTermLength);
+        }
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            for (int i = 0; i < prefix.length() && node != null; i++) {
+                node = node.child(prefix.charAt(i));
+            }
+            if (node == null) {
+                return List.of();
+            }
+            List<Long> result = new ArrayList<>();
+            for (int i = 0; i < node.topSize && result.size() < limit; i++) {
+                result.add(node.topIds[i]);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void upsert(User user) {
+        if (enabled) {
+            TransactionHooks.afterCommit(() -> put(user.getId(), user.getUsername(), user.getDisplayName(),
+                    user.getFollowersCount()));
+        }
+    }
+
+    public void remove(Long userId) {
+        if (enabled) {
+            TransactionHooks.afterCommit(() -> {
+                lock.writeLock().lock();
+                try {
+                    evict(userId);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            });
+        }
+    }
+
+    public long getUsedBytes() {
+        lock.readLock().lock();
+        try {
+            return usedBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getUserCount() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getNodeCount() {
+        lock.readLock().lock();
+        try {
+            return nodeCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Pasada completa por keyset: carga inicial y actualización de pesos
+    private void refresh() {
+        long cursor = 0;
+        int updated = 0;
+        try {
+            while (true) {
+                List<Map<String, Object>> rows = jdbcTemplate.queryForList(REFRESH_SQL, cursor, refreshChunkSize);
+                for (Map<String, Object> row : rows) {
+                    cursor = ((Number) row.get("id")).longValue();
+                    if (row.get("deletion_requested_at") != null) {
+                        remove(cursor);
+                    } else if (put(cursor, (String) row.get("username"), (String) row.get("display_name"),
+                            ((Number) row.get("followers_count")).intValue())) {
+                        updated++;
+                    }
+                }
+                if (rows.size() < refreshChunkSize || Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+            }
+        } catch (DataAccessException e) {
+            log.warn("Actualización del autocompletado de usuarios interrumpida", e);
+            return;
+        }
+        if (!ready) {
+            ready = true;
+            log.info("Autocompletado de usuarios listo: {} usuarios, ~{} bytes", getUserCount(), getUsedBytes());
+        } else if (updated > 0) {
+            log.debug("Autocompletado de usuarios: {} usuarios actualizados", updated);
+        }
+    }
+
+    // Devuelve false si el usuario ya estaba igual
+    private boolean put(Long userId, String username, String displayName, int weight) {
+        Set<String> terms = terms(username, displayName);
+        lock.writeLock().lock();
+        try {
+            Entry current = entries.get(userId);
+            if (current != null && current.weight == weight && current.terms.equals(terms)) {
+                return false;
+            }
+            evict(userId);
+            Entry entry = new Entry(userId, weight, terms);
+            entries.put(userId, entry);
+            byWeight.add(entry);
+            for (String term : terms) {
+                insert(term, entry);
+            }
+            while (usedBytes() > memoryBudgetBytes && !byWeight.isEmpty()) {
+                evict(byWeight.first().userId);
+                evictions.increment();
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Set<String> terms(String username, String displayName) {
+        Set<String> terms = new LinkedHashSet<>();
+        addTerm(terms, TextNormalizer.normalize(username));
+        addTerm(terms, TextNormalizer.normalize(displayName).trim().replaceAll("\\s+", " "));
+        for (String word : TextNormalizer.words(username, Integer.MAX_VALUE)) {
+            addTerm(terms, word);
+        }
+        for (String word : TextNormalizer.words(displayName, Integer.MAX_VALUE)) {
+            addTerm(terms, word);
+        }
+        return terms;
+    }
+
+    private void addTerm(Set<String> terms, String term) {
+        if (!term.isEmpty()) {
+            terms.add(term.length() > maxTermLength ? term.substring(0, maxTermLength) : term);
+        }
+    }
+
+    // ---- Trie (con el candado de escritura tomado) ----
+
+    private void evict(Long userId) {
+        Entry entry = entries.remove(userId);
+        if (entry == null) {
+            return;
+        }
+        byWeight.remove(entry);
+        for (String term : entry.terms) {
+            delete(term, userId);
+        }
+    }
+
+    private void insert(String term, Entry entry) {
+        Node[] path = new Node[term.length() + 1];
+        path[0] = root;
+        for (int i = 0; i < term.length(); i++) {
+            Node child = path[i].child(term.charAt(i));
+            if (child == null) {
+                child = path[i].addChild(term.charAt(i));
+                nodeCount++;
+                edgeCount++;
+            }
+            path[i + 1] = child;
+        }
+        path[term.length()].addTerminal(entry, topK);
+        recompute(path);
+    }
+
+    private void delete(String term, Long userId) {
+        Node[] path = new Node[term.length() + 1];
+        path[0] = root;
+        for (int i = 0; i < term.length(); i++) {
+            path[i + 1] = path[i].child(term.charAt(i));
+            if (path[i + 1] == null) {
+                return;
+            }
+        }
+        path[term.length()].removeTerminal(userId, topK);
+        // Poda los nodos que quedaron sin usuarios ni hijos
+        int depth = term.length();
+        while (depth > 0 && path[depth].terminalSize == 0 && path[depth].keys.length == 0) {
+            slotCount -= path[depth].topSize;
+            path[depth - 1].removeChild(term.charAt(depth - 1));
+            nodeCount--;
+            edgeCount--;
+            depth--;
+        }
+        recompute(Arrays.copyOf(path, depth + 1));
+    }
+
+    // Recalcula el top-K de abajo hacia arriba: los K mejores usuarios que terminan en el nodo
+    // más el top-K de cada hijo, sin recorrer todos los que comparten un nombre común
+    private void recompute(Node[] path) {
+        for (int depth = path.length - 1; depth >= 0; depth--) {
+            Node node = path[depth];
+            // Durante un evict el usuario ya no está en entries aunque otros términos suyos sigan en el trie
+            List<Entry> candidates = new ArrayList<>();
+            for (int i = 0; i < node.topTerminalSize; i++) {
+                if (entries.get(node.topTerminals[i].userId) == node.topTerminals[i]) {
+                    candidates.add(node.topTerminals[i]);
+                }
+            }
+            for (Node child : node.children) {
+                for (int i = 0; i < child.topSize; i++) {
+                    Entry entry = entries.get(child.topIds[i]);
+                    if (entry != null) {
+                        candidates.add(entry);
+                    }
+                }
+            }
+            candidates.sort(RANK);
+            int before = node.topSize;
+            long[] top = new long[Math.min(topK, candidates.size())];
+            int size = 0;
+            for (Entry candidate : candidates) {
+                if (size == top.length) {
+                    break;
+                }
+                if (size == 0 || !contains(top, size, candidate.userId)) {
+                    top[size++] = candidate.userId;
+                }
+            }
+            node.topIds = size == top.length ? top : Arrays.copyOf(top, size);
+            node.topSize = size;
+            slotCount += size - before;
+        }
+    }
+
+    private static boolean contains(long[] ids, int size, long id) {
+        for (int i = 0; i < size; i++) {
+            if (ids[i] == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long usedBytes() {
+        return nodeCount * NODE_BYTES + edgeCount * EDGE_BYTES + slotCount * SLOT_BYTES
+                + entries.size() * USER_BYTES;
+    }
+
+    private static final class Entry {
+
+        private final long userId;
+        private final int weight;
+        private final Set<String> terms;
+
+        private Entry(long userId, int weight, Set<String> terms) {
+            this.userId = userId;
+            this.weight = weight;
+            this.terms = terms;
+        }
+    }
+
+    // Hijos en arreglos ordenados por carácter en lugar de un mapa por nodo
+    private static final class Node {
+
+        private static final char[] NO_KEYS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+        private static final Entry[] NO_TERMINALS = new Entry[0];
+
+        private char[] keys = NO_KEYS;
+        private Node[] children = NO_CHILDREN;
+        private long[] topIds = new long[0];
+        private int topSize;
+        private Entry[] terminals = NO_TERMINALS;
+        private int terminalSize;
+        // Los K mejores de terminals según RANK, ordenados
+        private Entry[] topTerminals = NO_TERMINALS;
+        private int topTerminalSize;
+
+        private Node child(char key) {
+            int index = Arrays.binarySearch(keys, key);
+            return index >= 0 ? children[index] : null;
+        }
+
+        private Node addChild(char key) {
+            int index = -Arrays.binarySearch(keys, key) - 1;
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            newKeys[index] = key;
+            newChildren[index] = new Node();
+            System.arraycopy(keys, index, newKeys, index + 1, keys.length - index);
+            System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+            keys = newKeys;
+            children = newChildren;
+            return newChildren[index];
+        }
+
+        private void removeChild(char key) {
+            int index = Arrays.binarySearch(keys, key);
+            if (index < 0) {
+                return;
+            }
+            char[] newKeys = new char[keys.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(keys, 0, newKeys, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(keys, index + 1, newKeys, index, keys.length - index - 1);
+            System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+            keys = newKeys;
+            children = newChildren;
+        }
+
+        // Crece al doble para que un nombre compartido por n usuarios no copie el arreglo n veces
+        private void addTerminal(Entry entry, int k) {
+            if (terminalSize == terminals.length) {
+                terminals = Arrays.copyOf(terminals, Math.max(4, terminals.length * 2));
+            }
+            terminals[terminalSize++] = entry;
+            offerTop(entry, k);
+        }
+
+        // Quita por intercambio con el último; solo se copia al encoger a la mitad
+        private void removeTerminal(long userId, int k) {
+            for (int i = 0; i < terminalSize; i++) {
+                if (terminals[i].userId == userId) {
+                    terminals[i] = terminals[--terminalSize];
+                    terminals[terminalSize] = null;
+                    if (terminalSize < terminals.length / 4) {
+                        terminals = Arrays.copyOf(terminals, terminals.length / 2);
+                    }
+                    break;
+                }
+            }
+            for (int i = 0; i < topTerminalSize; i++) {
+                if (topTerminals[i].userId == userId) {
+                    System.arraycopy(topTerminals, i + 1, topTerminals, i, topTerminalSize - i - 1);
+                    topTerminals[--topTerminalSize] = null;
+                    // Solo al salir uno del top se vuelve a elegir entre todos
+                    if (terminalSize > topTerminalSize) {
+                        topTerminalSize = 0;
+                        for (int j = 0; j < terminalSize; j++) {
+                            offerTop(terminals[j], k);
+                        }
+                    }
+                    return;
+                }
+            }
+        }
+
+        // Inserción ordenada en el top-K acotado de terminales
+        private void offerTop(Entry entry, int k) {
+            if (topTerminalSize == k && RANK.compare(entry, topTerminals[k - 1]) >= 0) {
+                return;
+            }
+            if (topTerminalSize == topTerminals.length) {
+                topTerminals = Arrays.copyOf(topTerminals, Math.min(k, Math.max(2, topTerminals.length * 2)));
+            }
+            int i = topTerminalSize < k ? topTerminalSize++ : k - 1;
+            while (i > 0 && RANK.compare(entry, topTerminals[i - 1]) < 0) {
+                topTerminals[i] = topTerminals[i - 1];
+                i--;
+            }
+            topTerminals[i] = entry;
+        }
+    }
+}
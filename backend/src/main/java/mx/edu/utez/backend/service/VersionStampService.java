@@ -0,0 +1,86 @@
+package mx.edu.utez.backend.service;
+
+import mx.edu.utez.backend.util.TransactionHooks;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Versiones por usuario del timeline, del perfil y de las notificaciones.
+ * Se incrementan después del commit de cada escritura y permiten responder
+ * 304 Not Modified sin ejecutar consultas. Incluyen un epoch de arranque para
+ * que un reinicio invalide los ETag emitidos antes.
+ */
+@Service
+public class VersionStampService {
+
+    private final long bootEpoch = System.currentTimeMillis();
+
+    private final Map<Long, AtomicLong> timelineVersions = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicLong> authorStreamVersions = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicLong> profileVersions = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicLong> notificationVersions = new ConcurrentHashMap<>();
+
+    // Cambios que afectan a timelines de usuarios no identificables de forma barata (ej. borrar un chirp)
+    private final AtomicLong globalTimelineVersion = new AtomicLong();
+
+    public long getBootEpoch() {
+        return bootEpoch;
+    }
+
+    public long timelineVersion(Long userId) {
+        return read(timelineVersions, userId) + globalTimelineVersion.get();
+    }
+
+    public long authorStreamVersion(Long authorId) {
+        return read(authorStreamVersions, authorId);
+    }
+
+    public long profileVersion(Long userId) {
+        return read(profileVersions, userId);
+    }
+
+    public long notificationsVersion(Long userId) {
+        return read(notificationVersions, userId);
+    }
+
+    public void bumpTimeline(Long userId) {
+        TransactionHooks.afterCommit(() -> increment(timelineVersions, userId));
+    }
+
+    public void bumpTimelines(Long ownerId, long[] userIds) {
+        TransactionHooks.afterCommit(() -> {
+            increment(timelineVersions, ownerId);
+            for (long userId : userIds) {
+                increment(timelineVersions, userId);
+            }
+        });
+    }
+
+    public void bumpAllTimelines() {
+        TransactionHooks.afterCommit(globalTimelineVersion::incrementAndGet);
+    }
+
+    public void bumpAuthorStream(Long authorId) {
+        TransactionHooks.afterCommit(() -> increment(authorStreamVersions, authorId));
+    }
+
+    public void bumpProfile(Long userId) {
+        TransactionHooks.afterCommit(() -> increment(profileVersions, userId));
+    }
+
+    public void bumpNotifications(Long userId) {
+        TransactionHooks.afterCommit(() -> increment(notificationVersions, userId));
+    }
+
+    private static long read(Map<Long, AtomicLong> versions, Long userId) {
+        AtomicLong version = versions.get(userId);
+        return version != null ? version.get() : 0;
+    }
+
+    private static void increment(Map<Long, AtomicLong> versions, Long userId) {
+        versions.computeIfAbsent(userId, id -> new AtomicLong()).incrementAndGet();
+    }
+}
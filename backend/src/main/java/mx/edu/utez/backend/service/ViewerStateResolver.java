@@ -0,0 +1,66 @@
+package mx.edu.utez.backend.service;
+
+import mx.edu.utez.backend.repository.LikeRepository;
+import mx.edu.utez.backend.repository.RepostRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Resuelve isLiked/isReposted (e isFollowing) de una página completa con una
+ * consulta IN por tabla, en lugar de un exists por elemento.
+ */
+@Component
+public class ViewerStateResolver {
+
+    @Autowired
+    private LikeRepository likeRepository;
+
+    @Autowired
+    private RepostRepository repostRepository;
+
+    @Autowired
+    private FollowGraphCache followGraphCache;
+
+    public ViewerState resolve(Long viewerId, Collection<Long> chirpIds) {
+        if (viewerId == null || chirpIds.isEmpty()) {
+            return ViewerState.EMPTY;
+        }
+        Set<Long> ids = new HashSet<>(chirpIds);
+        return new ViewerState(
+                new HashSet<>(likeRepository.findLikedChirpIds(viewerId, ids)),
+                new HashSet<>(repostRepository.findRepostedChirpIds(viewerId, ids)));
+    }
+
+    public Set<Long> resolveFollowing(Long viewerId, Collection<Long> userIds) {
+        if (viewerId == null || userIds.isEmpty()) {
+            return Collections.emptySet();
+        }
+        return followGraphCache.followingAmong(viewerId, userIds);
+    }
+
+    public static class ViewerState {
+
+        static final ViewerState EMPTY = new ViewerState(Collections.emptySet(), Collections.emptySet());
+
+        private final Set<Long> likedIds;
+        private final Set<Long> repostedIds;
+
+        ViewerState(Set<Long> likedIds, Set<Long> repostedIds) {
+            this.likedIds = likedIds;
+            this.repostedIds = repostedIds;
+        }
+
+        public boolean isLiked(Long chirpId) {
+            return likedIds.contains(chirpId);
+        }
+
+        public boolean isReposted(Long chirpId) {
+            return repostedIds.contains(chirpId);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package mx.edu.utez.backend.util;
+
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Extrae hashtags y menciones del texto de un chirp. Un '#' o '@' solo cuenta
+ * al inicio de una palabra, así "correo@dominio.com" no es una mención.
+ */
+public final class ChirpTextParser {
+
+    public static final int MAX_TAG_LENGTH = 100;
+
+    private static final Pattern HASHTAG = Pattern.compile(
+            "(?<![\\p{L}\\p{N}_#])#([\\p{L}\\p{N}_]{1," + MAX_TAG_LENGTH + "})(?![\\p{L}\\p{N}_])");
+
+    // Mismas reglas que RegisterRequest.username
+    private static final Pattern MENTION = Pattern.compile("(?<![\\p{L}\\p{N}_@.])@([A-Za-z0-9_]{3,30})(?![A-Za-z0-9_])");
+
+    private ChirpTextParser() {
+    }
+
+    // Hashtags normalizados (minúsculas y sin acentos), sin repetir
+    public static Set<String> hashtags(String content) {
+        Set<String> tags = new LinkedHashSet<>();
+        if (content == null) {
+            return tags;
+        }
+        Matcher matcher = HASHTAG.matcher(content);
+        while (matcher.find()) {
+            tags.add(normalizeTag(matcher.group(1)));
+        }
+        return tags;
+    }
+
+    // Usernames mencionados en minúsculas, sin repetir
+    public static Set<String> mentions(String content) {
+        Set<String> usernames = new LinkedHashSet<>();
+        if (content == null) {
+            return usernames;
+        }
+        Matcher matcher = MENTION.matcher(content);
+        while (matcher.find()) {
+            usernames.add(matcher.group(1).toLowerCase(Locale.ROOT));
+        }
+        return usernames;
+    }
+
+    // Acepta el tag con o sin '#', como llega en la URL
+    public static String normalizeTag(String tag) {
+        String normalized = TextNormalizer.normalize(tag.startsWith("#") ? tag.substring(1) : tag);
+        return normalized.length() > MAX_TAG_LENGTH ? normalized.substring(0, MAX_TAG_LENGTH) : normalized;
+    }
+}
@@ -7,11 +7,22 @@ import mx.edu.utez.backend.dto.UserDTO;
 import mx.edu.utez.backend.model.Chirp;
 import mx.edu.utez.backend.model.Notification;
 import mx.edu.utez.backend.model.User;
+import mx.edu.utez.backend.service.EngagementCounterService;
+import mx.edu.utez.backend.service.ViewerStateResolver;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
 @Component
 public class DTOMapper {
 
+    @Autowired
+    private EngagementCounterService engagementCounterService;
+
     public UserDTO toUserDTO(User user) {
         return toUserDTO(user, null);
     }
@@ -43,6 +54,10 @@ public class DTOMapper {
     }
 
     public ChirpDTO toChirpDTO(Chirp chirp, boolean isLiked, boolean isReposted) {
+        return toChirpDTO(chirp, isLiked, isReposted, chirp.getImageUrls());
+    }
+
+    public ChirpDTO toChirpDTO(Chirp chirp, boolean isLiked, boolean isReposted, List<String> imageUrls) {
         ChirpDTO dto = new ChirpDTO();
         dto.setId(chirp.getId());
         dto.setContent(chirp.getContent());
@@ -58,21 +73,79 @@ public class DTOMapper {
         dto.setLongitude(chirp.getLongitude());
         dto.setCity(chirp.getCity());
         dto.setCountry(chirp.getCountry());
-        dto.setImageUrls(chirp.getImageUrls());
-        return dto;
+        dto.setImageUrls(imageUrls);
+        return engagementCounterService.applyPending(dto);
+    }
+
+    /**
+     * Mapea una página de chirps con el estado del viewer y las imágenes ya
+     * cargadas en bloque, sin consultas por elemento.
+     */
+    public List<ChirpDTO> toChirpDTOs(List<Chirp> chirps, ViewerStateResolver.ViewerState viewerState,
+            Map<Long, List<String>> imageUrls) {
+        return chirps.stream()
+                .map(chirp -> toChirpDTO(chirp,
+                        viewerState.isLiked(chirp.getId()),
+                        viewerState.isReposted(chirp.getId()),
+                        imageUrls.getOrDefault(chirp.getId(), new ArrayList<>())))
+                .collect(Collectors.toList());
     }
 
     public NotificationDTO toNotificationDTO(Notification notification) {
+        return toNotificationDTO(notification, null);
+    }
+
+    public NotificationDTO toNotificationDTO(Notification notification, Map<Long, List<String>> imageUrls) {
+        return toNotificationDTO(notification, imageUrls, null);
+    }
+
+    /**
+     * Versión agrupada: actors trae ya cargados los actores recientes de la
+     * página (ver parseRecentActorIds).
+     */
+    public NotificationDTO toNotificationDTO(Notification notification, Map<Long, List<String>> imageUrls,
+            Map<Long, AuthorDTO> actors) {
         NotificationDTO dto = new NotificationDTO();
         dto.setId(notification.getId());
         dto.setType(notification.getType());
         dto.setActor(toAuthorDTO(notification.getActor()));
+        dto.setActorCount(Math.max(1, notification.getActorCount()));
+        List<AuthorDTO> recentActors = new ArrayList<>();
+        if (actors != null) {
+            for (Long actorId : parseRecentActorIds(notification)) {
+                AuthorDTO actor = actors.get(actorId);
+                if (actor != null) {
+                    recentActors.add(actor);
+                }
+            }
+        }
+        if (recentActors.isEmpty()) {
+            recentActors.add(dto.getActor());
+        }
+        dto.setRecentActors(recentActors);
         if (notification.getChirp() != null) {
-            dto.setChirp(toChirpDTO(notification.getChirp(), false, false));
+            Chirp chirp = notification.getChirp();
+            dto.setChirp(imageUrls != null
+                    ? toChirpDTO(chirp, false, false, imageUrls.getOrDefault(chirp.getId(), new ArrayList<>()))
+                    : toChirpDTO(chirp, false, false));
         }
         dto.setContent(notification.getContent());
         dto.setCreatedAt(notification.getCreatedAt());
+        dto.setLastActivityAt(notification.getLastActivityAt() != null
+                ? notification.getLastActivityAt()
+                : notification.getCreatedAt());
         dto.setRead(notification.isRead());
         return dto;
     }
+
+    public List<Long> parseRecentActorIds(Notification notification) {
+        List<Long> actorIds = new ArrayList<>();
+        String recentActorIds = notification.getRecentActorIds();
+        if (recentActorIds != null && !recentActorIds.isEmpty()) {
+            for (String actorId : recentActorIds.split(",")) {
+                actorIds.add(Long.valueOf(actorId));
+            }
+        }
+        return actorIds;
+    }
 }
@@ -0,0 +1,39 @@
+package mx.edu.utez.backend.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import mx.edu.utez.backend.exception.BadRequestException;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Cursor de paginación por keyset con formato {@code <sortDate>,<id>},
+ * por ejemplo {@code 2025-01-31T18:04:05.123456,42}.
+ */
+@Data
+@AllArgsConstructor
+public class FeedCursor {
+
+    private LocalDateTime sortDate;
+    private Long id;
+
+    public static FeedCursor parse(String value) {
+        int comma = value == null ? -1 : value.lastIndexOf(',');
+        if (comma <= 0 || comma == value.length() - 1) {
+            throw new BadRequestException("Cursor inválido");
+        }
+        try {
+            return new FeedCursor(
+                    LocalDateTime.parse(value.substring(0, comma)),
+                    Long.parseLong(value.substring(comma + 1)));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new BadRequestException("Cursor inválido");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return sortDate + "," + id;
+    }
+}
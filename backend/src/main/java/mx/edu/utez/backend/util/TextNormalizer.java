@@ -0,0 +1,39 @@
+package mx.edu.utez.backend.util;
+
+import java.text.Normalizer;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Normalización común de los índices de búsqueda: minúsculas y sin acentos,
+ * para que "Pérez", "PEREZ" y "perez" sean el mismo término.
+ */
+public final class TextNormalizer {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private TextNormalizer() {
+    }
+
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return MARKS.matcher(Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFD))
+                .replaceAll("");
+    }
+
+    // Palabras normalizadas y sin repetir, en el orden en que aparecen
+    public static Set<String> words(String text, int maxLength) {
+        Set<String> words = new LinkedHashSet<>();
+        for (String word : SEPARATORS.split(normalize(text))) {
+            if (!word.isEmpty() && word.length() <= maxLength) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+}
@@ -0,0 +1,99 @@
+package mx.edu.utez.backend.benchmark;
+
+import mx.edu.utez.backend.service.FeedEntry;
+import mx.edu.utez.backend.service.FeedMergeEngine;
+import mx.edu.utez.backend.service.FeedStream;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara la mezcla k-way por autor contra ordenar la unión completa de los
+ * chirps y reposts de todos los seguidos (lo que hacía findFeedMixed en MySQL).
+ *
+ * Ejecutar con: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=mx.edu.utez.backend.benchmark.FeedMergeBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FeedMergeBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+    private static final int ENTRIES_PER_AUTHOR = 200;
+
+    @Param({ "50", "500", "5000" })
+    private int followees;
+
+    private final FeedMergeEngine engine = new FeedMergeEngine();
+    private List<List<FeedEntry>> perAuthor;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        LocalDateTime now = LocalDateTime.of(2025, 1, 1, 0, 0);
+        perAuthor = new ArrayList<>(followees * 2);
+        long chirpId = 1;
+        for (int author = 0; author < followees; author++) {
+            List<FeedEntry> chirps = new ArrayList<>(ENTRIES_PER_AUTHOR);
+            List<FeedEntry> reposts = new ArrayList<>(ENTRIES_PER_AUTHOR / 4);
+            LocalDateTime ts = now;
+            for (int i = 0; i < ENTRIES_PER_AUTHOR; i++) {
+                ts = ts.minusSeconds(1 + random.nextInt(3600));
+                chirps.add(new FeedEntry(chirpId++, (long) author, null, ts));
+                if (i % 4 == 0) {
+                    // Reposts de chirps populares que varios seguidos comparten
+                    reposts.add(new FeedEntry((long) random.nextInt(1000) + 1, 0L, (long) author, ts));
+                }
+            }
+            perAuthor.add(chirps);
+            perAuthor.add(reposts);
+        }
+    }
+
+    @Benchmark
+    public List<FeedEntry> kWayMerge() {
+        List<FeedStream> streams = new ArrayList<>(perAuthor.size());
+        for (List<FeedEntry> entries : perAuthor) {
+            streams.add(FeedStream.of(entries));
+        }
+        return engine.merge(streams, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<FeedEntry> sortWholeUnion() {
+        List<FeedEntry> union = new ArrayList<>();
+        perAuthor.forEach(union::addAll);
+        union.sort(FeedEntry.NEWEST_FIRST);
+
+        Set<Long> seen = new HashSet<>();
+        List<FeedEntry> page = new ArrayList<>(PAGE_SIZE);
+        for (FeedEntry entry : union) {
+            if (page.size() == PAGE_SIZE) {
+                break;
+            }
+            if (seen.add(entry.getChirpId())) {
+                page.add(entry);
+            }
+        }
+        return page;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FeedMergeBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
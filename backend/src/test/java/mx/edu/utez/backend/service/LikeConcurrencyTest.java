@@ -0,0 +1,109 @@
+package mx.edu.utez.backend.service;
+
+import mx.edu.utez.backend.exception.ConflictException;
+import mx.edu.utez.backend.model.Chirp;
+import mx.edu.utez.backend.model.User;
+import mx.edu.utez.backend.repository.ChirpRepository;
+import mx.edu.utez.backend.repository.LikeRepository;
+import mx.edu.utez.backend.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * El mismo like enviado 1000 veces en paralelo debe dejar exactamente una
+ * fila y un contador de 1. Corre sobre H2 en modo MySQL.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:likes;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "spring.datasource.hikari.maximum-pool-size=16"
+})
+class LikeConcurrencyTest {
+
+    private static final int ATTEMPTS = 1000;
+
+    @Autowired
+    private ChirpService chirpService;
+
+    @Autowired
+    private EngagementCounterService engagementCounterService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ChirpRepository chirpRepository;
+
+    @Autowired
+    private LikeRepository likeRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void sameLikeInParallelIsStoredOnce() throws Exception {
+        User author = saveUser("autor");
+        User liker = saveUser("fan");
+        Chirp chirp = new Chirp();
+        chirp.setContent("chirp popular");
+        chirp.setAuthor(author);
+        Long chirpId = chirpRepository.save(chirp).getId();
+
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger conflicts = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < ATTEMPTS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    chirpService.likeChirp(chirpId, liker);
+                } catch (ConflictException e) {
+                    conflicts.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        engagementCounterService.flush();
+
+        assertEquals(ATTEMPTS - 1, conflicts.get());
+        assertEquals(1, likeRepository.countByChirpId(chirpId));
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT likes_count FROM chirps WHERE id = ?", Integer.class, chirpId));
+    }
+
+    private User saveUser(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPasswordHash("hash");
+        user.setDisplayName(username);
+        return userRepository.save(user);
+    }
+}
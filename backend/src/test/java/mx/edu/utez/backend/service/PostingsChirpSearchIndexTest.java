@@ -0,0 +1,171 @@
+package mx.edu.utez.backend.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Ranking, lápidas y snapshot del índice invertido. La base de datos se
+ * simula: el catch-up lee los chirps de un mapa en tramos de dos.
+ */
+class PostingsChirpSearchIndexTest {
+
+    @TempDir
+    Path directory;
+
+    private final List<PostingsChirpSearchIndex> started = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        started.forEach(PostingsChirpSearchIndex::shutdown);
+    }
+
+    @Test
+    void ranksByMatchedTermsThenRecency() {
+        PostingsChirpSearchIndex index = start(chirps(
+                1L, "hola mundo",
+                2L, "hola",
+                3L, "mundo cruel",
+                4L, "Hola, MUNDO cruel"));
+
+        // 4 y 1 tienen ambos términos; 3 y 2 solo uno con el mismo idf, desempata la recencia
+        assertEquals(List.of(4L, 1L, 3L, 2L), index.search("hola mundo", 0, 10));
+        assertEquals(List.of(1L, 3L), index.search("hola mundo", 1, 2));
+        assertEquals(List.of(), index.search("adiós", 0, 10));
+    }
+
+    @Test
+    void lastTermMatchesAsPrefixWithoutDuplicates() {
+        PostingsChirpSearchIndex index = start(chirps(
+                1L, "programación en java",
+                2L, "un programa",
+                3L, "progreso y programa",
+                4L, "otra cosa"));
+
+        assertEquals(List.of(3L, 2L, 1L), index.search("prog", 0, 10));
+        assertEquals(List.of(3L, 2L, 1L), index.search("progra", 0, 10));
+        assertEquals(List.of(1L), index.search("programac", 0, 10));
+        // Un prefijo más corto que min-prefix-length solo busca el término exacto
+        assertEquals(List.of(), index.search("p", 0, 10));
+    }
+
+    @Test
+    void removedChirpsAreSkippedAndStayRemoved() {
+        PostingsChirpSearchIndex index = start(chirps(
+                1L, "café de olla",
+                2L, "café americano"));
+
+        index.remove(2L);
+        awaitCondition(() -> index.search("cafe", 0, 10).equals(List.of(1L)));
+
+        // Una lápida anterior al alta (borrado en vuelo) impide indexarlo
+        index.remove(3L);
+        index.index(3L, "café con leche");
+        index.index(4L, "café frío");
+        awaitCondition(() -> index.search("cafe", 0, 10).contains(4L));
+        assertEquals(List.of(4L, 1L), index.search("cafe", 0, 10));
+    }
+
+    @Test
+    void snapshotRoundTripKeepsTermsAndDeletions() throws Exception {
+        PostingsChirpSearchIndex original = start(chirps(
+                10L, "tacos al pastor",
+                20L, "tacos de canasta",
+                30L, "pozole rojo",
+                300L, "tacos dorados"));
+        original.remove(20L);
+        awaitCondition(() -> !original.search("tacos", 0, 10).contains(20L));
+        List<Long> before = original.search("tacos", 0, 10);
+        original.shutdown();
+        started.remove(original);
+        assertTrue(Files.exists(directory.resolve("chirps.idx")));
+
+        // Sin filas nuevas en la base: todo lo que se encuentre viene del snapshot
+        PostingsChirpSearchIndex reloaded = start(new TreeMap<>());
+        assertEquals(before, reloaded.search("tacos", 0, 10));
+        assertEquals(List.of(300L, 10L), reloaded.search("tacos", 0, 10));
+        assertEquals(List.of(30L), reloaded.search("pozole", 0, 10));
+        // La compactación al guardar quitó los términos que solo tenía el chirp borrado
+        assertEquals(List.of(), reloaded.search("canasta", 0, 10));
+        assertEquals(original.getTermCount(), reloaded.getTermCount());
+    }
+
+    private PostingsChirpSearchIndex start(TreeMap<Long, String> chirps) {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), anyLong())).thenReturn(List.of());
+        when(jdbcTemplate.queryForList(anyString(), anyLong(), anyInt())).thenAnswer(invocation -> {
+            long cursor = invocation.getArgument(1);
+            int limit = invocation.getArgument(2);
+            List<Map<String, Object>> rows = new ArrayList<>();
+            for (Map.Entry<Long, String> chirp : chirps.tailMap(cursor, false).entrySet()) {
+                if (rows.size() == limit) {
+                    break;
+                }
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("id", chirp.getKey());
+                row.put("content", chirp.getValue());
+                rows.add(row);
+            }
+            return rows;
+        });
+
+        PostingsChirpSearchIndex index = new PostingsChirpSearchIndex();
+        ReflectionTestUtils.setField(index, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(index, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(index, "enabled", true);
+        ReflectionTestUtils.setField(index, "directory", directory.toString());
+        ReflectionTestUtils.setField(index, "snapshotIntervalMs", 3_600_000L);
+        ReflectionTestUtils.setField(index, "rebuildChunkSize", 2);
+        ReflectionTestUtils.setField(index, "rebuildPauseMs", 0L);
+        ReflectionTestUtils.setField(index, "maxWindow", 1000);
+        ReflectionTestUtils.setField(index, "minPrefixLength", 2);
+        ReflectionTestUtils.setField(index, "maxPrefixTerms", 64);
+        ReflectionTestUtils.setField(index, "maxScan", 500_000);
+        index.initialize();
+        started.add(index);
+        awaitCondition(index::isReady);
+        return index;
+    }
+
+    private static TreeMap<Long, String> chirps(Object... idsAndContents) {
+        TreeMap<Long, String> chirps = new TreeMap<>();
+        for (int i = 0; i < idsAndContents.length; i += 2) {
+            chirps.put((Long) idsAndContents[i], (String) idsAndContents[i + 1]);
+        }
+        return chirps;
+    }
+
+    // Las altas y bajas se aplican en el hilo del índice
+    private static void awaitCondition(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "El índice no alcanzó el estado esperado");
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(e);
+            }
+        }
+    }
+}
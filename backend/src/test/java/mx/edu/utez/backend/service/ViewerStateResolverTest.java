@@ -0,0 +1,127 @@
+package mx.edu.utez.backend.service;
+
+import mx.edu.utez.backend.dto.ChirpDTO;
+import mx.edu.utez.backend.model.Chirp;
+import mx.edu.utez.backend.model.User;
+import mx.edu.utez.backend.repository.ChirpRepository;
+import mx.edu.utez.backend.repository.LikeRepository;
+import mx.edu.utez.backend.repository.RepostRepository;
+import mx.edu.utez.backend.util.DTOMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ViewerStateResolverTest {
+
+    @Mock
+    private LikeRepository likeRepository;
+
+    @Mock
+    private RepostRepository repostRepository;
+
+    @Mock
+    private FollowGraphCache followGraphCache;
+
+    @Mock
+    private ChirpRepository chirpRepository;
+
+    @InjectMocks
+    private ViewerStateResolver viewerStateResolver;
+
+    private ChirpService chirpService;
+
+    @BeforeEach
+    void setUp() {
+        chirpService = new ChirpService();
+        ReflectionTestUtils.setField(chirpService, "chirpRepository", chirpRepository);
+        ReflectionTestUtils.setField(chirpService, "likeRepository", likeRepository);
+        ReflectionTestUtils.setField(chirpService, "repostRepository", repostRepository);
+        ReflectionTestUtils.setField(chirpService, "viewerStateResolver", viewerStateResolver);
+        DTOMapper dtoMapper = new DTOMapper();
+        ReflectionTestUtils.setField(dtoMapper, "engagementCounterService", new EngagementCounterService());
+        ReflectionTestUtils.setField(chirpService, "dtoMapper", dtoMapper);
+
+        ChirpImageLoader chirpImageLoader = new ChirpImageLoader();
+        ReflectionTestUtils.setField(chirpImageLoader, "chirpRepository", chirpRepository);
+        ReflectionTestUtils.setField(chirpService, "chirpImageLoader", chirpImageLoader);
+    }
+
+    @Test
+    void resolveUsesOneQueryPerTable() {
+        when(likeRepository.findLikedChirpIds(eq(1L), anyCollection())).thenReturn(List.of(2L));
+        when(repostRepository.findRepostedChirpIds(eq(1L), anyCollection())).thenReturn(List.of(3L));
+
+        ViewerStateResolver.ViewerState state = viewerStateResolver.resolve(1L, List.of(2L, 3L, 4L));
+
+        assertTrue(state.isLiked(2L));
+        assertFalse(state.isLiked(3L));
+        assertTrue(state.isReposted(3L));
+        assertFalse(state.isReposted(4L));
+        verify(likeRepository, times(1)).findLikedChirpIds(eq(1L), anyCollection());
+        verify(repostRepository, times(1)).findRepostedChirpIds(eq(1L), anyCollection());
+    }
+
+    @Test
+    void resolveSkipsQueriesForEmptyPage() {
+        ViewerStateResolver.ViewerState state = viewerStateResolver.resolve(1L, List.of());
+
+        assertFalse(state.isLiked(1L));
+        verifyNoInteractions(likeRepository, repostRepository);
+    }
+
+    @Test
+    void repliesPageCostsConstantQueries() {
+        List<Chirp> replies = new ArrayList<>();
+        for (long id = 1; id <= 20; id++) {
+            replies.add(chirp(id));
+        }
+        when(chirpRepository.findRepliesByChirpId(100L)).thenReturn(replies);
+        when(likeRepository.findLikedChirpIds(eq(1L), anyCollection())).thenReturn(List.of(5L));
+        when(repostRepository.findRepostedChirpIds(eq(1L), anyCollection())).thenReturn(List.of());
+        List<Object[]> images = new ArrayList<>();
+        images.add(new Object[] { 3L, "/uploads/a.png" });
+        images.add(new Object[] { 3L, "/uploads/b.png" });
+        when(chirpRepository.findImageUrlsByChirpIds(anyCollection())).thenReturn(images);
+
+        User viewer = new User();
+        viewer.setId(1L);
+        List<ChirpDTO> dtos = chirpService.getReplies(100L, viewer);
+
+        assertEquals(20, dtos.size());
+        assertTrue(dtos.get(4).isLiked());
+        assertFalse(dtos.get(0).isLiked());
+        assertEquals(List.of("/uploads/a.png", "/uploads/b.png"), dtos.get(2).getImageUrls());
+        assertTrue(dtos.get(0).getImageUrls().isEmpty());
+        verify(likeRepository, times(1)).findLikedChirpIds(eq(1L), anyCollection());
+        verify(repostRepository, times(1)).findRepostedChirpIds(eq(1L), anyCollection());
+        verify(likeRepository, never()).existsByUserIdAndChirpId(anyLong(), anyLong());
+        verify(repostRepository, never()).existsByUserIdAndChirpId(anyLong(), anyLong());
+        verify(chirpRepository, times(1)).findImageUrlsByChirpIds(anyCollection());
+        verify(chirpRepository, never()).findImageUrlsByChirpId(anyLong());
+    }
+
+    private Chirp chirp(long id) {
+        User author = new User();
+        author.setId(99L);
+        author.setUsername("autor");
+        Chirp chirp = new Chirp();
+        chirp.setId(id);
+        chirp.setContent("chirp " + id);
+        chirp.setAuthor(author);
+        return chirp;
+    }
+}